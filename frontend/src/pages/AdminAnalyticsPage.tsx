@@ -118,16 +118,24 @@ const AdminAnalyticsPage: React.FC = () => {
       client.onConnect = () => {
         client!.subscribe('/topic/analytics/summary', (msg) => {
           try {
+            // Only the keys that changed are sent
             const data = JSON.parse(msg.body);
-            setSummary(data);
+            setSummary((prev: any) => ({ ...(prev || {}), ...data }));
           } catch (err) {
             console.error('Failed to parse summary update', err);
           }
         });
         client!.subscribe('/topic/analytics/recent', (msg) => {
           try {
-            const data = JSON.parse(msg.body);
-            setRecentActivity(data || []);
+            // New or updated inquiries only: merge by id and keep the latest 10
+            const data: any[] = JSON.parse(msg.body) || [];
+            setRecentActivity(prev => {
+              const byId = new Map<number, any>(prev.map(a => [a.id, a]));
+              data.forEach(a => byId.set(a.id, a));
+              return Array.from(byId.values())
+                .sort((a, b) => (b.updatedAt || '').localeCompare(a.updatedAt || '') || b.id - a.id)
+                .slice(0, 10);
+            });
           } catch (err) {
             console.error('Failed to parse recent activity update', err);
           }
@@ -225,7 +233,19 @@ const AdminAnalyticsPage: React.FC = () => {
             <button
               onClick={async () => {
                 try {
-                  const res = await fetch(`${apiBase}/analytics/export/pdf`, { headers });
+                  let res = await fetch(`${apiBase}/analytics/export/pdf`, { headers });
+                  // 202: the report is still rendering; poll the job until its file is ready
+                  if (res.status === 202) {
+                    let job = await res.json();
+                    while (job.status === 'QUEUED' || job.status === 'RUNNING') {
+                      await new Promise(r => setTimeout(r, 1000));
+                      const poll = await fetch(`${apiBase}/analytics/reports/${job.id}`, { headers });
+                      if (!poll.ok) throw new Error('Failed to export PDF');
+                      job = await poll.json();
+                    }
+                    if (job.status !== 'DONE') throw new Error('Failed to export PDF');
+                    res = await fetch(`${apiBase}/analytics/reports/${job.id}/file`, { headers });
+                  }
                   if (!res.ok) throw new Error('Failed to export PDF');
                   const blob = await res.blob();
                   const url = window.URL.createObjectURL(blob);
@@ -94,6 +94,13 @@ const InquiryDetailPage: React.FC = () => {
     }
   }, [token, user?.id]);
 
+  // Mark this conversation as being viewed while the page is open
+  useEffect(() => {
+    if (wsConnected && inquiryId && !isNaN(inquiryId)) {
+      return webSocketService.watchInquiry(inquiryId);
+    }
+  }, [wsConnected, inquiryId]);
+
   const loadInquiry = async () => {
     try {
       setLoading(true);
@@ -296,6 +296,25 @@ class WebSocketService {
     }
   }
 
+  // Let the server know this inquiry's chat is on screen (suppresses message notifications for it)
+  watchInquiry(inquiryId: number) {
+    if (!this.isConnected || !this.client) return () => {};
+
+    try {
+      const subscription = this.client.subscribe(`/user/queue/inquiries/${inquiryId}`, () => {});
+      return () => {
+        try {
+          subscription.unsubscribe();
+        } catch (error) {
+          console.error('[WebSocket] Error unwatching inquiry:', error);
+        }
+      };
+    } catch (error) {
+      console.error('[WebSocket] Error watching inquiry:', error);
+      return () => {};
+    }
+  }
+
   // Event handlers
   onMessage(callback: MessageCallback) {
     this.messageCallbacks.push(callback);
@@ -0,0 +1,233 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import com.realestate.service.AnalyticsService;
+import com.realestate.service.InquiryNegotiationService;
+import com.realestate.service.InquiryStatsService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Analytics summary latency as the inquiries table grows (1k to 1M rows by default), comparing:
+ *
+ *  - legacy:   the former getSummary, five findAll() scans filtered in memory (only up to loadtest.summary.legacy-max rows)
+ *  - grouped:  the single GROUP BY status query that loads / rebuilds the in-memory totals
+ *  - snapshot: AnalyticsService.getSummary() served from those totals
+ *
+ * Rows are bulk inserted over JDBC. After each size the totals are rebuilt, a round of offers, accepts and
+ * cancellations runs through InquiryNegotiationService, and the incrementally maintained totals are checked
+ * against the GROUP BY; a mismatch fails the run.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.AnalyticsSummaryHarness
+ */
+public class AnalyticsSummaryHarness {
+
+    private static final PropertyInquiry.InquiryStatus[] STATUS_MIX = {
+            PropertyInquiry.InquiryStatus.ACTIVE, PropertyInquiry.InquiryStatus.ACTIVE, PropertyInquiry.InquiryStatus.ACTIVE,
+            PropertyInquiry.InquiryStatus.ACTIVE, PropertyInquiry.InquiryStatus.NEGOTIATING, PropertyInquiry.InquiryStatus.NEGOTIATING,
+            PropertyInquiry.InquiryStatus.AGREED, PropertyInquiry.InquiryStatus.PURCHASED, PropertyInquiry.InquiryStatus.CANCELLED,
+            PropertyInquiry.InquiryStatus.CLOSED};
+
+    private final List<Integer> sizes = Arrays.stream(System.getProperty("loadtest.summary.sizes", "1000,10000,100000,1000000").split(","))
+            .map(String::trim).map(Integer::parseInt).toList();
+    private final int legacyMax = Integer.getInteger("loadtest.summary.legacy-max", 100_000);
+    private final int snapshotCalls = Integer.getInteger("loadtest.summary.snapshot-calls", 5000);
+    private final Path resultsFile = Path.of(System.getProperty("loadtest.results", "target/loadtest/results.jsonl"));
+
+    private ConfigurableApplicationContext app;
+    private JdbcTemplate jdbc;
+    private PropertyInquiryRepository inquiryRepo;
+    private InquiryStatsService inquiryStats;
+    private AnalyticsService analytics;
+    private final List<Property> properties = new ArrayList<>();
+    private final List<User> clients = new ArrayList<>();
+    private final Random random = new Random(11);
+    private String password;
+
+    public static void main(String[] args) throws Exception {
+        int status = new AnalyticsSummaryHarness().run();
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        app = LoadTestApp.start("analyticssummary");
+        jdbc = app.getBean(JdbcTemplate.class);
+        inquiryRepo = app.getBean(PropertyInquiryRepository.class);
+        inquiryStats = app.getBean(InquiryStatsService.class);
+        analytics = app.getBean(AnalyticsService.class);
+        password = app.getBean(PasswordEncoder.class).encode("LoadTest@123");
+        seed();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        boolean consistent = true;
+        long current = inquiryRepo.count();
+        for (int size : sizes) {
+            insert(size - current);
+            current = size;
+            inquiryStats.scheduledRebuild(); // rows above bypassed the application, as a migration would
+
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("inquiries", size);
+            r.put("summaryTotal", analytics.getSummary().get("totalInquiries"));
+            r.put("legacyMs", size <= legacyMax ? round(median(3, this::legacySummaryNanos) / 1e6) : null);
+            r.put("groupedMs", round(median(5, () -> {
+                // H2 serves a repeated query from its result cache until the table changes
+                jdbc.update("UPDATE property_inquiries SET version = version WHERE id = (SELECT MIN(id) FROM property_inquiries)");
+                long t = System.nanoTime();
+                inquiryRepo.aggregateByStatus();
+                return System.nanoTime() - t;
+            }) / 1e6));
+            analytics.getSummary();
+            long[] samples = new long[snapshotCalls];
+            for (int i = 0; i < snapshotCalls; i++) {
+                long t = System.nanoTime();
+                analytics.getSummary();
+                samples[i] = System.nanoTime() - t;
+            }
+            Arrays.sort(samples);
+            r.put("snapshotP50Us", round(samples[samples.length / 2] / 1e3));
+            r.put("snapshotP99Us", round(samples[(int) (samples.length * 0.99)] / 1e3));
+
+            current += transitions();
+            boolean ok = matchesDatabase();
+            r.put("incrementalMatchesGroupBy", ok);
+            consistent &= ok;
+            rows.add(r);
+            System.out.println("[AnalyticsSummary] " + r);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("commit", LoadTestApp.gitCommit());
+        result.put("tool", "AnalyticsSummaryHarness");
+        result.put("runs", rows);
+        String line = new ObjectMapper().writeValueAsString(result);
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        app.close();
+
+        System.out.printf("%n%12s %12s %12s %16s %16s%n", "inquiries", "legacy ms", "grouped ms", "snapshot p50 us", "snapshot p99 us");
+        for (Map<String, Object> r : rows) {
+            System.out.printf("%12s %12s %12s %16s %16s%n", r.get("inquiries"), r.get("legacyMs") != null ? r.get("legacyMs") : "-",
+                    r.get("groupedMs"), r.get("snapshotP50Us"), r.get("snapshotP99Us"));
+        }
+        System.out.println(consistent ? "[AnalyticsSummary] PASSED" : "[AnalyticsSummary] FAILED: in-memory totals drifted from the database");
+        return consistent ? 0 : 1;
+    }
+
+    // The summary as it was computed before the in-memory totals
+    private void legacySummary() {
+        long active = inquiryRepo.findAll().stream().filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.ACTIVE).count();
+        long negotiating = inquiryRepo.findAll().stream().filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.NEGOTIATING).count();
+        long agreed = inquiryRepo.findAll().stream().filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.AGREED).count();
+        long purchased = inquiryRepo.findAll().stream().filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED).count();
+        BigDecimal revenue = inquiryRepo.findAll().stream()
+                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
+                .map(i -> i.getAgreedPrice() != null ? i.getAgreedPrice() : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (active + negotiating + agreed + purchased < 0 || revenue == null) throw new IllegalStateException();
+    }
+
+    // Offers, accepts and cancellations through the application; returns the number of inquiries created
+    private int transitions() {
+        InquiryNegotiationService negotiation = app.getBean(InquiryNegotiationService.class);
+        int created = 0;
+        for (int i = 0; i < 20; i++) {
+            Property property = properties.get(random.nextInt(properties.size()));
+            User client = clients.get(random.nextInt(clients.size()));
+            PropertyInquiry inquiry = inquiryRepo.save(new PropertyInquiry(property, client, property.getOwner(), "Hello", null));
+            created++;
+            BigDecimal price = BigDecimal.valueOf(4_000_000 + random.nextInt(1_000_000));
+            negotiation.negotiate(inquiry.getId(), client, ChatMessage.MessageType.PRICE_OFFER, "offer", price, null);
+            if (i % 2 == 0) negotiation.negotiate(inquiry.getId(), property.getOwner(), ChatMessage.MessageType.PRICE_ACCEPT, "ok", price, null);
+            if (i % 4 == 0) negotiation.changeStatus(inquiry.getId(), client, PropertyInquiry.InquiryStatus.CANCELLED);
+        }
+        return created;
+    }
+
+    private boolean matchesDatabase() {
+        Map<PropertyInquiry.InquiryStatus, InquiryStatsService.StatusTotals> memory = inquiryStats.snapshot();
+        Set<PropertyInquiry.InquiryStatus> seen = EnumSet.noneOf(PropertyInquiry.InquiryStatus.class);
+        boolean ok = true;
+        for (Object[] row : inquiryRepo.aggregateByStatus()) {
+            PropertyInquiry.InquiryStatus status = (PropertyInquiry.InquiryStatus) row[0];
+            BigDecimal total = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            InquiryStatsService.StatusTotals m = memory.get(status);
+            seen.add(status);
+            if (m.count() != ((Number) row[1]).longValue() || m.agreedTotal().compareTo(total) != 0) {
+                System.err.println("[AnalyticsSummary] " + status + ": memory " + m + " vs database " + row[1] + "/" + total);
+                ok = false;
+            }
+        }
+        for (PropertyInquiry.InquiryStatus status : PropertyInquiry.InquiryStatus.values()) {
+            if (!seen.contains(status) && memory.get(status).count() != 0) ok = false;
+        }
+        return ok;
+    }
+
+    private void seed() {
+        UserRepository users = app.getBean(UserRepository.class);
+        PropertyRepository propertyRepo = app.getBean(PropertyRepository.class);
+        for (int i = 0; i < 50; i++) {
+            User owner = users.save(LoadTestApp.newUser("Owner" + i, "as-owner-" + i + "@loadtest.local", password, User.Role.AGENT));
+            properties.add(propertyRepo.save(LoadTestApp.newProperty("Summary property " + i, owner)));
+        }
+        for (int i = 0; i < 200; i++) {
+            clients.add(users.save(LoadTestApp.newUser("Client" + i, "as-client-" + i + "@loadtest.local", password, User.Role.USER)));
+        }
+    }
+
+    private void insert(long rows) {
+        final int batch = 5000;
+        for (long done = 0; done < rows; done += batch) {
+            int n = (int) Math.min(batch, rows - done);
+            List<Object[]> args = new ArrayList<>(n);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < n; i++) {
+                Property p = properties.get(random.nextInt(properties.size()));
+                PropertyInquiry.InquiryStatus status = STATUS_MIX[random.nextInt(STATUS_MIX.length)];
+                boolean priced = status == PropertyInquiry.InquiryStatus.AGREED || status == PropertyInquiry.InquiryStatus.PURCHASED;
+                args.add(new Object[]{p.getId(), clients.get(random.nextInt(clients.size())).getId(), p.getOwner().getId(),
+                        status.name(), priced ? BigDecimal.valueOf(3_000_000 + random.nextInt(2_000_000)) : null, now, now});
+            }
+            jdbc.batchUpdate("INSERT INTO property_inquiries (property_id, client_id, owner_id, status, agreed_price, created_at, updated_at, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)", args);
+        }
+    }
+
+    private long legacySummaryNanos() {
+        long t = System.nanoTime();
+        legacySummary();
+        return System.nanoTime() - t;
+    }
+
+    private static long median(int runs, LongSupplier timedRun) {
+        long[] t = new long[runs];
+        for (int i = 0; i < runs; i++) t[i] = timedRun.getAsLong();
+        Arrays.sort(t);
+        return t[runs / 2];
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realestate.dto.ChatFrames;
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Chat frame serialization: the maps ChatWebSocketController used to send (NEW_MESSAGE carrying the whole
+ * ChatMessage entity, with its inquiry, property and users) versus the typed ChatFrames records as JSON,
+ * CBOR and Smile, with the mapper settings ChatFrameSender and the application use.
+ * Setup prints the bytes per frame of each encoding; the benchmarks report time and allocation
+ * (gc.alloc.rate.norm) per frame.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.ChatFrameBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatFrameBenchmark {
+
+    @Param({"NEW_MESSAGE", "TYPING_INDICATOR", "MESSAGES_READ"})
+    public String frame;
+
+    private Map<String, Object> legacy;
+    private Object typed;
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = mapper(new ObjectMapper());
+        cbor = mapper(new ObjectMapper(new CBORFactory()));
+        smile = mapper(new ObjectMapper(new SmileFactory()));
+
+        User owner = user(1L, "Olivia", "Owner", User.Role.AGENT);
+        User client = user(2L, "Chris", "Client", User.Role.USER);
+        Property property = new Property("Sea view apartment", "Two bedrooms, fourth floor, covered parking",
+                new BigDecimal("4500000"), "12 Benchmark Road", "Pune", "MH", "411001", 2, 2, 1100,
+                Property.PropertyType.APARTMENT, Property.PropertyStatus.FOR_SALE);
+        property.setId(10L);
+        property.setImageUrl("https://img.example/p/10.jpg");
+        property.setOwner(owner);
+        PropertyInquiry inquiry = new PropertyInquiry(property, client, owner, "Is this available?", new BigDecimal("4300000"));
+        inquiry.setId(100L);
+        inquiry.setCreatedAt(LocalDateTime.now().minusDays(2));
+        inquiry.setUpdatedAt(LocalDateTime.now());
+        ChatMessage message = new ChatMessage(inquiry, client, ChatMessage.MessageType.PRICE_OFFER,
+                "Would you take 43 lakh?", new BigDecimal("4300000"));
+        message.setId(1000L);
+        message.setSentAt(LocalDateTime.now());
+        String senderName = client.getFirstName() + " " + client.getLastName();
+
+        legacy = new HashMap<>();
+        legacy.put("type", frame);
+        legacy.put("inquiryId", inquiry.getId());
+        switch (frame) {
+            case "NEW_MESSAGE" -> {
+                legacy.put("message", message);
+                legacy.put("senderName", senderName);
+                typed = new ChatFrames.NewMessage(inquiry.getId(), message, senderName);
+            }
+            case "TYPING_INDICATOR" -> {
+                legacy.put("isTyping", true);
+                legacy.put("senderName", senderName);
+                typed = new ChatFrames.Typing(inquiry.getId(), true, senderName);
+            }
+            default -> {
+                LocalDateTime readAt = LocalDateTime.now();
+                legacy.put("readAt", readAt);
+                typed = new ChatFrames.MessagesRead(inquiry.getId(), readAt);
+            }
+        }
+
+        System.out.println("[ChatFrameBenchmark] " + frame + " bytes: map JSON=" + json.writeValueAsBytes(legacy).length
+                + ", typed JSON=" + json.writeValueAsBytes(typed).length
+                + ", CBOR=" + cbor.writeValueAsBytes(typed).length
+                + ", Smile=" + smile.writeValueAsBytes(typed).length);
+    }
+
+    @Benchmark
+    public byte[] mapJson() throws IOException {
+        return json.writeValueAsBytes(legacy);
+    }
+
+    @Benchmark
+    public byte[] typedJson() throws IOException {
+        return json.writeValueAsBytes(typed);
+    }
+
+    @Benchmark
+    public byte[] typedCbor() throws IOException {
+        return cbor.writeValueAsBytes(typed);
+    }
+
+    @Benchmark
+    public byte[] typedSmile() throws IOException {
+        return smile.writeValueAsBytes(typed);
+    }
+
+    private static ObjectMapper mapper(ObjectMapper mapper) {
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        return mapper;
+    }
+
+    private static User user(Long id, String firstName, String lastName, User.Role role) {
+        User u = new User(firstName, lastName, firstName.toLowerCase() + "@bench.local", "x");
+        u.setId(id);
+        u.setRole(role);
+        u.setPhoneNumber("+91 98765 43210");
+        return u;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // exec:java runs inside Maven; hand the project classpath to the forked benchmark JVM
+        if (Thread.currentThread().getContextClassLoader() instanceof URLClassLoader loader) {
+            System.setProperty("java.class.path", Stream.of(loader.getURLs())
+                    .map(URL::getFile)
+                    .collect(Collectors.joining(System.getProperty("path.separator"))));
+        }
+        new Runner(new OptionsBuilder()
+                .include(ChatFrameBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,278 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realestate.config.StompChannelMetrics;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import com.realestate.util.JwtUtil;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat load generator. Starts the application on an in-memory H2 database, seeds owner/client pairs
+ * with one inquiry each, connects every user as a STOMP client (JWT in the CONNECT header) and
+ * exchanges chat.send / chat.typing / chat.markRead traffic for a fixed duration.
+ *
+ * Reports p50/p90/p99 delivery latency (send to recipient's NEW_MESSAGE) and throughput, and appends
+ * the result with the current git commit to target/loadtest/results.jsonl so runs can be compared.
+ *
+ * Slow-subscriber scenario: -Dloadtest.slow-subscribers=N makes the first N clients sleep
+ * loadtest.slow-subscriber-delay-ms in every frame handler, so their sockets back up on the server.
+ * Latency percentiles then cover the healthy clients only, and the result adds the STOMP channel
+ * counters (drops, caller-runs, slow consumer evictions) and how many slow sessions were closed.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.pairs=1000 -Dloadtest.duration-seconds=60
+ */
+public class ChatLoadHarness {
+
+    private static final String CONTENT_PREFIX = "lt:";
+
+    private final int pairs = Integer.getInteger("loadtest.pairs", 500);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+    private final long sendIntervalMs = Long.getLong("loadtest.send-interval-ms", 2000);
+    private final int connectConcurrency = Integer.getInteger("loadtest.connect-concurrency", 100);
+    private final int slowSubscribers = Integer.getInteger("loadtest.slow-subscribers", 0);
+    private final long slowDelayMs = Long.getLong("loadtest.slow-subscriber-delay-ms", 3000);
+    private final Path resultsFile = Path.of(System.getProperty("loadtest.results", "target/loadtest/results.jsonl"));
+
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong transportErrors = new AtomicLong();
+    private final AtomicLong slowDelivered = new AtomicLong();
+
+    private static final class Client {
+        final Long userId;
+        final Long inquiryId;
+        final String token;
+        boolean slow;
+        StompSession session;
+        long ticks;
+
+        Client(Long userId, Long inquiryId, String token) {
+            this.userId = userId;
+            this.inquiryId = inquiryId;
+            this.token = token;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ChatLoadHarness().run();
+    }
+
+    private void run() throws Exception {
+        ConfigurableApplicationContext app = LoadTestApp.start("loadtest");
+        int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+        List<Client> clients = seed(app);
+        for (int i = 0; i < Math.min(slowSubscribers, clients.size()); i++) clients.get(i).slow = true;
+        System.out.println("[LoadTest] Seeded " + pairs + " inquiries, connecting " + clients.size() + " clients"
+                + (slowSubscribers > 0 ? " (" + Math.min(slowSubscribers, clients.size()) + " slow)" : ""));
+
+        WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient());
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converter.setObjectMapper(mapper);
+        stomp.setMessageConverter(converter);
+
+        connectAll(stomp, "ws://localhost:" + port + "/ws-native", clients);
+        Thread.sleep(2000); // let subscriptions settle before measuring
+
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        Random random = new Random(42);
+        long started = System.nanoTime();
+        for (Client c : clients) {
+            if (c.session == null) continue;
+            senders.scheduleAtFixedRate(() -> tick(c), random.nextInt((int) sendIntervalMs), sendIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(durationSeconds * 1000L);
+        senders.shutdownNow();
+        long elapsedNanos = System.nanoTime() - started;
+        Thread.sleep(5000); // drain in-flight deliveries
+
+        report(app, clients, elapsedNanos);
+
+        for (Client c : clients) {
+            if (c.session != null && c.session.isConnected()) c.session.disconnect();
+        }
+        stomp.stop();
+        app.close();
+    }
+
+    private List<Client> seed(ConfigurableApplicationContext app) {
+        UserRepository userRepo = app.getBean(UserRepository.class);
+        PropertyRepository propertyRepo = app.getBean(PropertyRepository.class);
+        PropertyInquiryRepository inquiryRepo = app.getBean(PropertyInquiryRepository.class);
+        JwtUtil jwtUtil = app.getBean(JwtUtil.class);
+        // Hash once, BCrypt per user would dominate the seeding time
+        String password = app.getBean(PasswordEncoder.class).encode("LoadTest@123");
+
+        List<Client> clients = new ArrayList<>(pairs * 2);
+        for (int i = 0; i < pairs; i++) {
+            User owner = LoadTestApp.newUser("Owner" + i, "lt-owner-" + i + "@loadtest.local", password, User.Role.AGENT);
+            User client = LoadTestApp.newUser("Client" + i, "lt-client-" + i + "@loadtest.local", password, User.Role.USER);
+            userRepo.saveAll(List.of(owner, client));
+
+            Property property = propertyRepo.save(LoadTestApp.newProperty("Load test property " + i, owner));
+
+            PropertyInquiry inquiry = inquiryRepo.save(new PropertyInquiry(property, client, owner, "Is this available?", null));
+            clients.add(new Client(owner.getId(), inquiry.getId(), jwtUtil.generateToken(owner)));
+            clients.add(new Client(client.getId(), inquiry.getId(), jwtUtil.generateToken(client)));
+        }
+        return clients;
+    }
+
+    private void connectAll(WebSocketStompClient stomp, String url, List<Client> clients) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(connectConcurrency);
+        CountDownLatch done = new CountDownLatch(clients.size());
+        for (Client c : clients) {
+            inFlight.acquire();
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + c.token);
+            stomp.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, sessionHandler(c))
+                    .whenComplete((session, error) -> {
+                        if (error != null) {
+                            connectFailures.incrementAndGet();
+                        } else {
+                            c.session = session;
+                            session.subscribe("/user/queue/messages", frameHandler(c));
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await(2, TimeUnit.MINUTES);
+        System.out.println("[LoadTest] Connected " + (clients.size() - connectFailures.get()) + "/" + clients.size() + " clients");
+    }
+
+    // One tick per client: always a chat message, plus typing and read marks at lower rates
+    private void tick(Client c) {
+        try {
+            long n = c.ticks++;
+            if (n % 5 == 0) {
+                c.session.send("/app/chat.typing/" + c.inquiryId, Map.of("inquiryId", c.inquiryId, "typing", true));
+            }
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "CHAT_MESSAGE");
+            message.put("inquiryId", c.inquiryId);
+            message.put("messageType", "TEXT");
+            message.put("content", CONTENT_PREFIX + System.nanoTime());
+            c.session.send("/app/chat.send/" + c.inquiryId, message);
+            sent.incrementAndGet();
+            if (n % 3 == 0) {
+                c.session.send("/app/chat.markRead/" + c.inquiryId, Map.of("inquiryId", c.inquiryId));
+            }
+        } catch (Exception e) {
+            transportErrors.incrementAndGet();
+        }
+    }
+
+    private StompSessionHandler sessionHandler(Client c) {
+        return new StompSessionHandlerAdapter() {
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                transportErrors.incrementAndGet();
+            }
+        };
+    }
+
+    private StompFrameHandler frameHandler(Client c) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                if (c.slow) {
+                    // Holds the client's read thread, so frames pile up in the server's send buffer
+                    slowDelivered.incrementAndGet();
+                    try {
+                        Thread.sleep(slowDelayMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return;
+                }
+                long received = System.nanoTime();
+                Map<String, Object> frame = (Map<String, Object>) payload;
+                if (!"NEW_MESSAGE".equals(frame.get("type")) || !(frame.get("message") instanceof Map<?, ?> message)) return;
+                // Only the recipient's copy counts, the sender also gets an echo
+                Object sender = message.get("sender") instanceof Map<?, ?> s ? s.get("id") : null;
+                if (sender == null || c.userId.equals(((Number) sender).longValue())) return;
+                Object content = message.get("content");
+                if (content instanceof String text && text.startsWith(CONTENT_PREFIX)) {
+                    latenciesNanos.add(received - Long.parseLong(text.substring(CONTENT_PREFIX.length())));
+                }
+            }
+        };
+    }
+
+    private void report(ConfigurableApplicationContext app, List<Client> clients, long elapsedNanos) throws Exception {
+        int clientCount = clients.size();
+        long[] sorted = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("commit", LoadTestApp.gitCommit());
+        result.put("pairs", pairs);
+        result.put("clients", clientCount);
+        result.put("durationSeconds", durationSeconds);
+        result.put("sendIntervalMs", sendIntervalMs);
+        result.put("connectFailures", connectFailures.get());
+        result.put("transportErrors", transportErrors.get());
+        result.put("sent", sent.get());
+        result.put("delivered", sorted.length);
+        result.put("throughputPerSec", Math.round(sorted.length / seconds * 10) / 10.0);
+        result.put("p50Ms", percentileMs(sorted, 0.50));
+        result.put("p90Ms", percentileMs(sorted, 0.90));
+        result.put("p99Ms", percentileMs(sorted, 0.99));
+        result.put("maxMs", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+        if (slowSubscribers > 0) {
+            result.put("slowSubscribers", clients.stream().filter(c -> c.slow).count());
+            result.put("slowSubscriberDelayMs", slowDelayMs);
+            result.put("slowDelivered", slowDelivered.get());
+            result.put("slowDisconnected", clients.stream()
+                    .filter(c -> c.slow && c.session != null && !c.session.isConnected()).count());
+            result.put("channels", app.getBean(StompChannelMetrics.class).snapshot());
+        }
+
+        String line = new ObjectMapper().writeValueAsString(result);
+        System.out.println("[LoadTest] " + line);
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("[LoadTest] Result appended to " + resultsFile.toAbsolutePath());
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return Math.round(sorted[Math.max(index, 0)] / 1e4) / 100.0;
+    }
+}
@@ -0,0 +1,166 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realestate.dto.InquiryDtos;
+import com.realestate.dto.InquiryDtos.InquiryDto;
+import com.realestate.dto.InquiryDtos.PropertyDto;
+import com.realestate.dto.InquiryDtos.UserDto;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inquiry list mapping + JSON serialization: the former per-row hand mapping into a DTO list versus
+ * InquiryDtos.list (one Mapper per response, shared user/property DTOs).
+ * 10k inquiries over 3000 clients, 500 owners and 1500 properties, written to a discarding stream with
+ * the application's ObjectMapper settings. Setup checks that both produce identical JSON.
+ * Reports time and allocation (gc.alloc.rate.norm) per op.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.InquiryMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InquiryMappingBenchmark {
+
+    @Param("10000")
+    public int inquiries;
+
+    private List<PropertyInquiry> rows;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Random random = new Random(42);
+        List<User> clients = users(3000, "client", User.Role.USER);
+        List<User> owners = users(500, "owner", User.Role.AGENT);
+        List<Property> properties = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            Property p = new Property("Property " + i, "Benchmark", new BigDecimal(2_500_000 + i * 1000L),
+                    i + " Benchmark Road", "Pune", "MH", "411001", 2, 2, 1100,
+                    Property.PropertyType.APARTMENT, Property.PropertyStatus.FOR_SALE);
+            p.setId((long) i + 1);
+            p.setImageUrl("https://img.example/p/" + i + ".jpg");
+            p.setOwner(owners.get(i % owners.size()));
+            properties.add(p);
+        }
+        rows = new ArrayList<>(inquiries);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < inquiries; i++) {
+            Property p = properties.get(random.nextInt(properties.size()));
+            PropertyInquiry inq = new PropertyInquiry(p, clients.get(random.nextInt(clients.size())), p.getOwner(),
+                    "Is this available?", new BigDecimal(2_400_000 + i));
+            inq.setId((long) i + 1);
+            // Mix of whole seconds, millis and nanos to cover every fraction length
+            inq.setCreatedAt(now.minusMinutes(i).withNano(i % 3 == 0 ? 0 : random.nextInt(1_000_000_000)));
+            inq.setUpdatedAt(now.withNano((i % 1000) * 1_000_000));
+            rows.add(inq);
+        }
+
+        // Both paths must produce the same JSON, otherwise the comparison is meaningless
+        try {
+            List<InquiryDto> dtos = new ArrayList<>();
+            for (PropertyInquiry inq : rows) dtos.add(legacyMap(inq));
+            if (!objectMapper.writeValueAsString(dtos).equals(objectMapper.writeValueAsString(InquiryDtos.list(rows)))) {
+                throw new IllegalStateException("Shared inquiry JSON differs from the hand mapping");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public void handMapped() throws IOException {
+        List<InquiryDto> dtos = new ArrayList<>();
+        for (PropertyInquiry inq : rows) dtos.add(legacyMap(inq));
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    @Benchmark
+    public void sharedDtos() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), InquiryDtos.list(rows));
+    }
+
+    // The mapping the controller did before, one fresh DTO per row and per referenced entity
+    private static InquiryDto legacyMap(PropertyInquiry inq) {
+        InquiryDto d = new InquiryDto();
+        d.id = inq.getId();
+        d.status = inq.getStatus() != null ? inq.getStatus().name() : null;
+        d.agreedPrice = inq.getAgreedPrice();
+        d.offeredPrice = inq.getOfferedPrice();
+        d.version = inq.getVersion();
+        d.createdAt = inq.getCreatedAt();
+        d.updatedAt = inq.getUpdatedAt();
+        Property p = inq.getProperty();
+        PropertyDto pd = new PropertyDto();
+        pd.id = p.getId();
+        pd.title = p.getTitle();
+        pd.imageUrl = p.getImageUrl();
+        pd.address = p.getAddress();
+        pd.city = p.getCity();
+        pd.state = p.getState();
+        pd.price = p.getPrice();
+        d.property = pd;
+        d.client = legacyUser(inq.getClient());
+        d.owner = legacyUser(inq.getOwner());
+        return d;
+    }
+
+    private static UserDto legacyUser(User u) {
+        UserDto ud = new UserDto();
+        ud.id = u.getId();
+        ud.firstName = u.getFirstName();
+        ud.lastName = u.getLastName();
+        ud.email = u.getEmail();
+        return ud;
+    }
+
+    private static List<User> users(int count, String prefix, User.Role role) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User u = new User(prefix + i, "Bench", prefix + i + "@bench.local", "x");
+            u.setId((long) (prefix.hashCode() & 0xffff) * 100_000 + i);
+            u.setRole(role);
+            users.add(u);
+        }
+        return users;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // exec:java runs inside Maven; hand the project classpath to the forked benchmark JVM
+        if (Thread.currentThread().getContextClassLoader() instanceof URLClassLoader loader) {
+            System.setProperty("java.class.path", Stream.of(loader.getURLs())
+                    .map(URL::getFile)
+                    .collect(Collectors.joining(System.getProperty("path.separator"))));
+        }
+        new Runner(new OptionsBuilder()
+                .include(InquiryMappingBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
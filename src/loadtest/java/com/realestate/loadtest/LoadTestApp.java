@@ -0,0 +1,75 @@
+package com.realestate.loadtest;
+
+import com.realestate.RealEstateApplication;
+import com.realestate.entity.Property;
+import com.realestate.entity.User;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared bootstrap for the load and stress tools: the application on an in-memory H2 database
+ * in MySQL mode, plus seed helpers.
+ */
+final class LoadTestApp {
+
+    private LoadTestApp() {}
+
+    static ConfigurableApplicationContext start(String database) {
+        return start(database, Map.of());
+    }
+
+    /** Same as {@link #start(String)} with some properties replaced or added, e.g. a second node on the same database. */
+    static ConfigurableApplicationContext start(String database, Map<String, String> overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.profiles.active", "loadtest");
+        // Row locks wait instead of failing fast, like InnoDB
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=MySQL;LOCK_TIMEOUT=10000");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.hikari.maximum-pool-size", "50");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.devtools.restart.enabled", "false");
+        properties.putAll(overrides);
+        return new SpringApplicationBuilder(RealEstateApplication.class).run(
+                properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new));
+    }
+
+    static User newUser(String firstName, String email, String encodedPassword, User.Role role) {
+        User u = new User(firstName, "LoadTest", email, encodedPassword);
+        u.setRole(role);
+        return u;
+    }
+
+    static Property newProperty(String title, User owner) {
+        Property property = new Property(title, "Seeded by the load test tools",
+                new BigDecimal("5000000"), "1 Test Street", "Pune", "MH", "411001",
+                3, 2, 1500, Property.PropertyType.APARTMENT, Property.PropertyStatus.FOR_SALE);
+        property.setListingType(Property.ListingType.SALE);
+        property.setApprovalStatus(Property.ApprovalStatus.APPROVED);
+        property.setOwner(owner);
+        return property;
+    }
+
+    static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                return process.waitFor() == 0 && line != null ? line.trim() : "unknown";
+            }
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
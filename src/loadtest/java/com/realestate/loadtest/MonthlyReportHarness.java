@@ -0,0 +1,256 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lowagie.text.pdf.PdfReader;
+import com.realestate.entity.Property;
+import com.realestate.entity.User;
+import com.realestate.repository.MonthlyPaymentRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import com.realestate.service.ReportService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monthly portfolio report (ReportService.writeMonthlyPdf) rendering as the portfolio grows, 1k and 10k
+ * properties by default, over 200 agents in 40 cities. About 60% of the properties are let (rent bookings,
+ * every fifth one a PG bed) with a payment paid in the reported month and another the month before.
+ *
+ * For each size the report is rendered to a file under target/loadtest; reported are render time, pages,
+ * bytes, bytes allocated by the rendering thread, and the peak heap above the pre-render baseline sampled
+ * every 5 ms. Before rendering, the grouped report queries are checked against plain SQL over the same
+ * rows (city revenue and occupancy, and per-property revenue summed over all pages); a mismatch fails the run.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.MonthlyReportHarness
+ */
+public class MonthlyReportHarness {
+
+    private static final int CITIES = 40;
+    private static final int AGENTS = 200;
+
+    private final List<Integer> sizes = Arrays.stream(System.getProperty("loadtest.report.sizes", "1000,10000").split(","))
+            .map(String::trim).map(Integer::parseInt).toList();
+    private final Path resultsFile = Path.of(System.getProperty("loadtest.results", "target/loadtest/results.jsonl"));
+    private final YearMonth month = YearMonth.now().minusMonths(1);
+
+    private ConfigurableApplicationContext app;
+    private JdbcTemplate jdbc;
+    private ReportService reports;
+    private final List<User> agents = new ArrayList<>();
+    private User tenant;
+    private final Random random = new Random(5);
+
+    public static void main(String[] args) throws Exception {
+        int status = new MonthlyReportHarness().run();
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        app = LoadTestApp.start("monthlyreport");
+        jdbc = app.getBean(JdbcTemplate.class);
+        reports = app.getBean(ReportService.class);
+        seedUsers();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        boolean consistent = true;
+        int current = 0;
+        for (int size : sizes) {
+            addProperties(size - current);
+            current = size;
+
+            boolean ok = matchesSql();
+            consistent &= ok;
+
+            Path file = Path.of("target/loadtest/monthly-report-" + size + ".pdf");
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            reports.writeMonthlyPdf(month, OutputStream.nullOutputStream()); // warm-up
+
+            System.gc();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            long baseline = memory.getHeapMemoryUsage().getUsed();
+            AtomicLong peak = new AtomicLong(baseline);
+            AtomicBoolean rendering = new AtomicBoolean(true);
+            Thread sampler = new Thread(() -> {
+                while (rendering.get()) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            sampler.start();
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long t = System.nanoTime();
+            reports.writeMonthlyPdf(month, Files.newOutputStream(file));
+            long nanos = System.nanoTime() - t;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            rendering.set(false);
+            sampler.join();
+
+            PdfReader reader = new PdfReader(file.toString());
+            int pages = reader.getNumberOfPages();
+            reader.close();
+
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("properties", size);
+            r.put("renderMs", round(nanos / 1e6));
+            r.put("pages", pages);
+            r.put("bytes", Files.size(file));
+            r.put("allocatedMb", round(allocated / 1048576.0));
+            r.put("peakHeapAboveBaselineMb", round((peak.get() - baseline) / 1048576.0));
+            r.put("queriesMatchSql", ok);
+            rows.add(r);
+            System.out.println("[MonthlyReport] " + r);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("commit", LoadTestApp.gitCommit());
+        result.put("tool", "MonthlyReportHarness");
+        result.put("month", month.toString());
+        result.put("runs", rows);
+        String line = new ObjectMapper().writeValueAsString(result);
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        app.close();
+
+        System.out.printf("%n%12s %10s %8s %12s %14s %16s%n", "properties", "render ms", "pages", "bytes", "allocated MB", "peak heap +MB");
+        for (Map<String, Object> r : rows) {
+            System.out.printf("%12s %10s %8s %12s %14s %16s%n", r.get("properties"), r.get("renderMs"), r.get("pages"),
+                    r.get("bytes"), r.get("allocatedMb"), r.get("peakHeapAboveBaselineMb"));
+        }
+        System.out.println(consistent ? "[MonthlyReport] PASSED" : "[MonthlyReport] FAILED: report queries disagree with plain SQL");
+        return consistent ? 0 : 1;
+    }
+
+    private boolean matchesSql() {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.atEndOfMonth();
+        PropertyRepository propertyRepo = app.getBean(PropertyRepository.class);
+        MonthlyPaymentRepository paymentRepo = app.getBean(MonthlyPaymentRepository.class);
+
+        String revenueSql = "SELECT COALESCE(SUM(mp.amount + COALESCE(mp.late_fee, 0)), 0) FROM monthly_payments mp "
+                + "LEFT JOIN rent_bookings rb ON rb.id = mp.rent_booking_id LEFT JOIN pg_bookings pb ON pb.id = mp.pg_booking_id "
+                + "LEFT JOIN pg_beds b ON b.id = pb.bed_id LEFT JOIN pg_rooms r ON r.id = b.room_id "
+                + "WHERE mp.status = 'PAID' AND mp.paid_date BETWEEN ? AND ?";
+        BigDecimal sqlRevenue = jdbc.queryForObject(revenueSql, BigDecimal.class, Date.valueOf(start), Date.valueOf(end));
+        String occupiedSql = "SELECT COUNT(*) FROM properties p WHERE EXISTS (SELECT 1 FROM rent_bookings rb WHERE rb.property_id = p.id "
+                + "AND rb.start_date <= ? AND (rb.end_date IS NULL OR rb.end_date >= ?) AND rb.status NOT IN ('PENDING_APPROVAL', 'REJECTED', 'CANCELLED')) "
+                + "OR EXISTS (SELECT 1 FROM pg_bookings pb JOIN pg_beds b ON b.id = pb.bed_id JOIN pg_rooms r ON r.id = b.room_id "
+                + "WHERE r.property_id = p.id AND pb.start_date <= ? AND (pb.end_date IS NULL OR pb.end_date >= ?) "
+                + "AND pb.status NOT IN ('PENDING_APPROVAL', 'REJECTED', 'CANCELLED'))";
+        long sqlOccupied = jdbc.queryForObject(occupiedSql, Long.class, Date.valueOf(end), Date.valueOf(start), Date.valueOf(end), Date.valueOf(start));
+
+        BigDecimal cityRevenue = paymentRepo.reportRevenueByCity(start, end).stream()
+                .map(row -> (BigDecimal) row[1]).reduce(BigDecimal.ZERO, BigDecimal::add);
+        long cityOccupied = propertyRepo.reportOccupiedByCity(start, end).stream().mapToLong(row -> ((Number) row[1]).longValue()).sum();
+
+        BigDecimal pagedRevenue = BigDecimal.ZERO;
+        long pagedOccupied = 0;
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            page = propertyRepo.reportPropertyPage(afterId, org.springframework.data.domain.PageRequest.of(0, 500));
+            if (page.isEmpty()) break;
+            List<Long> ids = page.stream().map(row -> (Long) row[0]).toList();
+            for (List<Object[]> rows : List.of(paymentRepo.reportRentRevenueByProperty(start, end, ids), paymentRepo.reportPgRevenueByProperty(start, end, ids))) {
+                pagedRevenue = pagedRevenue.add(rows.stream().map(row -> (BigDecimal) row[1]).reduce(BigDecimal.ZERO, BigDecimal::add));
+            }
+            pagedOccupied += propertyRepo.reportOccupiedProperties(start, end, ids).size();
+            afterId = ids.get(ids.size() - 1);
+        } while (page.size() == 500);
+
+        boolean ok = sqlRevenue.compareTo(cityRevenue) == 0 && sqlRevenue.compareTo(pagedRevenue) == 0
+                && sqlOccupied == cityOccupied && sqlOccupied == pagedOccupied;
+        if (!ok) {
+            System.err.println("[MonthlyReport] revenue sql " + sqlRevenue + " cities " + cityRevenue + " pages " + pagedRevenue
+                    + "; occupied sql " + sqlOccupied + " cities " + cityOccupied + " pages " + pagedOccupied);
+        }
+        return ok;
+    }
+
+    private void seedUsers() {
+        UserRepository users = app.getBean(UserRepository.class);
+        String password = app.getBean(PasswordEncoder.class).encode("LoadTest@123");
+        for (int i = 0; i < AGENTS; i++) {
+            agents.add(users.save(LoadTestApp.newUser("Agent" + i, "mr-agent-" + i + "@loadtest.local", password, User.Role.AGENT)));
+        }
+        tenant = users.save(LoadTestApp.newUser("Tenant", "mr-tenant@loadtest.local", password, User.Role.USER));
+    }
+
+    // Properties through JPA, then bookings, PG rooms/beds and payments in JDBC batches
+    private void addProperties(int count) {
+        PropertyRepository propertyRepo = app.getBean(PropertyRepository.class);
+        LocalDate start = month.atDay(1);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int done = 0; done < count; done += 1000) {
+            List<Property> batch = new ArrayList<>();
+            for (int i = done; i < Math.min(count, done + 1000); i++) {
+                Property property = LoadTestApp.newProperty("Report property " + random.nextInt(1_000_000), agents.get(random.nextInt(AGENTS)));
+                property.setCity("City " + random.nextInt(CITIES));
+                batch.add(property);
+            }
+            List<Property> saved = propertyRepo.saveAll(batch);
+
+            List<Object[]> rentBookings = new ArrayList<>();
+            List<Property> pg = new ArrayList<>();
+            for (Property p : saved) {
+                int roll = random.nextInt(10);
+                if (roll >= 4) continue;
+                if (roll == 0) {
+                    pg.add(p);
+                } else {
+                    rentBookings.add(new Object[]{p.getId(), tenant.getId(), p.getOwner().getId(), Date.valueOf(start.minusMonths(3)),
+                            roll == 3 ? Date.valueOf(start.plusDays(10)) : null, BigDecimal.valueOf(20000), roll == 2 ? "COMPLETED" : "ACTIVE", now});
+                }
+            }
+            jdbc.batchUpdate("INSERT INTO rent_bookings (property_id, tenant_id, owner_id, start_date, end_date, monthly_rent, status, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rentBookings);
+            for (Property p : pg) {
+                jdbc.update("INSERT INTO pg_rooms (property_id, room_number, room_type, created_at) VALUES (?, '1', 'SHARED', ?)", p.getId(), now);
+                jdbc.update("INSERT INTO pg_beds (room_id, bed_number, created_at) SELECT MAX(id), 'A', ? FROM pg_rooms WHERE property_id = ?", now, p.getId());
+                jdbc.update("INSERT INTO pg_bookings (bed_id, tenant_id, owner_id, start_date, monthly_rent, status, created_at) "
+                        + "SELECT b.id, ?, ?, ?, 8000, 'ACTIVE', ? FROM pg_beds b JOIN pg_rooms r ON r.id = b.room_id WHERE r.property_id = ?",
+                        tenant.getId(), p.getOwner().getId(), Date.valueOf(start.minusMonths(2)), now, p.getId());
+            }
+            Long minId = saved.get(0).getId();
+            Long maxId = saved.get(saved.size() - 1).getId();
+            // A paid payment this month and one the month before per booking, some with late fees
+            for (int back = 0; back <= 1; back++) {
+                Date due = Date.valueOf(start.minusMonths(back).plusDays(4));
+                jdbc.update("INSERT INTO monthly_payments (rent_booking_id, due_date, amount, late_fee, status, paid_date, created_at) "
+                        + "SELECT id, ?, monthly_rent, CASE WHEN MOD(id, 7) = 0 THEN 150 ELSE NULL END, 'PAID', ?, ? FROM rent_bookings "
+                        + "WHERE property_id BETWEEN ? AND ?", due, due, now, minId, maxId);
+                jdbc.update("INSERT INTO monthly_payments (pg_booking_id, due_date, amount, status, paid_date, created_at) "
+                        + "SELECT pb.id, ?, pb.monthly_rent, 'PAID', ?, ? FROM pg_bookings pb JOIN pg_beds b ON b.id = pb.bed_id "
+                        + "JOIN pg_rooms r ON r.id = b.room_id WHERE r.property_id BETWEEN ? AND ?", due, due, now, minId, maxId);
+            }
+        }
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
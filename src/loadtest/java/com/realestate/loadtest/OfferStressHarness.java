@@ -0,0 +1,248 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.ChatMessageRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import com.realestate.service.InquiryNegotiationService;
+import com.realestate.service.InquiryNegotiationService.TransitionRejectedException;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency stress for the inquiry negotiation state machine. Runs against the application on H2 and
+ * checks for lost updates instead of measuring speed:
+ *
+ *  - offer race: client and owner fire offers/counters at the same inquiries from many threads, half of
+ *    them pinned to the version they read. Every accepted offer must be exactly one version bump and one
+ *    persisted price message, and the inquiry must end on the price of the last accepted offer.
+ *  - stale version: an offer made against a version that has since moved on is rejected as a conflict.
+ *  - sale race: several agreed inquiries on one property confirm the purchase at once; exactly one wins.
+ *
+ * Exits with status 1 when an invariant is violated.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.OfferStressHarness
+ */
+public class OfferStressHarness {
+
+    private final int inquiries = Integer.getInteger("loadtest.offer.inquiries", 20);
+    private final int offersPerParty = Integer.getInteger("loadtest.offer.offers-per-party", 25);
+    private final int threads = Integer.getInteger("loadtest.offer.threads", 16);
+    private final int buyers = Integer.getInteger("loadtest.offer.buyers", 8);
+    private final Path resultsFile = Path.of(System.getProperty("loadtest.results", "target/loadtest/results.jsonl"));
+
+    private final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+
+    private ConfigurableApplicationContext app;
+    private InquiryNegotiationService negotiation;
+    private PropertyInquiryRepository inquiryRepo;
+    private ChatMessageRepository messageRepo;
+    private String password;
+    private int userSeq;
+
+    private record Party(User client, User owner, Long inquiryId) {}
+
+    public static void main(String[] args) throws Exception {
+        int status = new OfferStressHarness().run();
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        app = LoadTestApp.start("offerstress");
+        negotiation = app.getBean(InquiryNegotiationService.class);
+        inquiryRepo = app.getBean(PropertyInquiryRepository.class);
+        messageRepo = app.getBean(ChatMessageRepository.class);
+        password = app.getBean(PasswordEncoder.class).encode("LoadTest@123");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("commit", LoadTestApp.gitCommit());
+        result.put("tool", "OfferStressHarness");
+        result.putAll(offerRace());
+        result.putAll(staleVersion());
+        result.putAll(saleRace());
+        result.put("violations", new ArrayList<>(violations));
+
+        String line = new ObjectMapper().writeValueAsString(result);
+        System.out.println("[OfferStress] " + line);
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        app.close();
+
+        violations.forEach(v -> System.err.println("[OfferStress] VIOLATION " + v));
+        System.out.println(violations.isEmpty() ? "[OfferStress] PASSED" : "[OfferStress] FAILED");
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    private Map<String, Object> offerRace() throws Exception {
+        List<Party> parties = new ArrayList<>();
+        for (int i = 0; i < inquiries; i++) parties.add(seedInquiry(seedProperty()));
+        Map<Long, Long> startVersions = new HashMap<>();
+        for (Party p : parties) startVersions.put(p.inquiryId(), inquiryRepo.findById(p.inquiryId()).orElseThrow().getVersion());
+
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        AtomicLong prices = new AtomicLong(1_000_000);
+        Map<Long, AtomicLong> acceptedPerInquiry = new ConcurrentHashMap<>();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Party p : parties) {
+            acceptedPerInquiry.put(p.inquiryId(), new AtomicLong());
+            for (User sender : List.of(p.client(), p.owner())) {
+                boolean pinned = sender == p.client(); // client offers against the version it read, owner blindly
+                ChatMessage.MessageType type = sender == p.client() ? ChatMessage.MessageType.PRICE_OFFER : ChatMessage.MessageType.PRICE_COUNTER;
+                for (int n = 0; n < offersPerParty; n++) {
+                    tasks.add(() -> {
+                        Long expected = pinned ? inquiryRepo.findById(p.inquiryId()).orElseThrow().getVersion() : null;
+                        BigDecimal price = BigDecimal.valueOf(prices.incrementAndGet());
+                        try {
+                            negotiation.negotiate(p.inquiryId(), sender, type, "offer " + price, price, expected);
+                            accepted.incrementAndGet();
+                            acceptedPerInquiry.get(p.inquiryId()).incrementAndGet();
+                        } catch (TransitionRejectedException e) {
+                            if (!e.isConflict()) violations.add("offer rejected: " + e.getMessage());
+                            conflicts.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+            }
+        }
+        Collections.shuffle(tasks, new Random(7));
+        long started = System.nanoTime();
+        runAll(tasks);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        for (Party p : parties) {
+            PropertyInquiry inquiry = inquiryRepo.findById(p.inquiryId()).orElseThrow();
+            long bumps = inquiry.getVersion() - startVersions.get(p.inquiryId());
+            long acceptedHere = acceptedPerInquiry.get(p.inquiryId()).get();
+            List<ChatMessage> offers = messageRepo.findByInquiry_IdOrderBySentAtAsc(p.inquiryId()).stream()
+                    .filter(m -> m.getPriceAmount() != null)
+                    .sorted(Comparator.comparing(ChatMessage::getId))
+                    .toList();
+            if (bumps != acceptedHere || offers.size() != acceptedHere) {
+                violations.add("inquiry " + p.inquiryId() + ": accepted=" + acceptedHere + " versionBumps=" + bumps
+                        + " priceMessages=" + offers.size());
+            }
+            BigDecimal last = offers.isEmpty() ? null : offers.get(offers.size() - 1).getPriceAmount();
+            if (last != null && (inquiry.getOfferedPrice() == null || last.compareTo(inquiry.getOfferedPrice()) != 0)) {
+                violations.add("inquiry " + p.inquiryId() + ": offeredPrice=" + inquiry.getOfferedPrice() + " but last offer=" + last);
+            }
+        }
+
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("offerAttempts", tasks.size());
+        r.put("offersAccepted", accepted.get());
+        r.put("offersConflicted", conflicts.get());
+        r.put("offerRaceMs", elapsedMs);
+        return r;
+    }
+
+    private Map<String, Object> staleVersion() {
+        Party p = seedInquiry(seedProperty());
+        long read = inquiryRepo.findById(p.inquiryId()).orElseThrow().getVersion();
+        negotiation.negotiate(p.inquiryId(), p.client(), ChatMessage.MessageType.PRICE_OFFER, "first", new BigDecimal("4000000"), read);
+        boolean rejected = false;
+        try {
+            negotiation.negotiate(p.inquiryId(), p.owner(), ChatMessage.MessageType.PRICE_COUNTER, "stale", new BigDecimal("4900000"), read);
+        } catch (TransitionRejectedException e) {
+            rejected = e.isConflict();
+        }
+        if (!rejected) violations.add("stale counter-offer was not rejected as a conflict");
+        BigDecimal offered = inquiryRepo.findById(p.inquiryId()).orElseThrow().getOfferedPrice();
+        if (offered.compareTo(new BigDecimal("4000000")) != 0) violations.add("stale counter-offer overwrote the offer: " + offered);
+        return Map.of("staleOfferRejected", rejected);
+    }
+
+    private Map<String, Object> saleRace() throws Exception {
+        Property property = seedProperty();
+        List<Party> parties = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            Party p = seedInquiry(property, property.getOwner());
+            BigDecimal price = BigDecimal.valueOf(4_500_000 + i);
+            negotiation.negotiate(p.inquiryId(), p.client(), ChatMessage.MessageType.PRICE_OFFER, "offer", price, null);
+            negotiation.negotiate(p.inquiryId(), p.owner(), ChatMessage.MessageType.PRICE_ACCEPT, "ok", price, null);
+            parties.add(p);
+        }
+
+        AtomicLong sold = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Party p : parties) {
+            tasks.add(() -> {
+                try {
+                    negotiation.negotiate(p.inquiryId(), p.owner(), ChatMessage.MessageType.PURCHASE_CONFIRM, "sold", null, null);
+                    sold.incrementAndGet();
+                } catch (TransitionRejectedException e) {
+                    refused.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        long purchased = parties.stream()
+                .filter(p -> inquiryRepo.findById(p.inquiryId()).orElseThrow().getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
+                .count();
+        Property.PropertyStatus status = app.getBean(PropertyRepository.class).findById(property.getId()).orElseThrow().getStatus();
+        if (sold.get() != 1 || purchased != 1 || status != Property.PropertyStatus.SOLD) {
+            violations.add("sale race: confirmations=" + sold.get() + " purchasedInquiries=" + purchased + " propertyStatus=" + status);
+        }
+
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("saleConfirmations", sold.get());
+        r.put("saleRefusals", refused.get());
+        return r;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    violations.add("unexpected " + e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Property seedProperty() {
+        int n = ++userSeq;
+        User owner = app.getBean(UserRepository.class)
+                .save(LoadTestApp.newUser("Owner" + n, "os-owner-" + n + "@loadtest.local", password, User.Role.AGENT));
+        return app.getBean(PropertyRepository.class).save(LoadTestApp.newProperty("Offer stress property " + n, owner));
+    }
+
+    private Party seedInquiry(Property property) {
+        return seedInquiry(property, property.getOwner());
+    }
+
+    private Party seedInquiry(Property property, User owner) {
+        int n = ++userSeq;
+        User client = app.getBean(UserRepository.class)
+                .save(LoadTestApp.newUser("Client" + n, "os-client-" + n + "@loadtest.local", password, User.Role.USER));
+        PropertyInquiry inquiry = inquiryRepo.save(new PropertyInquiry(property, client, owner, "Is this available?", null));
+        return new Party(client, owner, inquiry.getId());
+    }
+}
@@ -0,0 +1,253 @@
+package com.realestate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import com.realestate.util.JwtUtil;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of the cross-node STOMP relay. Starts two application nodes in this JVM on one H2 database, joined
+ * by the loopback relay (websocket.relay.type=loopback). Half of the inquiries have both participants on
+ * node A ("local"); in the other half the owner is on node A and the client on node B ("cross"), so every
+ * message between them travels through the relay. Each participant sends chat.send at a fixed interval.
+ *
+ * Reports p50/p90/p99 delivery latency for local and cross-node pairs and appends the result to
+ * target/loadtest/results.jsonl. The loopback relay runs in-process, so the difference measures the
+ * relay's own path (interceptor, envelope, broker re-injection), not a network hop.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.realestate.loadtest.RelayLatencyHarness
+ */
+public class RelayLatencyHarness {
+
+    private static final String CONTENT_PREFIX = "lt:";
+    private static final String DATABASE = "relay";
+
+    private final int pairs = Integer.getInteger("loadtest.pairs", 50);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+    private final long sendIntervalMs = Long.getLong("loadtest.send-interval-ms", 2000);
+    private final Path resultsFile = Path.of(System.getProperty("loadtest.results", "target/loadtest/results.jsonl"));
+
+    private final ConcurrentLinkedQueue<Long> localNanos = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> crossNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong transportErrors = new AtomicLong();
+
+    private static final class Client {
+        final Long userId;
+        final Long inquiryId;
+        final String token;
+        final boolean onNodeB;
+        final boolean cross;
+        StompSession session;
+
+        Client(Long userId, Long inquiryId, String token, boolean onNodeB, boolean cross) {
+            this.userId = userId;
+            this.inquiryId = inquiryId;
+            this.token = token;
+            this.onNodeB = onNodeB;
+            this.cross = cross;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new RelayLatencyHarness().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, String> relay = Map.of("websocket.relay.type", "loopback", "websocket.relay.cluster", "relay-harness");
+        ConfigurableApplicationContext nodeA = LoadTestApp.start(DATABASE, relay);
+        Map<String, String> second = new HashMap<>(relay);
+        // Node A owns the schema; node B only connects to it
+        second.put("spring.jpa.hibernate.ddl-auto", "none");
+        ConfigurableApplicationContext nodeB = LoadTestApp.start(DATABASE, second);
+        int portA = nodeA.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        int portB = nodeB.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+        List<Client> clients = seed(nodeA);
+        System.out.println("[RelayLatency] Seeded " + pairs + " inquiries (" + pairs / 2 + " cross-node), connecting " + clients.size() + " clients");
+
+        WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient());
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converter.setObjectMapper(mapper);
+        stomp.setMessageConverter(converter);
+
+        connectAll(stomp, "ws://localhost:" + portA + "/ws-native", "ws://localhost:" + portB + "/ws-native", clients);
+        Thread.sleep(2000); // let subscriptions settle before measuring
+
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        Random random = new Random(42);
+        for (Client c : clients) {
+            if (c.session == null) continue;
+            senders.scheduleAtFixedRate(() -> send(c), random.nextInt((int) sendIntervalMs), sendIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(durationSeconds * 1000L);
+        senders.shutdownNow();
+        Thread.sleep(3000); // drain in-flight deliveries
+
+        report(clients.size());
+
+        for (Client c : clients) {
+            if (c.session != null && c.session.isConnected()) c.session.disconnect();
+        }
+        stomp.stop();
+        nodeB.close();
+        nodeA.close();
+    }
+
+    private List<Client> seed(ConfigurableApplicationContext app) {
+        UserRepository userRepo = app.getBean(UserRepository.class);
+        PropertyRepository propertyRepo = app.getBean(PropertyRepository.class);
+        PropertyInquiryRepository inquiryRepo = app.getBean(PropertyInquiryRepository.class);
+        JwtUtil jwtUtil = app.getBean(JwtUtil.class);
+        String password = app.getBean(PasswordEncoder.class).encode("LoadTest@123");
+
+        List<Client> clients = new ArrayList<>(pairs * 2);
+        for (int i = 0; i < pairs; i++) {
+            User owner = LoadTestApp.newUser("Owner" + i, "relay-owner-" + i + "@loadtest.local", password, User.Role.AGENT);
+            User client = LoadTestApp.newUser("Client" + i, "relay-client-" + i + "@loadtest.local", password, User.Role.USER);
+            userRepo.saveAll(List.of(owner, client));
+            Property property = propertyRepo.save(LoadTestApp.newProperty("Relay test property " + i, owner));
+            PropertyInquiry inquiry = inquiryRepo.save(new PropertyInquiry(property, client, owner, "Is this available?", null));
+
+            boolean cross = i % 2 == 1;
+            clients.add(new Client(owner.getId(), inquiry.getId(), jwtUtil.generateToken(owner), false, cross));
+            clients.add(new Client(client.getId(), inquiry.getId(), jwtUtil.generateToken(client), cross, cross));
+        }
+        return clients;
+    }
+
+    private void connectAll(WebSocketStompClient stomp, String urlA, String urlB, List<Client> clients) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(100);
+        CountDownLatch done = new CountDownLatch(clients.size());
+        for (Client c : clients) {
+            inFlight.acquire();
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + c.token);
+            stomp.connectAsync(c.onNodeB ? urlB : urlA, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                        @Override
+                        public void handleTransportError(StompSession session, Throwable exception) {
+                            transportErrors.incrementAndGet();
+                        }
+                    })
+                    .whenComplete((session, error) -> {
+                        if (error != null) {
+                            connectFailures.incrementAndGet();
+                        } else {
+                            c.session = session;
+                            session.subscribe("/user/queue/messages", frameHandler(c));
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await(2, TimeUnit.MINUTES);
+        System.out.println("[RelayLatency] Connected " + (clients.size() - connectFailures.get()) + "/" + clients.size() + " clients");
+    }
+
+    private void send(Client c) {
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "CHAT_MESSAGE");
+            message.put("inquiryId", c.inquiryId);
+            message.put("messageType", "TEXT");
+            message.put("content", CONTENT_PREFIX + System.nanoTime());
+            c.session.send("/app/chat.send/" + c.inquiryId, message);
+            sent.incrementAndGet();
+        } catch (Exception e) {
+            transportErrors.incrementAndGet();
+        }
+    }
+
+    private StompFrameHandler frameHandler(Client c) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                long received = System.nanoTime();
+                Map<String, Object> frame = (Map<String, Object>) payload;
+                if (!"NEW_MESSAGE".equals(frame.get("type")) || !(frame.get("message") instanceof Map<?, ?> message)) return;
+                // Only the recipient's copy counts, the sender also gets an echo
+                Object sender = message.get("sender") instanceof Map<?, ?> s ? s.get("id") : null;
+                if (sender == null || c.userId.equals(((Number) sender).longValue())) return;
+                Object content = message.get("content");
+                if (content instanceof String text && text.startsWith(CONTENT_PREFIX)) {
+                    (c.cross ? crossNanos : localNanos).add(received - Long.parseLong(text.substring(CONTENT_PREFIX.length())));
+                }
+            }
+        };
+    }
+
+    private void report(int clientCount) throws Exception {
+        long[] local = localNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] cross = crossNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("harness", "relay-latency");
+        result.put("timestamp", LocalDateTime.now().toString());
+        result.put("commit", LoadTestApp.gitCommit());
+        result.put("relay", "loopback");
+        result.put("pairs", pairs);
+        result.put("clients", clientCount);
+        result.put("durationSeconds", durationSeconds);
+        result.put("sendIntervalMs", sendIntervalMs);
+        result.put("connectFailures", connectFailures.get());
+        result.put("transportErrors", transportErrors.get());
+        result.put("sent", sent.get());
+        result.put("local", latency(local));
+        result.put("cross", latency(cross));
+
+        String line = new ObjectMapper().writeValueAsString(result);
+        System.out.println("[RelayLatency] " + line);
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("[RelayLatency] Result appended to " + resultsFile.toAbsolutePath());
+    }
+
+    private static Map<String, Object> latency(long[] sorted) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("delivered", sorted.length);
+        m.put("p50Ms", percentileMs(sorted, 0.50));
+        m.put("p90Ms", percentileMs(sorted, 0.90));
+        m.put("p99Ms", percentileMs(sorted, 0.99));
+        m.put("maxMs", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+        return m;
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return Math.round(sorted[Math.max(index, 0)] / 1e4) / 100.0;
+    }
+}
@@ -5,8 +5,11 @@ import com.realestate.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
+
 @Configuration
 public class DataInitializer {
 
@@ -24,6 +27,46 @@ public class DataInitializer {
         };
     }
 
+    // Tables created before message_type was mapped as varchar still have a MySQL ENUM without ATTACHMENT,
+    // and ddl-auto=update does not alter existing columns
+    @Bean
+    CommandLineRunner widenMessageTypeColumns(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            for (String table : List.of("chat_messages", "chat_messages_archive")) {
+                try {
+                    List<String> types = jdbcTemplate.queryForList(
+                            "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'message_type'",
+                            String.class, table);
+                    if (!types.isEmpty() && "enum".equalsIgnoreCase(types.get(0))) {
+                        jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY message_type varchar(32) NOT NULL");
+                        System.out.println("[DataInitializer] Widened " + table + ".message_type to varchar(32)");
+                    }
+                } catch (Exception e) {
+                    System.err.println("[DataInitializer] Could not check " + table + ".message_type: " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    // archive_month was mapped NOT NULL before it was dropped; ddl-auto=update leaves it in place and
+    // archiving would then fail on the missing value
+    @Bean
+    CommandLineRunner dropArchiveMonthColumn(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            try {
+                Integer found = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'chat_messages_archive' AND COLUMN_NAME = 'archive_month'",
+                        Integer.class);
+                if (found != null && found > 0) {
+                    jdbcTemplate.execute("ALTER TABLE chat_messages_archive DROP COLUMN archive_month");
+                    System.out.println("[DataInitializer] Dropped chat_messages_archive.archive_month");
+                }
+            } catch (Exception e) {
+                System.err.println("[DataInitializer] Could not check chat_messages_archive.archive_month: " + e.getMessage());
+            }
+        };
+    }
+
     private void createIfNotExists(UserRepository repo, PasswordEncoder encoder,
                                    String first, String last, String email, String rawPassword, User.Role role) {
         if (repo.existsByEmail(email)) {
@@ -0,0 +1,63 @@
+package com.realestate.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process relay: every application context in the same JVM that uses the same
+ * websocket.relay.cluster name acts as one node. Meant for tests and local multi-node runs.
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.relay.type", havingValue = "loopback")
+public class LoopbackStompRelay implements StompRelay, DisposableBean {
+
+    private static final Map<String, List<LoopbackStompRelay>> CLUSTERS = new ConcurrentHashMap<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String cluster;
+    private volatile Consumer<Envelope> handler;
+
+    public LoopbackStompRelay(@Value("${websocket.relay.cluster:default}") String cluster) {
+        this.cluster = cluster;
+        CLUSTERS.computeIfAbsent(cluster, c -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(Envelope envelope) {
+        for (LoopbackStompRelay node : CLUSTERS.getOrDefault(cluster, List.of())) {
+            Consumer<Envelope> h = node.handler;
+            if (node != this && h != null) {
+                try {
+                    h.accept(envelope);
+                } catch (Exception e) {
+                    System.err.println("[StompRelay] Delivery to node " + node.nodeId + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onReceive(Consumer<Envelope> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void destroy() {
+        List<LoopbackStompRelay> nodes = CLUSTERS.get(cluster);
+        if (nodes != null) nodes.remove(this);
+    }
+}
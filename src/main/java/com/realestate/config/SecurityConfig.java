@@ -40,6 +40,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 // Allow SockJS/WebSocket handshake endpoints
                 .requestMatchers("/ws/**").permitAll()
+                .requestMatchers("/ws-native/**").permitAll()
                 // Public property endpoints
                 .requestMatchers("/api/properties/public/**").permitAll()
                 .requestMatchers("/api/properties/approved").permitAll()
@@ -0,0 +1,145 @@
+package com.realestate.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executors for the STOMP channels plus per-channel counters:
+ * queue depth, time spent queued, handling time, and what happened to frames that found the queue full
+ * (dropped, or run on the sending thread).
+ */
+@Component
+public class StompChannelMetrics {
+
+    public static class ChannelStats {
+        private final String name;
+        private ThreadPoolTaskExecutor executor;
+        private final AtomicLong handled = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong callerRuns = new AtomicLong();
+        private final AtomicLong queueNanos = new AtomicLong();
+        private final AtomicLong maxQueueNanos = new AtomicLong();
+        private final AtomicLong handleNanos = new AtomicLong();
+
+        ChannelStats(String name) {
+            this.name = name;
+        }
+
+        Map<String, Object> snapshot() {
+            long count = handled.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("channel", name);
+            ThreadPoolExecutor pool = executor != null && isInitialized(executor) ? executor.getThreadPoolExecutor() : null;
+            m.put("queueDepth", pool != null ? pool.getQueue().size() : 0);
+            m.put("activeThreads", pool != null ? pool.getActiveCount() : 0);
+            m.put("poolSize", pool != null ? pool.getPoolSize() : 0);
+            m.put("handled", count);
+            m.put("dropped", dropped.get());
+            m.put("callerRuns", callerRuns.get());
+            m.put("avgQueueMs", count > 0 ? queueNanos.get() / count / 1_000_000.0 : 0.0);
+            m.put("maxQueueMs", maxQueueNanos.get() / 1_000_000.0);
+            m.put("avgHandleMs", count > 0 ? handleNanos.get() / count / 1_000_000.0 : 0.0);
+            return m;
+        }
+
+        private static boolean isInitialized(ThreadPoolTaskExecutor executor) {
+            try {
+                executor.getThreadPoolExecutor();
+                return true;
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+
+    private final Map<String, ChannelStats> channels = new ConcurrentHashMap<>();
+    private final AtomicLong slowConsumerEvictions = new AtomicLong();
+
+    /**
+     * Creates an executor with a bounded queue. When the queue is full, MESSAGE frames are dropped and
+     * counted if dropMessages is set; every other frame (CONNECT, SUBSCRIBE, DISCONNECT, heartbeats) runs
+     * on the sending thread instead, which slows that sender down rather than losing session state.
+     * The executor is initialised by the broker configuration.
+     */
+    public ThreadPoolTaskExecutor newExecutor(String channel, int corePoolSize, int maxPoolSize, int queueCapacity,
+                                              boolean dropMessages) {
+        ChannelStats stats = channels.computeIfAbsent(channel, ChannelStats::new);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(channel + "-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(Math.max(corePoolSize, maxPoolSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            if (pool.isShutdown()) {
+                stats.dropped.incrementAndGet();
+            } else if (dropMessages && isMessageFrame(task)) {
+                stats.dropped.incrementAndGet();
+            } else {
+                stats.callerRuns.incrementAndGet();
+                task.run();
+            }
+        });
+        executor.setTaskDecorator(task -> new TimedTask(task, stats));
+        stats.executor = executor;
+        return executor;
+    }
+
+    // Keeps the channel's task reachable so the rejection handler can look at the frame it carries
+    private static final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final ChannelStats stats;
+        private final long submittedAt = System.nanoTime();
+
+        TimedTask(Runnable task, ChannelStats stats) {
+            this.task = task;
+            this.stats = stats;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - submittedAt;
+            stats.queueNanos.addAndGet(waited);
+            stats.maxQueueNanos.accumulateAndGet(waited, Math::max);
+            try {
+                task.run();
+            } finally {
+                stats.handleNanos.addAndGet(System.nanoTime() - startedAt);
+                stats.handled.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean isMessageFrame(Runnable task) {
+        Runnable inner = task instanceof TimedTask timed ? timed.task : task;
+        if (!(inner instanceof MessageHandlingRunnable handling)) return false;
+        Message<?> message = handling.getMessage();
+        return SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE;
+    }
+
+    public void recordSlowConsumerEviction() {
+        slowConsumerEvictions.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : new String[]{"inbound", "outbound", "broker"}) {
+            ChannelStats stats = channels.get(name);
+            if (stats != null) result.put(name, stats.snapshot());
+        }
+        result.put("slowConsumerEvictions", slowConsumerEvictions.get());
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package com.realestate.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.dto.ChatFrames;
+import com.realestate.service.ChatFrameSender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbound channel interceptor that rate limits SEND frames before they reach the @MessageMapping handlers.
+ * Each session and each inquiry has a token bucket (rate per second plus burst); repeated typing frames
+ * with an unchanged state are dropped outright. Typing frames over the limit are dropped silently, since
+ * the next one supersedes them; any other chat frame over the limit is answered with a RATE_LIMITED frame
+ * on /user/queue/errors so the client can resend it. Rejected frames never touch the database.
+ */
+@Component
+public class StompFloodControl implements ChannelInterceptor {
+
+    private static final String CHAT_PREFIX = "/app/chat.";
+    private static final String TYPING_PREFIX = "/app/chat.typing/";
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @Value("${websocket.flood.enabled:true}") private boolean enabled;
+    @Value("${websocket.flood.session.rate-per-second:20}") private double sessionRate;
+    @Value("${websocket.flood.session.burst:40}") private int sessionBurst;
+    @Value("${websocket.flood.inquiry.rate-per-second:30}") private double inquiryRate;
+    @Value("${websocket.flood.inquiry.burst:60}") private int inquiryBurst;
+    @Value("${websocket.flood.typing-repeat-ms:3000}") private long typingRepeatMs;
+
+    // Lazy: the sender needs the broker channel, which is configured alongside this interceptor
+    @Autowired @Lazy private ChatFrameSender frameSender;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Bucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, Bucket> inquiryBuckets = new ConcurrentHashMap<>();
+    // sessionId -> inquiryId -> last typing state forwarded
+    private final Map<String, Map<Long, TypingState>> typingStates = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedSession = new AtomicLong();
+    private final AtomicLong droppedInquiry = new AtomicLong();
+    private final AtomicLong droppedTyping = new AtomicLong();
+    private final AtomicLong rejectionsNotified = new AtomicLong();
+
+    private record TypingState(boolean typing, long sentAt) {}
+
+    /**
+     * Token bucket kept as a single "theoretical arrival time" (GCRA): a frame is admitted while the
+     * bucket's time is at most burst-1 intervals ahead of now, and each admitted frame pushes it one interval.
+     * One CAS per frame, no locks and no refill thread.
+     */
+    static final class Bucket {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+        boolean tryAcquire(long now, long intervalNanos, long toleranceNanos) {
+            while (true) {
+                long current = tat.get();
+                long base = Math.max(current, now);
+                if (base - now > toleranceNanos) return false;
+                if (tat.compareAndSet(current, base + intervalNanos)) return true;
+            }
+        }
+
+        // How long until the next frame would be admitted
+        long waitNanos(long now, long toleranceNanos) {
+            long current = tat.get();
+            if (current <= now) return 0; // also keeps the unused bucket's MIN_VALUE from wrapping around
+            return Math.max(current - now - toleranceNanos, 0);
+        }
+
+        boolean idleSince(long cutoff) {
+            return tat.get() < cutoff;
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) return message;
+
+        if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            String sessionId = accessor.getSessionId();
+            if (sessionId != null) {
+                sessionBuckets.remove(sessionId);
+                typingStates.remove(sessionId);
+            }
+            return message;
+        }
+        if (!enabled || !StompCommand.SEND.equals(accessor.getCommand())) return message;
+
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        if (destination == null || sessionId == null || !destination.startsWith(CHAT_PREFIX)) return message;
+        Long inquiryId = trailingId(destination);
+        boolean typingFrame = destination.startsWith(TYPING_PREFIX);
+
+        Boolean typing = typingFrame && inquiryId != null ? typingFlag(message.getPayload()) : null;
+        if (typing != null && isDuplicateTyping(sessionId, inquiryId, typing)) {
+            droppedTyping.incrementAndGet();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        Bucket session = sessionBuckets.computeIfAbsent(sessionId, id -> new Bucket());
+        long sessionTolerance = tolerance(sessionRate, sessionBurst);
+        if (!session.tryAcquire(now, interval(sessionRate), sessionTolerance)) {
+            droppedSession.incrementAndGet();
+            if (!typingFrame) reject(accessor.getUser(), inquiryId, destination, session.waitNanos(now, sessionTolerance));
+            return null;
+        }
+        if (inquiryId != null) {
+            Bucket inquiry = inquiryBuckets.computeIfAbsent(inquiryId, id -> new Bucket());
+            long inquiryTolerance = tolerance(inquiryRate, inquiryBurst);
+            if (!inquiry.tryAcquire(now, interval(inquiryRate), inquiryTolerance)) {
+                droppedInquiry.incrementAndGet();
+                if (!typingFrame) reject(accessor.getUser(), inquiryId, destination, inquiry.waitNanos(now, inquiryTolerance));
+                return null;
+            }
+        }
+        // Only a typing state that was actually forwarded suppresses the repeats after it
+        if (typing != null) recordTyping(sessionId, inquiryId, typing);
+        return message;
+    }
+
+    private void reject(Principal user, Long inquiryId, String destination, long waitNanos) {
+        if (user == null) return;
+        try {
+            frameSender.sendToUser(user.getName(), "/queue/errors",
+                new ChatFrames.RateLimited(inquiryId, destination, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1));
+            rejectionsNotified.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("[FloodControl] Failed to send rate limit notice: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("droppedSessionRate", droppedSession.get());
+        m.put("droppedInquiryRate", droppedInquiry.get());
+        m.put("droppedDuplicateTyping", droppedTyping.get());
+        m.put("rejectionsNotified", rejectionsNotified.get());
+        m.put("trackedSessions", sessionBuckets.size());
+        m.put("trackedInquiries", inquiryBuckets.size());
+        return m;
+    }
+
+    // Inquiry buckets outlive sessions; drop the ones that have been full (idle) for a while
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long cutoff = System.nanoTime() - IDLE_NANOS;
+        inquiryBuckets.values().removeIf(b -> b.idleSince(cutoff));
+    }
+
+    // Same typing state as the last forwarded frame, within the repeat window, adds nothing for the recipient
+    private boolean isDuplicateTyping(String sessionId, Long inquiryId, boolean typing) {
+        Map<Long, TypingState> states = typingStates.get(sessionId);
+        TypingState previous = states != null ? states.get(inquiryId) : null;
+        return previous != null && previous.typing() == typing && System.currentTimeMillis() - previous.sentAt() < typingRepeatMs;
+    }
+
+    private void recordTyping(String sessionId, Long inquiryId, boolean typing) {
+        typingStates.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(inquiryId, new TypingState(typing, System.currentTimeMillis()));
+    }
+
+    private Boolean typingFlag(Object payload) {
+        if (!(payload instanceof byte[] bytes)) return null;
+        try {
+            JsonNode node = objectMapper.readTree(bytes);
+            JsonNode flag = node.has("isTyping") ? node.get("isTyping") : node.get("typing");
+            return flag != null && flag.isBoolean() ? flag.booleanValue() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Long trailingId(String destination) {
+        int slash = destination.lastIndexOf('/');
+        if (slash < 0 || slash == destination.length() - 1) return null;
+        try {
+            return Long.parseLong(destination.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long interval(double ratePerSecond) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(ratePerSecond, 0.001));
+    }
+
+    private static long tolerance(double ratePerSecond, int burst) {
+        return interval(ratePerSecond) * Math.max(burst - 1, 0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.realestate.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Forwards broker traffic (/topic/** and /user/** destinations) between application nodes so that
+ * messages reach sessions connected to any instance behind the load balancer.
+ * Select an implementation with websocket.relay.type; without one, delivery stays node-local.
+ *
+ * Only {@link LoopbackStompRelay} ships, and it connects application contexts inside one JVM; running
+ * separate processes behind a load balancer still needs a transport (e.g. Redis pub/sub or a broker)
+ * implementing this interface. Until then a multi-instance deployment must pin users to one node.
+ */
+public interface StompRelay {
+
+    /** Message as it entered the local broker channel, before user destinations are resolved. */
+    class Envelope {
+        public final String originNode;
+        public final String destination;
+        public final String contentType;
+        public final byte[] payload;
+
+        public Envelope(String originNode, String destination, String contentType, byte[] payload) {
+            this.originNode = originNode;
+            this.destination = destination;
+            this.contentType = contentType;
+            this.payload = payload;
+        }
+    }
+
+    String nodeId();
+
+    /** Sends to every other node. Must not block for long; called on the broker channel thread. */
+    void publish(Envelope envelope);
+
+    /** Registers the handler for envelopes published by other nodes. */
+    void onReceive(Consumer<Envelope> handler);
+}
@@ -0,0 +1,77 @@
+package com.realestate.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Broker channel interceptor that copies locally published /topic and /user messages to the relay,
+ * and injects messages from other nodes into the local broker channel.
+ * Registered only when a {@link StompRelay} bean exists.
+ */
+@Component
+public class StompRelayInterceptor implements ChannelInterceptor {
+
+    static final String RELAYED_HEADER = "relayedFrom";
+
+    @Autowired(required = false) private StompRelay relay;
+    @Value("${websocket.relay.type:}") private String relayType;
+    @Autowired @Lazy @Qualifier("brokerChannel") private MessageChannel brokerChannel;
+
+    public boolean isEnabled() {
+        return relay != null;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (relay == null) {
+            // A typo or an unshipped transport would otherwise leave the node silently local
+            if (!relayType.isBlank()) {
+                throw new IllegalStateException("websocket.relay.type=" + relayType + " has no implementation; only 'loopback' (in-JVM) is available");
+            }
+            return;
+        }
+        relay.onReceive(this::deliverLocally);
+        System.out.println("[StompRelay] Node " + relay.nodeId() + " joined relay " + relay.getClass().getSimpleName());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (relay == null) return message;
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || accessor.getHeader(RELAYED_HEADER) != null
+                // Already resolved to a local session (/queue/...-user{session}), the /user/ original was relayed
+                || accessor.getHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination != null && (destination.startsWith("/topic/") || destination.startsWith("/user/"))) {
+            MimeType contentType = accessor.getContentType();
+            relay.publish(new StompRelay.Envelope(relay.nodeId(), destination,
+                    contentType != null ? contentType.toString() : null, payload));
+        }
+        return message;
+    }
+
+    private void deliverLocally(StompRelay.Envelope envelope) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination);
+        if (envelope.contentType != null) accessor.setContentType(MimeType.valueOf(envelope.contentType));
+        accessor.setHeader(RELAYED_HEADER, envelope.originNode);
+        accessor.setLeaveMutable(true);
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload, accessor.getMessageHeaders()));
+    }
+}
@@ -1,12 +1,20 @@
 package com.realestate.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
@@ -16,6 +24,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.realestate.service.PresenceService;
 import com.realestate.service.UserService;
 import com.realestate.util.JwtUtil;
 
@@ -25,6 +34,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Autowired private JwtUtil jwtUtil;
     @Autowired private UserService userService;
+    @Autowired private StompChannelMetrics channelMetrics;
+    @Autowired private StompRelayInterceptor relayInterceptor;
+    @Autowired private StompFloodControl floodControl;
+    @Autowired @Lazy private PresenceService presenceService;
+
+    // Channel executors - bounded queues so a burst cannot grow memory without limit
+    @Value("${websocket.inbound.core-pool-size:8}") private int inboundCorePoolSize;
+    @Value("${websocket.inbound.max-pool-size:16}") private int inboundMaxPoolSize;
+    @Value("${websocket.inbound.queue-capacity:2000}") private int inboundQueueCapacity;
+    @Value("${websocket.outbound.core-pool-size:8}") private int outboundCorePoolSize;
+    @Value("${websocket.outbound.max-pool-size:16}") private int outboundMaxPoolSize;
+    @Value("${websocket.outbound.queue-capacity:5000}") private int outboundQueueCapacity;
+    @Value("${websocket.broker.core-pool-size:4}") private int brokerCorePoolSize;
+    @Value("${websocket.broker.max-pool-size:8}") private int brokerMaxPoolSize;
+    @Value("${websocket.broker.queue-capacity:5000}") private int brokerQueueCapacity;
+
+    // Per-session limits - a client that cannot keep up is disconnected instead of stalling fan-out
+    @Value("${websocket.session.send-time-limit-ms:10000}") private int sendTimeLimitMs;
+    @Value("${websocket.session.send-buffer-size-kb:512}") private int sendBufferSizeKb;
+    @Value("${websocket.session.message-size-kb:64}") private int messageSizeKb;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
@@ -37,6 +66,13 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         
         // Set user destination prefix for private messaging
         config.setUserDestinationPrefix("/user");
+
+        config.configureBrokerChannel().taskExecutor(
+            channelMetrics.newExecutor("broker", brokerCorePoolSize, brokerMaxPoolSize, brokerQueueCapacity, true));
+        // Cross-node fan-out when a relay is configured (websocket.relay.type)
+        if (relayInterceptor.isEnabled()) {
+            config.configureBrokerChannel().interceptors(relayInterceptor);
+        }
     }
 
     @Override
@@ -46,11 +82,45 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 // For development, allow all origins. In production, restrict this.
                 .setAllowedOriginPatterns("*")
                 .withSockJS(); // Enable SockJS fallback for older browsers
+
+        // Raw WebSocket endpoint for clients negotiating binary (CBOR/Smile) chat frames
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*");
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authChannelInterceptor());
+        // Inbound SENDs carry chat messages and actions, so a full queue slows the client's socket instead
+        registration.taskExecutor(
+            channelMetrics.newExecutor("inbound", inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity, false));
+        registration.interceptors(authChannelInterceptor(), presenceChannelInterceptor(), floodControl);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(
+            channelMetrics.newExecutor("outbound", outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity, true));
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeKb * 1024)
+                .setMessageSizeLimit(messageSizeKb * 1024)
+                .addDecoratorFactory(this::slowConsumerTracking);
+    }
+
+    // Sessions closed with SESSION_NOT_RELIABLE were evicted for exceeding the send time/buffer limits
+    private WebSocketHandler slowConsumerTracking(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+                    channelMetrics.recordSlowConsumerEviction();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
     }
 
     private ChannelInterceptor authChannelInterceptor() {
@@ -87,4 +157,15 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             }
         };
     }
+
+    // Any inbound frame from a connected session refreshes its user's last-seen time
+    private ChannelInterceptor presenceChannelInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, org.springframework.messaging.MessageChannel channel) {
+                presenceService.touchSession(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+                return message;
+            }
+        };
+    }
 }
@@ -1,22 +1,31 @@
 package com.realestate.controller;
 
-import com.realestate.entity.User;
-import com.realestate.entity.Property;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.realestate.repository.UserRepository;
 import com.realestate.repository.PropertyRepository;
 import com.realestate.service.AnalyticsService;
-import com.realestate.service.ReportService;
+import com.realestate.service.DailyRollupService;
+import com.realestate.service.DashboardStatsService;
+import com.realestate.service.ReportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -34,7 +43,19 @@ public class AnalyticsController {
     private AnalyticsService analyticsService;
 
     @Autowired
-    private ReportService reportService;
+    private DailyRollupService dailyRollups;
+
+    @Autowired
+    private ReportJobService reportJobs;
+
+    @Autowired
+    private DashboardStatsService dashboardStats;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${reports.sync-wait-ms:30000}")
+    private long syncWaitMs;
 
     // Summary KPIs for Admin Analytics
     @GetMapping("/summary")
@@ -42,12 +63,29 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsService.getSummary());
     }
 
-    // Simple time series over last N days
+    // Daily series over last N days; metric is a comma-separated list, dimension e.g. city:Pune or kind:RENT
     @GetMapping("/timeseries")
     public ResponseEntity<Map<String, Object>> getTimeSeries(
             @RequestParam(defaultValue = "inquiries") String metric,
-            @RequestParam(defaultValue = "30") int rangeDays) {
-        return ResponseEntity.ok(analyticsService.getTimeSeries(metric, rangeDays));
+            @RequestParam(defaultValue = "30") int rangeDays,
+            @RequestParam(defaultValue = DailyRollupService.ALL) String dimension) {
+        return ResponseEntity.ok(analyticsService.getTimeSeries(metric, rangeDays, dimension));
+    }
+
+    // Recompute the daily rollups for the last N days in the background
+    @PostMapping("/timeseries/backfill")
+    public ResponseEntity<Map<String, Object>> backfillTimeSeries(@RequestParam(defaultValue = "365") int days) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate from = yesterday.minusDays(Math.max(1, days) - 1L);
+        Map<String, Object> body = new HashMap<>();
+        body.put("from", from.toString());
+        body.put("to", yesterday.toString());
+        if (!dailyRollups.backfillAsync(from, yesterday)) {
+            body.put("message", "A backfill is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
+        body.put("message", "Backfill started");
+        return ResponseEntity.accepted().body(body);
     }
 
     // Recent activity feed (inquiries/messages/purchases)
@@ -56,20 +94,84 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsService.recentInquiries(limit));
     }
 
-    // Export Analytics PDF
-    @GetMapping(value = "/export/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<byte[]> exportPdf() {
-        Map<String, Object> summary = analyticsService.getSummary();
-        byte[] pdf = reportService.buildAnalyticsPdf(summary);
-        return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=analytics-summary.pdf")
-                .body(pdf);
+    // Export Analytics PDF; rendered as a report job, answered with the job (202) if it takes longer than reports.sync-wait-ms
+    @GetMapping(value = "/export/pdf", produces = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public void exportPdf(Authentication auth, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ReportJobService.ReportJob job;
+        try {
+            job = reportJobs.submit(ReportJobService.ReportType.SUMMARY, Map.of(), auth != null ? auth.getName() : null);
+        } catch (ReportJobService.QueueFullException e) {
+            writeJson(response, HttpStatus.SERVICE_UNAVAILABLE, Map.of("message", e.getMessage()));
+            return;
+        }
+        reportJobs.await(job, Duration.ofMillis(syncWaitMs));
+        if (job.getStatus() == ReportJobService.JobStatus.FAILED) {
+            writeJson(response, HttpStatus.INTERNAL_SERVER_ERROR, job.view());
+        } else if (job.getStatus() != ReportJobService.JobStatus.DONE) {
+            writeJson(response, HttpStatus.ACCEPTED, job.view());
+        } else {
+            reportJobs.serve(job, request, response);
+        }
+    }
+
+    // Queue a report (type=summary, or monthly with month=yyyy-MM); poll the returned job or wait for it on /user/queue/reports
+    @PostMapping("/reports")
+    public ResponseEntity<Map<String, Object>> submitReport(@RequestParam(defaultValue = "summary") String type,
+                                                            @RequestParam Map<String, String> params,
+                                                            Authentication auth) {
+        Optional<ReportJobService.ReportType> reportType = ReportJobService.ReportType.parse(type);
+        if (reportType.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unknown report type: " + type));
+        }
+        try {
+            ReportJobService.ReportJob job = reportJobs.submit(reportType.get(), params, auth != null ? auth.getName() : null);
+            return ResponseEntity.accepted()
+                    .header("Location", "/api/analytics/reports/" + job.getId())
+                    .body(job.view());
+        } catch (ReportJobService.QueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
-    // Agent performance leaderboard
+    @GetMapping("/reports/{jobId}")
+    public ResponseEntity<Map<String, Object>> getReportJob(@PathVariable String jobId) {
+        return reportJobs.find(jobId)
+                .map(job -> ResponseEntity.ok(job.view()))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @GetMapping("/reports/{jobId}/file")
+    public void downloadReport(@PathVariable String jobId, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        Optional<ReportJobService.ReportJob> job = reportJobs.find(jobId);
+        if (job.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        } else if (job.get().getStatus() != ReportJobService.JobStatus.DONE) {
+            writeJson(response, HttpStatus.CONFLICT, job.get().view());
+        } else {
+            reportJobs.serve(job.get(), request, response);
+        }
+    }
+
+    // The PDF handlers write the response themselves, including the JSON answers that are not the file
+    private void writeJson(HttpServletResponse response, HttpStatus status, Object body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    // Agent performance leaderboard; days=0 covers all time, X-Total-Count carries the number of agents
     @GetMapping("/agent-performance")
-    public ResponseEntity<List<Map<String, Object>>> getAgentPerformance() {
-        return ResponseEntity.ok(analyticsService.getAgentPerformance());
+    public ResponseEntity<List<Map<String, Object>>> getAgentPerformance(
+            @RequestParam(defaultValue = "0") int days,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        AnalyticsService.Leaderboard board = analyticsService.getAgentPerformance(days, page, Math.max(1, Math.min(size, 200)));
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(board.total()))
+                .body(board.agents());
     }
 
     // Funnel data for Sankey chart
@@ -78,64 +180,16 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsService.getFunnelData());
     }
 
-    // Get dashboard statistics
+    // Get dashboard statistics; served from the in-memory snapshot
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        // User statistics
-        long totalUsers = userRepository.count();
-        long adminCount = userRepository.countByRole(User.Role.ADMIN);
-        long agentCount = userRepository.countByRole(User.Role.AGENT);
-        long clientCount = userRepository.countByRole(User.Role.USER);
-        
-        // Property statistics
-        long totalProperties = propertyRepository.count();
-        long forSaleCount = propertyRepository.countByStatus(Property.PropertyStatus.FOR_SALE);
-        long forRentCount = propertyRepository.countByStatus(Property.PropertyStatus.FOR_RENT);
-        long soldCount = propertyRepository.countByStatus(Property.PropertyStatus.SOLD);
-        long rentedCount = propertyRepository.countByStatus(Property.PropertyStatus.RENTED);
-        
-        // Price statistics
-        BigDecimal avgPrice = propertyRepository.findAveragePrice();
-        BigDecimal minPrice = propertyRepository.findMinPrice();
-        BigDecimal maxPrice = propertyRepository.findMaxPrice();
-        
-        Map<String, Object> usersMap = new HashMap<>();
-        usersMap.put("total", totalUsers);
-        usersMap.put("admins", adminCount);
-        usersMap.put("agents", agentCount);
-        usersMap.put("clients", clientCount);
-        stats.put("users", usersMap);
-
-        Map<String, Object> propsMap = new HashMap<>();
-        propsMap.put("total", totalProperties);
-        propsMap.put("forSale", forSaleCount);
-        propsMap.put("forRent", forRentCount);
-        propsMap.put("sold", soldCount);
-        propsMap.put("rented", rentedCount);
-        stats.put("properties", propsMap);
-
-        Map<String, Object> pricingMap = new HashMap<>();
-        pricingMap.put("average", avgPrice != null ? avgPrice : BigDecimal.ZERO);
-        pricingMap.put("minimum", minPrice != null ? minPrice : BigDecimal.ZERO);
-        pricingMap.put("maximum", maxPrice != null ? maxPrice : BigDecimal.ZERO);
-        stats.put("pricing", pricingMap);
-        
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(dashboardStats.snapshot().dashboard());
     }
 
     // Get property type distribution
     @GetMapping("/property-types")
     public ResponseEntity<Map<String, Long>> getPropertyTypeDistribution() {
-        Map<String, Long> distribution = new HashMap<>();
-        
-        for (Property.PropertyType type : Property.PropertyType.values()) {
-            long count = propertyRepository.countByPropertyType(type);
-            distribution.put(type.name(), count);
-        }
-        
-        return ResponseEntity.ok(distribution);
+        return ResponseEntity.ok(dashboardStats.snapshot().propertyTypes());
     }
 
     // Get properties by city
@@ -1,24 +1,19 @@
 package com.realestate.controller;
 
-import com.realestate.entity.Property;
-import com.realestate.entity.PropertyInquiry;
-import com.realestate.entity.ChatMessage;
-import com.realestate.repository.PropertyInquiryRepository;
-import com.realestate.repository.PropertyRepository;
-import com.realestate.repository.ChatMessageRepository;
+import com.realestate.service.BusinessDataExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/analytics/export")
@@ -26,62 +21,12 @@ import java.util.Map;
 @PreAuthorize("hasRole('ADMIN')")
 public class AnalyticsExportController {
 
-    @Autowired private PropertyRepository propertyRepository;
-    @Autowired private PropertyInquiryRepository inquiryRepository;
-    @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private BusinessDataExportService exportService;
 
-    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
-    // Simple JSON facts for RAG ingestion
-    @GetMapping("/business-data")
-    public ResponseEntity<Map<String, Object>> exportBusinessData() {
-        Map<String, Object> payload = new HashMap<>();
-        List<Map<String, Object>> properties = new ArrayList<>();
-        for (Property p : propertyRepository.findAll()) {
-            Map<String, Object> m = new HashMap<>();
-            m.put("type", "property");
-            m.put("id", p.getId());
-            m.put("title", p.getTitle());
-            m.put("city", p.getCity());
-            m.put("state", p.getState());
-            m.put("price", p.getPrice());
-            m.put("status", p.getStatus() != null ? p.getStatus().name() : null);
-            properties.add(m);
-        }
-        payload.put("properties", properties);
-
-        List<Map<String, Object>> inquiries = new ArrayList<>();
-        for (PropertyInquiry inq : inquiryRepository.findAll()) {
-            Map<String, Object> m = new HashMap<>();
-            m.put("type", "inquiry");
-            m.put("id", inq.getId());
-            m.put("propertyId", inq.getProperty() != null ? inq.getProperty().getId() : null);
-            m.put("clientId", inq.getClient() != null ? inq.getClient().getId() : null);
-            m.put("ownerId", inq.getOwner() != null ? inq.getOwner().getId() : null);
-            m.put("status", inq.getStatus() != null ? inq.getStatus().name() : null);
-            m.put("offeredPrice", inq.getOfferedPrice());
-            m.put("agreedPrice", inq.getAgreedPrice());
-            m.put("createdAt", inq.getCreatedAt() != null ? ISO.format(inq.getCreatedAt()) : null);
-            m.put("updatedAt", inq.getUpdatedAt() != null ? ISO.format(inq.getUpdatedAt()) : null);
-            inquiries.add(m);
-        }
-        payload.put("inquiries", inquiries);
-
-        List<Map<String, Object>> messages = new ArrayList<>();
-        for (ChatMessage msg : chatMessageRepository.findAll()) {
-            Map<String, Object> m = new HashMap<>();
-            m.put("type", "message");
-            m.put("id", msg.getId());
-            m.put("inquiryId", msg.getInquiry() != null ? msg.getInquiry().getId() : null);
-            m.put("senderId", msg.getSender() != null ? msg.getSender().getId() : null);
-            m.put("messageType", msg.getMessageType() != null ? msg.getMessageType().name() : null);
-            m.put("content", msg.getContent());
-            m.put("priceAmount", msg.getPriceAmount());
-            m.put("sentAt", msg.getSentAt() != null ? ISO.format(msg.getSentAt()) : null);
-            messages.add(m);
-        }
-        payload.put("messages", messages);
-
-        return ResponseEntity.ok(payload);
+    // NDJSON facts for RAG ingestion; since= (ISO date-time) limits the export to rows changed after it
+    @GetMapping(value = "/business-data", produces = BusinessDataExportService.CONTENT_TYPE)
+    public void exportBusinessData(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        exportService.export(since, request, response);
     }
 }
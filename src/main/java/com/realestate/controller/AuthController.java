@@ -49,6 +49,7 @@ public class AuthController {
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Invalid email or password");
         }
+    }
     
     /**
      * Login with OTP: expects { email, otpCode }
@@ -2,6 +2,8 @@ package com.realestate.controller;
 
 import com.realestate.entity.*;
 import com.realestate.repository.*;
+import com.realestate.service.OwnerStatsService;
+import com.realestate.service.RevenueAnalyticsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,7 +15,6 @@ import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.PageRequest;
@@ -30,6 +31,8 @@ public class BookingAnalyticsController {
     @Autowired private PropertyRepository propertyRepo;
     @Autowired private UserRepository userRepo;
     @Autowired private BookingReviewRepository reviewRepo;
+    @Autowired private RevenueAnalyticsService revenueAnalytics;
+    @Autowired private OwnerStatsService ownerStats;
 
     // Get dashboard overview stats
     @GetMapping("/overview")
@@ -55,13 +58,12 @@ public class BookingAnalyticsController {
             stats.put("overduePayments", monthlyPaymentRepo.countOverduePayments(LocalDate.now()));
         } else {
             // Owner sees only their bookings
-            stats.put("totalActiveRentBookings", rentBookingRepo.countByOwner_IdAndStatus(currentUser.getId(), RentBooking.BookingStatus.ACTIVE));
-            stats.put("totalActivePgBookings", pgBookingRepo.countByOwner_IdAndStatus(currentUser.getId(), PgBooking.BookingStatus.ACTIVE));
-            stats.put("pendingApprovals", 
-                rentBookingRepo.countByOwner_IdAndStatus(currentUser.getId(), RentBooking.BookingStatus.PENDING_APPROVAL) +
-                pgBookingRepo.countByOwner_IdAndStatus(currentUser.getId(), PgBooking.BookingStatus.PENDING_APPROVAL));
+            OwnerStatsService.OwnerStats owner = ownerStats.stats(currentUser.getId());
+            stats.put("totalActiveRentBookings", owner.activeRentBookings());
+            stats.put("totalActivePgBookings", owner.activePgBookings());
+            stats.put("pendingApprovals", owner.pendingApprovals());
             stats.put("totalRevenue", calculateTotalRevenue(currentUser.getId(), startDate, endDate));
-            stats.put("overduePayments", monthlyPaymentRepo.countOverduePaymentsByOwner(currentUser.getId(), LocalDate.now()));
+            stats.put("overduePayments", owner.unpaidPastDue());
         }
 
         return ResponseEntity.ok(stats);
@@ -78,32 +80,8 @@ public class BookingAnalyticsController {
         User currentUser = userOpt.get();
         Long ownerId = currentUser.getRole() == User.Role.ADMIN ? null : currentUser.getId();
 
-        List<Map<String, Object>> revenueData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
-        
-        for (int i = periods - 1; i >= 0; i--) {
-            LocalDate startDate, endDate;
-            String label;
-            
-            if ("monthly".equals(period)) {
-                startDate = currentDate.minusMonths(i).withDayOfMonth(1);
-                endDate = startDate.plusMonths(1).minusDays(1);
-                label = startDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
-            } else {
-                startDate = currentDate.minusWeeks(i).with(java.time.DayOfWeek.MONDAY);
-                endDate = startDate.plusWeeks(1).minusDays(1);
-                label = "Week " + startDate.format(DateTimeFormatter.ofPattern("MMM dd"));
-            }
-            
-            BigDecimal revenue = calculateTotalRevenue(ownerId, startDate, endDate);
-            
-            Map<String, Object> periodData = new HashMap<>();
-            periodData.put("period", label);
-            periodData.put("revenue", revenue);
-            periodData.put("startDate", startDate);
-            periodData.put("endDate", endDate);
-            revenueData.add(periodData);
-        }
+        List<Map<String, Object>> revenueData = revenueAnalytics.revenue(ownerId,
+                RevenueAnalyticsService.parsePeriod(period), Math.max(1, Math.min(periods, 104)));
 
         return ResponseEntity.ok(revenueData);
     }
@@ -157,11 +135,12 @@ public class BookingAnalyticsController {
             paymentStats.put("pendingAmount", monthlyPaymentRepo.sumPendingAmount());
             paymentStats.put("overdueAmount", monthlyPaymentRepo.sumOverdueAmount());
         } else {
-            paymentStats.put("totalPending", monthlyPaymentRepo.countPendingByOwner(currentUser.getId()));
-            paymentStats.put("totalOverdue", monthlyPaymentRepo.countOverdueByOwner(currentUser.getId()));
-            paymentStats.put("totalPaid", monthlyPaymentRepo.countPaidByOwner(currentUser.getId()));
-            paymentStats.put("pendingAmount", monthlyPaymentRepo.sumPendingAmountByOwner(currentUser.getId()));
-            paymentStats.put("overdueAmount", monthlyPaymentRepo.sumOverdueAmountByOwner(currentUser.getId()));
+            OwnerStatsService.OwnerStats owner = ownerStats.stats(currentUser.getId());
+            paymentStats.put("totalPending", owner.pendingPayments());
+            paymentStats.put("totalOverdue", owner.overduePayments());
+            paymentStats.put("totalPaid", owner.paidPayments());
+            paymentStats.put("pendingAmount", owner.pendingAmount());
+            paymentStats.put("overdueAmount", owner.overdueAmount());
         }
 
         return ResponseEntity.ok(paymentStats);
@@ -194,7 +173,7 @@ public class BookingAnalyticsController {
             
             // Calculate revenue
             BigDecimal propertyRevenue = monthlyPaymentRepo.sumRevenueBetweenForProperty(
-                property.getId(), LocalDate.now().minusMonths(12).atStartOfDay(), LocalDate.now().atTime(23, 59, 59));
+                property.getId(), LocalDate.now().minusMonths(12), LocalDate.now());
             
             // Calculate average rating
             Double avgRating = reviewRepo.calculateAverageRatingForProperty(property.getId());
@@ -276,13 +255,10 @@ public class BookingAnalyticsController {
 
     // Helper methods
     private BigDecimal calculateTotalRevenue(Long ownerId, LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
         if (ownerId != null) {
-            return monthlyPaymentRepo.sumRevenueBetweenForOwner(ownerId, start, end);
+            return monthlyPaymentRepo.sumRevenueBetweenForOwner(ownerId, startDate, endDate);
         } else {
-            return monthlyPaymentRepo.sumRevenueBetween(start, end);
+            return monthlyPaymentRepo.sumRevenueBetween(startDate, endDate);
         }
     }
 
@@ -1,7 +1,14 @@
 package com.realestate.controller;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.realestate.dto.ChatFrames;
 import com.realestate.entity.*;
 import com.realestate.repository.*;
+import com.realestate.service.ChatFrameSender;
+import com.realestate.service.InquiryNegotiationService;
+import com.realestate.service.InquiryNegotiationService.TransitionRejectedException;
+import com.realestate.service.MessageNotificationCoalescer;
+import com.realestate.service.ReadReceiptService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -24,9 +31,12 @@ public class ChatWebSocketController {
     @Autowired private PropertyInquiryRepository inquiryRepo;
     @Autowired private ChatMessageRepository messageRepo;
     @Autowired private UserRepository userRepo;
-    @Autowired private PropertyRepository propertyRepo;
     @Autowired private NotificationRepository notificationRepo;
     @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private MessageNotificationCoalescer notificationCoalescer;
+    @Autowired private ReadReceiptService readReceipts;
+    @Autowired private ChatFrameSender frameSender;
+    @Autowired private InquiryNegotiationService negotiation;
 
     // WebSocket message DTOs
     public static class WebSocketMessage {
@@ -35,6 +45,7 @@ public class ChatWebSocketController {
         private String content;
         private BigDecimal priceAmount;
         private String messageType = "TEXT";
+        private Long expectedVersion;
 
         // Getters and setters
         public String getType() { return type; }
@@ -47,6 +58,8 @@ public class ChatWebSocketController {
         public void setPriceAmount(BigDecimal priceAmount) { this.priceAmount = priceAmount; }
         public String getMessageType() { return messageType; }
         public void setMessageType(String messageType) { this.messageType = messageType; }
+        public Long getExpectedVersion() { return expectedVersion; }
+        public void setExpectedVersion(Long expectedVersion) { this.expectedVersion = expectedVersion; }
     }
 
     public static class TypingIndicator {
@@ -57,6 +70,7 @@ public class ChatWebSocketController {
         public Long getInquiryId() { return inquiryId; }
         public void setInquiryId(Long inquiryId) { this.inquiryId = inquiryId; }
         public boolean isTyping() { return isTyping; }
+        @JsonAlias("isTyping") // the web client sends "isTyping"
         public void setTyping(boolean typing) { isTyping = typing; }
     }
 
@@ -81,54 +95,53 @@ public class ChatWebSocketController {
             User sender = getCurrentUserFromAuth(authentication);
             if (sender == null) return;
 
-            // Verify user has access to this inquiry
-            Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, sender.getId());
-            if (inquiryOpt.isEmpty()) return;
-
-            PropertyInquiry inquiry = inquiryOpt.get();
-            if (!inquiry.canBeModified()) return;
-
-            // Create and save message
             ChatMessage.MessageType messageType = ChatMessage.MessageType.valueOf(wsMessage.getMessageType());
-            ChatMessage message = new ChatMessage(inquiry, sender, messageType, wsMessage.getContent(), wsMessage.getPriceAmount());
-            message = messageRepo.save(message);
-
-            // Update inquiry timestamp and status
-            inquiry.setUpdatedAt(LocalDateTime.now());
-            if (messageType == ChatMessage.MessageType.PRICE_OFFER || messageType == ChatMessage.MessageType.PRICE_COUNTER) {
-                inquiry.setStatus(PropertyInquiry.InquiryStatus.NEGOTIATING);
-                inquiry.setOfferedPrice(wsMessage.getPriceAmount());
-            } else if (messageType == ChatMessage.MessageType.PRICE_ACCEPT) {
-                inquiry.setStatus(PropertyInquiry.InquiryStatus.AGREED);
-                inquiry.setAgreedPrice(wsMessage.getPriceAmount());
+            PropertyInquiry inquiry;
+            ChatMessage message;
+            if (InquiryNegotiationService.isNegotiation(messageType)) {
+                // Offers and answers change the inquiry, so they go through the versioned state machine
+                try {
+                    InquiryNegotiationService.Outcome outcome = negotiation.negotiate(inquiryId, sender, messageType,
+                            wsMessage.getContent(), wsMessage.getPriceAmount(), wsMessage.getExpectedVersion());
+                    inquiry = outcome.inquiry();
+                    message = outcome.message();
+                } catch (TransitionRejectedException e) {
+                    frameSender.sendToUser(sender.getEmail(), "/queue/errors",
+                        new ChatFrames.NegotiationRejected(inquiryId, e.getMessage(), e.isConflict()));
+                    return;
+                }
+            } else {
+                // Verify user has access to this inquiry
+                Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, sender.getId());
+                if (inquiryOpt.isEmpty()) return;
+
+                inquiry = inquiryOpt.get();
+                if (!inquiry.canBeModified()) return;
+
+                message = messageRepo.save(new ChatMessage(inquiry, sender, messageType, wsMessage.getContent(), wsMessage.getPriceAmount()));
+                // Plain messages only bump the timestamp, without touching the negotiation version
+                inquiryRepo.touch(inquiryId, LocalDateTime.now());
             }
-            inquiryRepo.save(inquiry);
 
             // Determine recipient
             User recipient = sender.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner() : inquiry.getClient();
 
             // Send message to recipient via WebSocket
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "NEW_MESSAGE");
-            response.put("inquiryId", inquiryId);
-            response.put("message", message);
-            response.put("senderName", sender.getFirstName() + " " + sender.getLastName());
-
-            messagingTemplate.convertAndSendToUser(
-                recipient.getEmail(),
-                "/queue/messages",
-                response
-            );
+            ChatFrames.NewMessage frame = new ChatFrames.NewMessage(inquiryId, message, sender.getFirstName() + " " + sender.getLastName());
+            if (InquiryNegotiationService.isNegotiation(messageType)) {
+                frame = frame.withVersion(inquiry.getVersion());
+            }
+            frameSender.sendToUser(recipient.getEmail(), "/queue/messages", frame);
 
             // Also send to sender for confirmation
-            messagingTemplate.convertAndSendToUser(
-                sender.getEmail(),
-                "/queue/messages",
-                response
-            );
+            frameSender.sendToUser(sender.getEmail(), "/queue/messages", frame);
 
             // Create notification for recipient
-            createMessageNotification(inquiry, sender, recipient, message);
+            notificationCoalescer.onMessage(inquiry, sender, recipient, message);
+
+            if (messageType == ChatMessage.MessageType.PURCHASE_CONFIRM) {
+                sendAdminSaleNotification(inquiry, inquiry.getProperty());
+            }
 
         } catch (Exception e) {
             System.err.println("Error in WebSocket sendMessage: " + e.getMessage());
@@ -151,17 +164,8 @@ public class ChatWebSocketController {
             User recipient = sender.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner() : inquiry.getClient();
 
             // Send typing indicator to recipient
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "TYPING_INDICATOR");
-            response.put("inquiryId", inquiryId);
-            response.put("isTyping", typingIndicator.isTyping());
-            response.put("senderName", sender.getFirstName() + " " + sender.getLastName());
-
-            messagingTemplate.convertAndSendToUser(
-                recipient.getEmail(),
-                "/queue/typing",
-                response
-            );
+            frameSender.sendToUser(recipient.getEmail(), "/queue/typing",
+                new ChatFrames.Typing(inquiryId, typingIndicator.isTyping(), sender.getFirstName() + " " + sender.getLastName()));
 
         } catch (Exception e) {
             System.err.println("Error in WebSocket handleTyping: " + e.getMessage());
@@ -175,34 +179,31 @@ public class ChatWebSocketController {
             User client = getCurrentUserFromAuth(authentication);
             if (client == null) return;
 
-            // Verify user has access to this inquiry and is the client
-            Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findById(inquiryId);
-            if (inquiryOpt.isEmpty()) return;
-
-            PropertyInquiry inquiry = inquiryOpt.get();
-            if (!inquiry.getClient().getId().equals(client.getId()) || inquiry.getStatus() != PropertyInquiry.InquiryStatus.AGREED) {
-                return;
-            }
+            // Verify user has access to this inquiry
+            if (inquiryRepo.findByIdAndInvolvedUser(inquiryId, client.getId()).isEmpty()) return;
 
-            // Create purchase request message
+            // Create purchase request message; only the client of an AGREED inquiry gets past the state machine
             String content = purchaseRequest.getMessage() != null ? purchaseRequest.getMessage() : 
                            "I would like to purchase this property at the agreed price of ₹" + purchaseRequest.getFinalPrice();
-            
-            ChatMessage purchaseMessage = new ChatMessage(inquiry, client, ChatMessage.MessageType.PURCHASE_REQUEST, content, purchaseRequest.getFinalPrice());
-            purchaseMessage = messageRepo.save(purchaseMessage);
 
-            // Update inquiry status
-            inquiry.setStatus(PropertyInquiry.InquiryStatus.AGREED);
-            inquiry.setAgreedPrice(purchaseRequest.getFinalPrice());
-            inquiry.setUpdatedAt(LocalDateTime.now());
-            inquiryRepo.save(inquiry);
+            InquiryNegotiationService.Outcome outcome;
+            try {
+                outcome = negotiation.negotiate(inquiryId, client, ChatMessage.MessageType.PURCHASE_REQUEST,
+                        content, purchaseRequest.getFinalPrice(), null);
+            } catch (TransitionRejectedException e) {
+                frameSender.sendToUser(client.getEmail(), "/queue/errors",
+                    new ChatFrames.NegotiationRejected(inquiryId, e.getMessage(), e.isConflict()));
+                return;
+            }
+            PropertyInquiry inquiry = outcome.inquiry();
+            ChatMessage purchaseMessage = outcome.message();
 
             // Send to owner via WebSocket
             Map<String, Object> response = new HashMap<>();
             response.put("type", "PURCHASE_REQUEST");
             response.put("inquiryId", inquiryId);
             response.put("message", purchaseMessage);
-            response.put("finalPrice", purchaseRequest.getFinalPrice());
+            response.put("finalPrice", inquiry.getAgreedPrice());
             response.put("clientName", client.getFirstName() + " " + client.getLastName());
 
             messagingTemplate.convertAndSendToUser(
@@ -218,7 +219,7 @@ public class ChatWebSocketController {
             notification.setTitle("Purchase Request Received");
             notification.setBody(client.getFirstName() + " " + client.getLastName() + 
                                " wants to purchase " + inquiry.getProperty().getTitle() + 
-                               " for ₹" + purchaseRequest.getFinalPrice());
+                               " for ₹" + inquiry.getAgreedPrice());
             notification.setLink("/inquiries/" + inquiryId);
             notificationRepo.save(notification);
 
@@ -234,29 +235,26 @@ public class ChatWebSocketController {
             User owner = getCurrentUserFromAuth(authentication);
             if (owner == null) return;
 
-            // Verify user is the owner of this inquiry
-            Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findById(inquiryId);
+            // Verify user has access to this inquiry
+            Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, owner.getId());
             if (inquiryOpt.isEmpty()) return;
 
-            PropertyInquiry inquiry = inquiryOpt.get();
-            if (!inquiry.getOwner().getId().equals(owner.getId())) return;
-
             // Create purchase confirmation message
             String content = confirmRequest.getMessage() != null ? confirmRequest.getMessage() : 
-                           "I confirm the sale of this property for ₹" + inquiry.getAgreedPrice();
-            
-            ChatMessage confirmMessage = new ChatMessage(inquiry, owner, ChatMessage.MessageType.PURCHASE_CONFIRM, content, inquiry.getAgreedPrice());
-            confirmMessage = messageRepo.save(confirmMessage);
-
-            // Update inquiry and property status
-            inquiry.setStatus(PropertyInquiry.InquiryStatus.PURCHASED);
-            inquiry.setUpdatedAt(LocalDateTime.now());
-            inquiryRepo.save(inquiry);
-
-            // Mark property as SOLD
+                           "I confirm the sale of this property for ₹" + inquiryOpt.get().getAgreedPrice();
+
+            // Owner-only, AGREED-only; marks the property SOLD unless another inquiry already sold it
+            InquiryNegotiationService.Outcome outcome;
+            try {
+                outcome = negotiation.negotiate(inquiryId, owner, ChatMessage.MessageType.PURCHASE_CONFIRM, content, null, null);
+            } catch (TransitionRejectedException e) {
+                frameSender.sendToUser(owner.getEmail(), "/queue/errors",
+                    new ChatFrames.NegotiationRejected(inquiryId, e.getMessage(), e.isConflict()));
+                return;
+            }
+            PropertyInquiry inquiry = outcome.inquiry();
+            ChatMessage confirmMessage = outcome.message();
             Property property = inquiry.getProperty();
-            property.setStatus(Property.PropertyStatus.SOLD);
-            propertyRepo.save(property);
 
             // Send confirmation to client via WebSocket
             Map<String, Object> clientResponse = new HashMap<>();
@@ -300,20 +298,11 @@ public class ChatWebSocketController {
             Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, user.getId());
             if (inquiryOpt.isEmpty()) return;
 
-            // Mark messages as read
-            messageRepo.markMessagesAsRead(inquiryId, user.getId(), LocalDateTime.now());
+            // Buffered read mark, written by the next read receipt flush
+            LocalDateTime readAt = readReceipts.markRead(user.getId(), inquiryId);
 
             // Send read confirmation
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "MESSAGES_READ");
-            response.put("inquiryId", inquiryId);
-            response.put("readAt", LocalDateTime.now());
-
-            messagingTemplate.convertAndSendToUser(
-                user.getEmail(),
-                "/queue/read",
-                response
-            );
+            frameSender.sendToUser(user.getEmail(), "/queue/read", new ChatFrames.MessagesRead(inquiryId, readAt));
 
         } catch (Exception e) {
             System.err.println("Error in WebSocket markMessagesAsRead: " + e.getMessage());
@@ -342,37 +331,6 @@ public class ChatWebSocketController {
         }
     }
 
-    private void createMessageNotification(PropertyInquiry inquiry, User sender, User recipient, ChatMessage message) {
-        try {
-            Notification notification = new Notification();
-            notification.setRecipient(recipient);
-            notification.setType(Notification.Type.INQUIRY_UPDATE);
-            notification.setTitle("New message from " + sender.getFirstName() + " " + sender.getLastName());
-            
-            String body = message.getContent();
-            if (body != null && body.length() > 100) {
-                body = body.substring(0, 100) + "...";
-            }
-            notification.setBody(body);
-            notification.setLink("/inquiries/" + inquiry.getId());
-            
-            notificationRepo.save(notification);
-
-            // Send notification via WebSocket
-            Map<String, Object> wsNotification = new HashMap<>();
-            wsNotification.put("type", "MESSAGE_NOTIFICATION");
-            wsNotification.put("notification", notification);
-            
-            messagingTemplate.convertAndSendToUser(
-                recipient.getEmail(),
-                "/queue/notifications",
-                wsNotification
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to create message notification: " + e.getMessage());
-        }
-    }
-
     private void sendAdminSaleNotification(PropertyInquiry inquiry, Property property) {
         try {
             // Find admin users
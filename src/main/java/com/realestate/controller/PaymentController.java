@@ -6,9 +6,9 @@ import com.razorpay.Utils;
 import com.realestate.entity.Property;
 import com.realestate.entity.PropertyInquiry;
 import com.realestate.entity.User;
-import com.realestate.repository.PropertyRepository;
 import com.realestate.repository.PropertyInquiryRepository;
 import com.realestate.repository.UserRepository;
+import com.realestate.service.InquiryNegotiationService;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -33,12 +33,12 @@ public class PaymentController {
     private String razorpayKeySecret;
 
     private final PropertyInquiryRepository inquiryRepo;
-    private final PropertyRepository propertyRepo;
+    private final InquiryNegotiationService negotiation;
     private final WalletController walletController;
 
-    public PaymentController(PropertyInquiryRepository inquiryRepo, PropertyRepository propertyRepo, WalletController walletController) {
+    public PaymentController(PropertyInquiryRepository inquiryRepo, InquiryNegotiationService negotiation, WalletController walletController) {
         this.inquiryRepo = inquiryRepo;
-        this.propertyRepo = propertyRepo;
+        this.negotiation = negotiation;
         this.walletController = walletController;
     }
 
@@ -105,24 +105,27 @@ public class PaymentController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid signature");
             }
 
-            Optional<PropertyInquiry> inqOpt = inquiryRepo.findById(req.inquiryId);
-            if (inqOpt.isEmpty()) return ResponseEntity.notFound().build();
-            PropertyInquiry inq = inqOpt.get();
-            inq.setStatus(PropertyInquiry.InquiryStatus.PURCHASED);
-            inquiryRepo.save(inq);
-
-            // Mark property SOLD
+            // PURCHASED and property SOLD in one versioned transaction; fails if the property was sold elsewhere
+            InquiryNegotiationService.PaymentOutcome outcome;
+            try {
+                outcome = negotiation.completePurchaseFromPayment(req.inquiryId);
+            } catch (InquiryNegotiationService.TransitionRejectedException e) {
+                if (e.isNotFound()) return ResponseEntity.notFound().build();
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            }
+            PropertyInquiry inq = outcome.inquiry();
             Property property = inq.getProperty();
-            property.setStatus(Property.PropertyStatus.SOLD);
-            propertyRepo.save(property);
 
             // Deduct token amount from customer's wallet (optional, if wallet used for record-keeping)
-            try {
-                BigDecimal tokenAmount = new BigDecimal("10000"); // Default token amount (INR)
-                walletController.deductMoney(inq.getClient().getId(), tokenAmount,
-                        "Token payment for property booking - Inquiry #" + inq.getId(),
-                        req.razorpay_payment_id);
-            } catch (Exception ignored) {}
+            // Only the verify that completed the purchase charges; repeated or concurrent ones do not
+            if (outcome.purchased()) {
+                try {
+                    BigDecimal tokenAmount = new BigDecimal("10000"); // Default token amount (INR)
+                    walletController.deductMoney(inq.getClient().getId(), tokenAmount,
+                            "Token payment for property booking - Inquiry #" + inq.getId(),
+                            req.razorpay_payment_id);
+                } catch (Exception ignored) {}
+            }
 
             Map<String, Object> resp = new HashMap<>();
             resp.put("status", "success");
@@ -0,0 +1,30 @@
+package com.realestate.controller;
+
+import com.realestate.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5175", "http://127.0.0.1:5173", "http://127.0.0.1:5175", "https://real-estate-alpha-sandy.vercel.app"})
+public class PresenceController {
+
+    private static final int MAX_USERS = 200;
+
+    @Autowired private PresenceService presenceService;
+
+    // Online flag and last seen time for a set of users, e.g. /api/presence?userIds=1,2,3
+    @GetMapping
+    @PreAuthorize("hasAnyRole('USER','ADMIN','AGENT')")
+    public ResponseEntity<?> getPresence(@RequestParam List<Long> userIds) {
+        if (userIds.size() > MAX_USERS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_USERS + " userIds per request");
+        }
+        return ResponseEntity.ok(presenceService.getPresence(new LinkedHashSet<>(userIds)));
+    }
+}
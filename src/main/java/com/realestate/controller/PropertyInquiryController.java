@@ -1,21 +1,39 @@
 package com.realestate.controller;
 
+import com.realestate.dto.ChatFrames;
+import com.realestate.dto.InquiryDtos;
+import com.realestate.dto.InquiryDtos.ChatMessageDto;
+import com.realestate.dto.InquiryDtos.InquiryDto;
 import com.realestate.dto.SendMessageRequest;
 import com.realestate.entity.*;
 import com.realestate.repository.*;
 import com.realestate.service.AnalyticsBroadcaster;
+import com.realestate.service.ChatArchiveService;
+import com.realestate.service.ChatAttachmentService;
+import com.realestate.service.ChatFrameSender;
+import com.realestate.service.ChatSearchIndex;
+import com.realestate.service.InquiryNegotiationService;
+import com.realestate.service.ReadReceiptService;
+import com.realestate.service.MessageNotificationCoalescer;
 import com.realestate.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -36,47 +54,17 @@ public class PropertyInquiryController {
     @Autowired private NotificationRepository notificationRepo;
     @Autowired private SimpMessagingTemplate messagingTemplate; // For WebSocket messaging
     @Autowired(required = false) private AnalyticsBroadcaster analyticsBroadcaster;
-
-    // DTOs
-    // ---- Lightweight DTOs to ensure stable JSON serialization ----
-    public static class UserDto {
-        public Long id;
-        public String firstName;
-        public String lastName;
-        public String email;
-    }
-
-    public static class PropertyDto {
-        public Long id;
-        public String title;
-        public String imageUrl;
-        public String address;
-        public String city;
-        public String state;
-        public java.math.BigDecimal price;
-    }
-
-    public static class ChatMessageDto {
-        public Long id;
-        public String content;
-        public String messageType;
-        public java.math.BigDecimal priceAmount;
-        public java.time.LocalDateTime sentAt;
-        public boolean isRead;
-        public UserDto sender;
-    }
-
-    public static class InquiryDto {
-        public Long id;
-        public String status;
-        public java.math.BigDecimal agreedPrice;
-        public java.math.BigDecimal offeredPrice;
-        public java.time.LocalDateTime createdAt;
-        public java.time.LocalDateTime updatedAt;
-        public PropertyDto property;
-        public UserDto client;
-        public UserDto owner;
-    }
+    @Autowired private MessageNotificationCoalescer notificationCoalescer;
+    @Autowired private ChatSearchIndex searchIndex;
+    @Autowired private ReadReceiptService readReceipts;
+    @Autowired private ChatArchiveService chatArchiveService;
+    @Autowired private ChatFrameSender frameSender;
+    @Autowired private ChatAttachmentService attachmentService;
+    @Autowired private ChatAttachmentRepository attachmentRepo;
+    @Autowired private InquiryNegotiationService negotiation;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    // DTOs (inquiry, property, user and message views live in com.realestate.dto.InquiryDtos)
     public static class CreateInquiryRequest {
         public Long propertyId;
         public String message;
@@ -129,14 +117,14 @@ public class PropertyInquiryController {
         // Create initial message if provided
         if (request.getMessage() != null && !request.getMessage().trim().isEmpty()) {
             ChatMessage initialMessage = new ChatMessage(inquiry, client, ChatMessage.MessageType.TEXT, request.getMessage());
-            messageRepo.save(initialMessage);
+            initialMessage = messageRepo.save(initialMessage);
         }
 
         // Create price offer message if provided
         if (request.getOfferedPrice() != null) {
             String priceContent = "I would like to offer ₹" + request.getOfferedPrice().toString() + " for this property.";
             ChatMessage priceMessage = new ChatMessage(inquiry, client, ChatMessage.MessageType.PRICE_OFFER, priceContent, request.getOfferedPrice());
-            messageRepo.save(priceMessage);
+            priceMessage = messageRepo.save(priceMessage);
         }
 
         // Send notification to owner via WebSocket
@@ -153,40 +141,10 @@ public class PropertyInquiryController {
         notificationRepo.save(notification);
 
         // Build and return DTO
-        InquiryDto dto = new InquiryDto();
-        dto.id = inquiry.getId();
-        dto.status = inquiry.getStatus() != null ? inquiry.getStatus().name() : null;
-        dto.agreedPrice = inquiry.getAgreedPrice();
-        dto.offeredPrice = inquiry.getOfferedPrice();
-        dto.createdAt = inquiry.getCreatedAt();
-        dto.updatedAt = inquiry.getUpdatedAt();
-        PropertyDto pd = new PropertyDto();
-        pd.id = property.getId();
-        pd.title = property.getTitle();
-        pd.imageUrl = property.getImageUrl();
-        pd.address = property.getAddress();
-        pd.city = property.getCity();
-        pd.state = property.getState();
-        pd.price = property.getPrice();
-        dto.property = pd;
-        UserDto cd = new UserDto();
-        cd.id = client.getId();
-        cd.firstName = client.getFirstName();
-        cd.lastName = client.getLastName();
-        cd.email = client.getEmail();
-        dto.client = cd;
-        User ownerUser = property.getOwner();
-        if (ownerUser != null) {
-            UserDto od = new UserDto();
-            od.id = ownerUser.getId();
-            od.firstName = ownerUser.getFirstName();
-            od.lastName = ownerUser.getLastName();
-            od.email = ownerUser.getEmail();
-            dto.owner = od;
-        }
+        InquiryDto dto = new InquiryDtos.Mapper().inquiry(inquiry);
 
         // Broadcast analytics updates
-        if (analyticsBroadcaster != null) analyticsBroadcaster.broadcastAll();
+        if (analyticsBroadcaster != null) analyticsBroadcaster.markDirty();
         return ResponseEntity.status(HttpStatus.CREATED).body(dto);
     }
 
@@ -201,48 +159,7 @@ public class PropertyInquiryController {
         User user = currentUserOpt.get();
 
         List<PropertyInquiry> inquiries = inquiryRepo.findByClient_IdOrderByUpdatedAtDesc(user.getId());
-        List<InquiryDto> dtos = new java.util.ArrayList<>();
-        for (PropertyInquiry inq : inquiries) {
-            InquiryDto d = new InquiryDto();
-            d.id = inq.getId();
-            d.status = inq.getStatus() != null ? inq.getStatus().name() : null;
-            d.agreedPrice = inq.getAgreedPrice();
-            d.offeredPrice = inq.getOfferedPrice();
-            d.createdAt = inq.getCreatedAt();
-            d.updatedAt = inq.getUpdatedAt();
-            if (inq.getProperty() != null) {
-                Property p = inq.getProperty();
-                PropertyDto pd2 = new PropertyDto();
-                pd2.id = p.getId();
-                pd2.title = p.getTitle();
-                pd2.imageUrl = p.getImageUrl();
-                pd2.address = p.getAddress();
-                pd2.city = p.getCity();
-                pd2.state = p.getState();
-                pd2.price = p.getPrice();
-                d.property = pd2;
-            }
-            if (inq.getClient() != null) {
-                User c2 = inq.getClient();
-                UserDto ud2 = new UserDto();
-                ud2.id = c2.getId();
-                ud2.firstName = c2.getFirstName();
-                ud2.lastName = c2.getLastName();
-                ud2.email = c2.getEmail();
-                d.client = ud2;
-            }
-            if (inq.getOwner() != null) {
-                User o2 = inq.getOwner();
-                UserDto ud3 = new UserDto();
-                ud3.id = o2.getId();
-                ud3.firstName = o2.getFirstName();
-                ud3.lastName = o2.getLastName();
-                ud3.email = o2.getEmail();
-                d.owner = ud3;
-            }
-            dtos.add(d);
-        }
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(InquiryDtos.list(inquiries));
     }
 
     // Get inquiries for properties I own (owner perspective)
@@ -262,48 +179,26 @@ public class PropertyInquiryController {
             inquiries = inquiryRepo.findByOwner_IdOrderByUpdatedAtDesc(owner.getId());
         }
 
-        List<InquiryDto> dtos = new java.util.ArrayList<>();
-        for (PropertyInquiry inq : inquiries) {
-            InquiryDto d = new InquiryDto();
-            d.id = inq.getId();
-            d.status = inq.getStatus() != null ? inq.getStatus().name() : null;
-            d.agreedPrice = inq.getAgreedPrice();
-            d.offeredPrice = inq.getOfferedPrice();
-            d.createdAt = inq.getCreatedAt();
-            d.updatedAt = inq.getUpdatedAt();
-            if (inq.getProperty() != null) {
-                Property p = inq.getProperty();
-                PropertyDto pd2 = new PropertyDto();
-                pd2.id = p.getId();
-                pd2.title = p.getTitle();
-                pd2.imageUrl = p.getImageUrl();
-                pd2.address = p.getAddress();
-                pd2.city = p.getCity();
-                pd2.state = p.getState();
-                pd2.price = p.getPrice();
-                d.property = pd2;
-            }
-            if (inq.getClient() != null) {
-                User c2 = inq.getClient();
-                UserDto ud2 = new UserDto();
-                ud2.id = c2.getId();
-                ud2.firstName = c2.getFirstName();
-                ud2.lastName = c2.getLastName();
-                ud2.email = c2.getEmail();
-                d.client = ud2;
-            }
-            if (inq.getOwner() != null) {
-                User o2 = inq.getOwner();
-                UserDto ud3 = new UserDto();
-                ud3.id = o2.getId();
-                ud3.firstName = o2.getFirstName();
-                ud3.lastName = o2.getLastName();
-                ud3.email = o2.getEmail();
-                d.owner = ud3;
-            }
-            dtos.add(d);
+        return ResponseEntity.ok(InquiryDtos.list(inquiries));
+    }
+
+    // Full-text search over the current user's chat history
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('USER','AGENT','ADMIN')")
+    public ResponseEntity<?> searchMessages(@RequestParam("q") String q,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        Optional<User> currentUserOpt = getCurrentUser();
+        if (currentUserOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        User user = currentUserOpt.get();
+        if (q == null || q.isBlank()) {
+            return ResponseEntity.badRequest().body("Query parameter q is required");
         }
-        return ResponseEntity.ok(dtos);
+
+        Long scope = user.getRole() == User.Role.ADMIN ? null : user.getId();
+        return ResponseEntity.ok(searchIndex.search(q, scope, Math.max(page, 0), Math.min(Math.max(size, 1), 100)));
     }
 
     // Get specific inquiry with messages
@@ -317,9 +212,6 @@ public class PropertyInquiryController {
         }
         User user = currentUserOpt.get();
 
-        // Debug logging
-        System.out.println("DEBUG: User accessing inquiry " + inquiryId + " - ID: " + user.getId() + ", Email: " + user.getEmail() + ", Role: " + user.getRole());
-
         Optional<PropertyInquiry> inquiryOpt;
         if (user.getRole() == User.Role.ADMIN) {
             inquiryOpt = inquiryRepo.findById(inquiryId);
@@ -328,89 +220,62 @@ public class PropertyInquiryController {
         }
 
         if (inquiryOpt.isEmpty()) {
-            // Debug: Check if inquiry exists at all
-            Optional<PropertyInquiry> anyInquiry = inquiryRepo.findById(inquiryId);
-            if (anyInquiry.isPresent()) {
-                PropertyInquiry inquiry = anyInquiry.get();
-                System.out.println("DEBUG: Inquiry exists - Client ID: " + inquiry.getClient().getId() + ", Owner ID: " + inquiry.getOwner().getId() + ", User ID: " + user.getId());
-            } else {
-                System.out.println("DEBUG: Inquiry " + inquiryId + " does not exist");
-            }
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Inquiry not found or access denied");
         }
 
         PropertyInquiry inquiry = inquiryOpt.get();
 
-        // Build Inquiry DTO
-        InquiryDto inquiryDto = new InquiryDto();
-        inquiryDto.id = inquiry.getId();
-        inquiryDto.status = inquiry.getStatus() != null ? inquiry.getStatus().name() : null;
-        inquiryDto.agreedPrice = inquiry.getAgreedPrice();
-        inquiryDto.offeredPrice = inquiry.getOfferedPrice();
-        inquiryDto.createdAt = inquiry.getCreatedAt();
-        inquiryDto.updatedAt = inquiry.getUpdatedAt();
-
-        if (inquiry.getProperty() != null) {
-            Property p = inquiry.getProperty();
-            PropertyDto pd = new PropertyDto();
-            pd.id = p.getId();
-            pd.title = p.getTitle();
-            pd.imageUrl = p.getImageUrl();
-            pd.address = p.getAddress();
-            pd.city = p.getCity();
-            pd.state = p.getState();
-            pd.price = p.getPrice();
-            inquiryDto.property = pd;
-        }
-        if (inquiry.getClient() != null) {
-            User c = inquiry.getClient();
-            UserDto ud = new UserDto();
-            ud.id = c.getId();
-            ud.firstName = c.getFirstName();
-            ud.lastName = c.getLastName();
-            ud.email = c.getEmail();
-            inquiryDto.client = ud;
-        }
-        if (inquiry.getOwner() != null) {
-            User o = inquiry.getOwner();
-            UserDto ud = new UserDto();
-            ud.id = o.getId();
-            ud.firstName = o.getFirstName();
-            ud.lastName = o.getLastName();
-            ud.email = o.getEmail();
-            inquiryDto.owner = ud;
-        }
+        // Build Inquiry DTO; the mapper also shares the two parties' DTOs with every message they sent
+        InquiryDtos.Mapper mapper = new InquiryDtos.Mapper();
+        InquiryDto inquiryDto = mapper.inquiry(inquiry);
 
         // Build Messages DTOs
-        List<ChatMessage> messages = messageRepo.findByInquiry_IdOrderBySentAtAsc(inquiryId);
-        List<ChatMessageDto> messageDtos = new java.util.ArrayList<>();
-        for (ChatMessage m : messages) {
+        // Hot table merged with archived history for long-closed inquiries
+        List<ChatArchiveService.HistoryEntry> history = chatArchiveService.loadHistory(inquiry);
+        List<ChatMessageDto> messageDtos = new java.util.ArrayList<>(history.size());
+        // The other party's read mark may still be waiting for the next flush
+        Long otherPartyId = user.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner().getId() : inquiry.getClient().getId();
+        long otherReadUpTo = readReceipts.pendingReadUpTo(otherPartyId, inquiryId);
+        Map<Long, ChatAttachment> attachments = new HashMap<>();
+        boolean hasAttachments = history.stream().anyMatch(h ->
+                (h.message != null ? h.message.getMessageType() : h.archived.getMessageType()) == ChatMessage.MessageType.ATTACHMENT);
+        if (hasAttachments) {
+            for (ChatAttachment a : attachmentRepo.findByInquiryId(inquiryId)) attachments.put(a.getMessageId(), a);
+        }
+        for (ChatArchiveService.HistoryEntry h : history) {
             ChatMessageDto md = new ChatMessageDto();
-            md.id = m.getId();
-            md.content = m.getContent();
-            md.messageType = m.getMessageType() != null ? m.getMessageType().name() : null;
-            md.priceAmount = m.getPriceAmount();
-            md.sentAt = m.getSentAt();
-            md.isRead = m.isRead();
-            if (m.getSender() != null) {
-                User s = m.getSender();
-                UserDto sd = new UserDto();
-                sd.id = s.getId();
-                sd.firstName = s.getFirstName();
-                sd.lastName = s.getLastName();
-                sd.email = s.getEmail();
-                md.sender = sd;
+            User sender;
+            if (h.message != null) {
+                ChatMessage m = h.message;
+                md.id = m.getId();
+                md.content = m.getContent();
+                md.messageType = m.getMessageType() != null ? m.getMessageType().name() : null;
+                md.priceAmount = m.getPriceAmount();
+                md.sentAt = m.getSentAt();
+                md.isRead = m.isRead() || (m.getId() <= otherReadUpTo && !otherPartyId.equals(m.getSender().getId()));
+                sender = m.getSender();
+            } else {
+                ChatMessageArchive a = h.archived;
+                md.id = a.getId();
+                md.content = a.getContent();
+                md.messageType = a.getMessageType() != null ? a.getMessageType().name() : null;
+                md.priceAmount = a.getPriceAmount();
+                md.sentAt = a.getSentAt();
+                md.isRead = a.isRead();
+                sender = a.getSender();
             }
+            md.attachment = ChatFrames.Attachment.of(attachments.get(md.id));
+            md.sender = mapper.user(sender);
             messageDtos.add(md);
         }
 
-        // Mark messages as read for current user
-        messageRepo.markMessagesAsRead(inquiryId, user.getId(), LocalDateTime.now());
+        // Mark messages as read for current user (buffered, flushed by ReadReceiptService)
+        readReceipts.markRead(user.getId(), inquiryId);
 
         Map<String, Object> response = new HashMap<>();
         response.put("inquiry", inquiryDto);
         response.put("messages", messageDtos);
-        response.put("unreadCount", messageRepo.countUnreadMessages(inquiryId, user.getId()));
+        response.put("unreadCount", readReceipts.countUnread(inquiryId, user.getId()));
 
         return ResponseEntity.ok(response);
     }
@@ -444,61 +309,167 @@ public class PropertyInquiryController {
 
         // Create message
         ChatMessage.MessageType messageType = ChatMessage.MessageType.valueOf(request.getMessageType());
-        ChatMessage message = new ChatMessage(inquiry, sender, messageType, request.getContent(), request.getPriceAmount());
-        message = messageRepo.save(message);
-
-        // Update inquiry timestamp and status if needed
-        inquiry.setUpdatedAt(LocalDateTime.now());
-        if (messageType == ChatMessage.MessageType.PRICE_OFFER || messageType == ChatMessage.MessageType.PRICE_COUNTER) {
-            inquiry.setStatus(PropertyInquiry.InquiryStatus.NEGOTIATING);
+        ChatMessage message;
+        if (InquiryNegotiationService.isNegotiation(messageType)) {
+            // Price and purchase messages change the inquiry under its version check
+            try {
+                InquiryNegotiationService.Outcome outcome = negotiation.negotiate(inquiryId, sender, messageType,
+                        request.getContent(), request.getPriceAmount(), request.getExpectedVersion());
+                inquiry = outcome.inquiry();
+                message = outcome.message();
+            } catch (InquiryNegotiationService.TransitionRejectedException e) {
+                return rejection(e);
+            }
+        } else {
+            message = messageRepo.save(new ChatMessage(inquiry, sender, messageType, request.getContent(), request.getPriceAmount()));
+            inquiryRepo.touch(inquiryId, LocalDateTime.now());
         }
-        inquiryRepo.save(inquiry);
         // Broadcast analytics updates
-        if (analyticsBroadcaster != null) analyticsBroadcaster.broadcastAll();
+        if (analyticsBroadcaster != null) analyticsBroadcaster.markDirty();
 
         // Send real-time message via WebSocket
         User recipient = sender.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner() : inquiry.getClient();
         sendMessageViaWebSocket(inquiryId, message, recipient);
 
         // Create notification for recipient
-        createMessageNotification(inquiry, sender, recipient, message);
+        notificationCoalescer.onMessage(inquiry, sender, recipient, message);
 
         return ResponseEntity.ok(message);
     }
 
-    // Update inquiry status
-    @PatchMapping("/{inquiryId}/status")
+    // Upload a chat attachment. The file is the raw request body (not multipart) and is streamed to disk, e.g.
+    // POST /api/inquiries/{id}/attachments?fileName=floor-plan.pdf with Content-Type: application/pdf
+    @PostMapping("/{inquiryId}/attachments")
     @PreAuthorize("hasAnyRole('USER','AGENT','ADMIN')")
-    public ResponseEntity<?> updateInquiryStatus(@PathVariable Long inquiryId, @RequestParam String status) {
+    public ResponseEntity<?> uploadAttachment(@PathVariable Long inquiryId, @RequestParam String fileName, HttpServletRequest request) {
         Optional<User> currentUserOpt = getCurrentUser();
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
+        User sender = currentUserOpt.get();
+
+        // Only the two participants can share files
+        Optional<PropertyInquiry> inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, sender.getId());
+        if (inquiryOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Inquiry not found or access denied");
+        }
+        PropertyInquiry inquiry = inquiryOpt.get();
+        if (!inquiry.canBeModified()) {
+            return ResponseEntity.badRequest().body("Cannot send messages to this inquiry");
+        }
+
+        String contentType = normalizeContentType(request.getContentType());
+        if (contentType.startsWith("multipart/")) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Send the file as the raw request body");
+        }
+        if (request.getContentLengthLong() > attachmentService.getMaxBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Attachment exceeds the " + attachmentService.getMaxBytes() + " byte limit");
+        }
+
+        ChatAttachmentService.StagedFile staged;
+        try (InputStream in = request.getInputStream()) {
+            staged = attachmentService.stage(in);
+        } catch (ChatAttachmentService.TooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Failed to store attachment: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store attachment");
+        }
+
+        // Both rows commit together, and the file only moves into the store after they have
+        String name = sanitizeFileName(fileName);
+        ChatMessage[] saved = new ChatMessage[1];
+        ChatAttachment attachment;
+        try {
+            attachment = new TransactionTemplate(transactionManager).execute(status -> {
+                saved[0] = messageRepo.save(new ChatMessage(inquiry, sender, ChatMessage.MessageType.ATTACHMENT, name));
+                return attachmentRepo.save(new ChatAttachment(saved[0].getId(), inquiryId, sender.getId(),
+                        staged.sha256(), name, contentType, staged.size()));
+            });
+        } catch (RuntimeException e) {
+            attachmentService.discard(staged);
+            System.err.println("Failed to save attachment: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store attachment");
+        }
+        ChatMessage message = saved[0];
+        try {
+            attachmentService.commit(staged);
+        } catch (IOException e) {
+            // Take the rows back out rather than leave a message whose file cannot be downloaded
+            System.err.println("Failed to store attachment: " + e.getMessage());
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                attachmentRepo.delete(attachment);
+                messageRepo.delete(message);
+            });
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store attachment");
+        }
+
+        inquiryRepo.touch(inquiryId, LocalDateTime.now());
+
+        User recipient = sender.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner() : inquiry.getClient();
+        try {
+            frameSender.sendToUser(recipient.getEmail(), "/queue/messages",
+                new ChatFrames.NewMessage(inquiryId, message, attachment, sender.getFirstName() + " " + sender.getLastName()));
+        } catch (Exception e) {
+            System.err.println("Failed to send WebSocket message: " + e.getMessage());
+        }
+        notificationCoalescer.onMessage(inquiry, sender, recipient, message);
+
+        return ResponseEntity.ok(ChatFrames.MessageView.of(message, attachment));
+    }
+
+    // Download an attachment (supports Range requests)
+    @GetMapping("/{inquiryId}/attachments/{attachmentId}")
+    @PreAuthorize("hasAnyRole('USER','AGENT','ADMIN')")
+    public void downloadAttachment(@PathVariable Long inquiryId, @PathVariable Long attachmentId,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<User> currentUserOpt = getCurrentUser();
+        if (currentUserOpt.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
         User user = currentUserOpt.get();
 
-        Optional<PropertyInquiry> inquiryOpt;
-        if (user.getRole() == User.Role.ADMIN) {
-            inquiryOpt = inquiryRepo.findById(inquiryId);
-        } else {
-            inquiryOpt = inquiryRepo.findByIdAndInvolvedUser(inquiryId, user.getId());
+        boolean allowed = user.getRole() == User.Role.ADMIN
+                ? inquiryRepo.existsById(inquiryId)
+                : inquiryRepo.findByIdAndInvolvedUser(inquiryId, user.getId()).isPresent();
+        Optional<ChatAttachment> attachmentOpt = allowed ? attachmentRepo.findByIdAndInquiryId(attachmentId, inquiryId) : Optional.empty();
+        if (attachmentOpt.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Attachment not found or access denied");
+            return;
         }
 
-        if (inquiryOpt.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Inquiry not found or access denied");
+        attachmentService.serve(attachmentOpt.get(), request, response);
+    }
+
+    // Update inquiry status
+    @PatchMapping("/{inquiryId}/status")
+    @PreAuthorize("hasAnyRole('USER','AGENT','ADMIN')")
+    public ResponseEntity<?> updateInquiryStatus(@PathVariable Long inquiryId, @RequestParam String status) {
+        Optional<User> currentUserOpt = getCurrentUser();
+        if (currentUserOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
+        User user = currentUserOpt.get();
 
-        PropertyInquiry inquiry = inquiryOpt.get();
         PropertyInquiry.InquiryStatus newStatus = PropertyInquiry.InquiryStatus.valueOf(status);
-        
-        inquiry.setStatus(newStatus);
-        inquiry = inquiryRepo.save(inquiry);
+
+        // Access, allowed transitions and the SOLD guard are checked by the negotiation state machine
+        PropertyInquiry inquiry;
+        try {
+            inquiry = negotiation.changeStatus(inquiryId, user, newStatus);
+        } catch (InquiryNegotiationService.TransitionRejectedException e) {
+            return rejection(e);
+        }
 
         // Send status update via WebSocket
         User otherParty = user.getId().equals(inquiry.getClient().getId()) ? inquiry.getOwner() : inquiry.getClient();
         sendStatusUpdateViaWebSocket(inquiryId, newStatus, otherParty);
 
         // Broadcast analytics updates
-        if (analyticsBroadcaster != null) analyticsBroadcaster.broadcastAll();
+        if (analyticsBroadcaster != null) analyticsBroadcaster.markDirty();
         return ResponseEntity.ok(inquiry);
     }
 
@@ -512,13 +483,32 @@ public class PropertyInquiryController {
         }
         User user = currentUserOpt.get();
 
-        Long unreadCount = messageRepo.countTotalUnreadMessagesForUser(user.getId());
+        // Served from the in-memory counters; later changes are pushed to /user/queue/unread
+        long unreadCount = readReceipts.countTotalUnread(user.getId(), user.getEmail());
         Map<String, Object> response = new HashMap<>();
         response.put("unreadCount", unreadCount);
         
         return ResponseEntity.ok(response);
     }
 
+    // Unread message counts per inquiry, plus the total
+    @GetMapping("/unread")
+    @PreAuthorize("hasAnyRole('USER','AGENT','ADMIN')")
+    public ResponseEntity<?> getUnreadByInquiry() {
+        Optional<User> currentUserOpt = getCurrentUser();
+        if (currentUserOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        User user = currentUserOpt.get();
+
+        Map<Long, Long> perInquiry = readReceipts.countUnreadByInquiry(user.getId(), user.getEmail());
+        Map<String, Object> response = new HashMap<>();
+        response.put("unreadCount", perInquiry.values().stream().mapToLong(Long::longValue).sum());
+        response.put("inquiries", perInquiry);
+        
+        return ResponseEntity.ok(response);
+    }
+
     // Helper methods
     private Optional<User> getCurrentUser() {
         try {
@@ -536,6 +526,19 @@ public class PropertyInquiryController {
         }
     }
 
+    private static String normalizeContentType(String contentType) {
+        if (contentType == null) return "application/octet-stream";
+        String type = contentType.split(";", 2)[0].trim().toLowerCase(java.util.Locale.ROOT);
+        return type.matches("[a-z0-9.+-]+/[a-z0-9.+-]+") ? type : "application/octet-stream";
+    }
+
+    private static String sanitizeFileName(String fileName) {
+        String name = fileName == null ? "" : fileName.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1).replaceAll("[\\p{Cntrl}\"]", "").trim();
+        if (name.isEmpty()) name = "attachment";
+        return name.length() > 255 ? name.substring(name.length() - 255) : name;
+    }
+
     private void sendNotificationToOwner(PropertyInquiry inquiry, String message) {
         try {
             Map<String, Object> notification = new HashMap<>();
@@ -557,16 +560,9 @@ public class PropertyInquiryController {
 
     private void sendMessageViaWebSocket(Long inquiryId, ChatMessage message, User recipient) {
         try {
-            Map<String, Object> wsMessage = new HashMap<>();
-            wsMessage.put("type", "NEW_MESSAGE");
-            wsMessage.put("inquiryId", inquiryId);
-            wsMessage.put("message", message);
-            
-            messagingTemplate.convertAndSendToUser(
-                recipient.getEmail(),
-                "/queue/messages",
-                wsMessage
-            );
+            User sender = message.getSender();
+            frameSender.sendToUser(recipient.getEmail(), "/queue/messages",
+                new ChatFrames.NewMessage(inquiryId, message, sender.getFirstName() + " " + sender.getLastName()));
         } catch (Exception e) {
             System.err.println("Failed to send WebSocket message: " + e.getMessage());
         }
@@ -589,34 +585,9 @@ public class PropertyInquiryController {
         }
     }
 
-    private void createMessageNotification(PropertyInquiry inquiry, User sender, User recipient, ChatMessage message) {
-        try {
-            Notification notification = new Notification();
-            notification.setRecipient(recipient);
-            notification.setType(Notification.Type.INQUIRY_UPDATE);
-            notification.setTitle("New message from " + sender.getFirstName() + " " + sender.getLastName());
-            
-            String body = message.getContent();
-            if (body.length() > 100) {
-                body = body.substring(0, 100) + "...";
-            }
-            notification.setBody(body);
-            notification.setLink("/inquiries/" + inquiry.getId());
-            
-            notificationRepo.save(notification);
-
-            // Send notification via WebSocket
-            Map<String, Object> wsNotification = new HashMap<>();
-            wsNotification.put("type", "MESSAGE_NOTIFICATION");
-            wsNotification.put("notification", notification);
-            
-            messagingTemplate.convertAndSendToUser(
-                recipient.getEmail(),
-                "/queue/notifications",
-                wsNotification
-            );
-        } catch (Exception e) {
-            System.err.println("Failed to create message notification: " + e.getMessage());
-        }
+    // 404 when the inquiry is missing or the user is not a party, 409 when newer state won, 400 otherwise
+    private static ResponseEntity<String> rejection(InquiryNegotiationService.TransitionRejectedException e) {
+        HttpStatus status = e.isNotFound() ? HttpStatus.NOT_FOUND : e.isConflict() ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(e.getMessage());
     }
 }
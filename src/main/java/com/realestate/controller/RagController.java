@@ -1,5 +1,7 @@
 package com.realestate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.realestate.service.RagService;
 import okhttp3.OkHttpClient;
@@ -15,6 +17,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -43,12 +48,36 @@ public class RagController {
         return ResponseEntity.ok(ragService.query(question));
     }
 
+    // The export is NDJSON (one fact per line, see BusinessDataExportService); lines are grouped by type
+    // into the properties/inquiries/messages lists RagService ingests
     private Map<String, Object> fetchBusinessFacts() throws IOException {
         String url = backendBase.replaceAll("/+$", "") + "/api/analytics/export/business-data";
         Request req = new Request.Builder().url(url).get().build();
         try (Response resp = http.newCall(req).execute()) {
             if (!resp.isSuccessful()) throw new IOException("Failed to fetch business-data: " + resp.code());
-            return objectMapper.readValue(resp.body().byteStream(), Map.class);
+            Map<String, List<Map<String, Object>>> byType = new HashMap<>();
+            boolean complete = false;
+            try (MappingIterator<Map<String, Object>> lines = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {})
+                    .readValues(resp.body().byteStream())) {
+                while (lines.hasNext()) {
+                    Map<String, Object> line = lines.next();
+                    String type = String.valueOf(line.get("type"));
+                    if ("export".equals(type)) {
+                        complete = true;
+                        continue;
+                    }
+                    String key = switch (type) {
+                        case "property" -> "properties";
+                        case "inquiry" -> "inquiries";
+                        case "message" -> "messages";
+                        default -> null;
+                    };
+                    if (key != null) byType.computeIfAbsent(key, k -> new ArrayList<>()).add(line);
+                }
+            }
+            // The summary line comes last; without it the stream was cut off
+            if (!complete) throw new IOException("Business-data export ended before its summary line");
+            return new HashMap<>(byType);
         }
     }
 
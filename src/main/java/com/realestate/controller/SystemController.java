@@ -1,6 +1,10 @@
 package com.realestate.controller;
 
+import com.realestate.config.StompChannelMetrics;
+import com.realestate.config.StompFloodControl;
+import com.realestate.service.InquiryStaleSweeper;
 import com.realestate.service.MailService;
+import com.realestate.service.UnreadCounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +20,18 @@ public class SystemController {
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private StompChannelMetrics channelMetrics;
+
+    @Autowired
+    private StompFloodControl floodControl;
+
+    @Autowired
+    private UnreadCounterService unreadCounters;
+
+    @Autowired
+    private InquiryStaleSweeper staleSweeper;
+
     public static class TestEmailRequest {
         public String to;
         public String subject;
@@ -33,4 +49,21 @@ public class SystemController {
         mailService.sendSimple(req.to, subject, text);
         return ResponseEntity.ok(Map.of("status", "sent"));
     }
+
+    // STOMP channel queue depth, latency, dropped frames and flood control drops
+    @GetMapping("/websocket-metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> websocketMetrics() {
+        Map<String, Object> metrics = channelMetrics.snapshot();
+        metrics.put("floodControl", floodControl.snapshot());
+        metrics.put("unreadCounters", unreadCounters.snapshot());
+        return ResponseEntity.ok(metrics);
+    }
+
+    // Last stale inquiry sweep: rows scanned, expired and reminded, duration and watermarks
+    @GetMapping("/stale-inquiries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> staleInquirySweep() {
+        return ResponseEntity.ok(staleSweeper.snapshot());
+    }
 }
@@ -0,0 +1,93 @@
+package com.realestate.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.realestate.entity.ChatAttachment;
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Typed WebSocket chat frames. Field names match the maps the controllers used to send,
+ * so JSON clients see the same shape; the message itself is a flat view instead of the entity.
+ */
+public final class ChatFrames {
+
+    private ChatFrames() {}
+
+    public record Sender(Long id, String firstName, String lastName) {
+        public static Sender of(User user) {
+            return user == null ? null : new Sender(user.getId(), user.getFirstName(), user.getLastName());
+        }
+    }
+
+    public record Attachment(Long id, String fileName, String contentType, long size) {
+        public static Attachment of(ChatAttachment a) {
+            return a == null ? null : new Attachment(a.getId(), a.getFileName(), a.getContentType(), a.getSizeBytes());
+        }
+    }
+
+    public record MessageView(Long id, String content, String messageType, BigDecimal priceAmount,
+                              LocalDateTime sentAt, @JsonProperty("isRead") boolean isRead, Sender sender,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) Attachment attachment) {
+        public static MessageView of(ChatMessage m) {
+            return of(m, null);
+        }
+
+        public static MessageView of(ChatMessage m, ChatAttachment attachment) {
+            return new MessageView(m.getId(), m.getContent(),
+                    m.getMessageType() != null ? m.getMessageType().name() : null,
+                    m.getPriceAmount(), m.getSentAt(), m.isRead(), Sender.of(m.getSender()), Attachment.of(attachment));
+        }
+    }
+
+    // inquiryVersion is set on negotiation messages so clients can send it back as expectedVersion
+    public record NewMessage(String type, Long inquiryId, MessageView message, String senderName,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) Long inquiryVersion) {
+        public NewMessage(Long inquiryId, ChatMessage message, String senderName) {
+            this("NEW_MESSAGE", inquiryId, MessageView.of(message), senderName, null);
+        }
+
+        public NewMessage(Long inquiryId, ChatMessage message, ChatAttachment attachment, String senderName) {
+            this("NEW_MESSAGE", inquiryId, MessageView.of(message, attachment), senderName, null);
+        }
+
+        public NewMessage withVersion(long version) {
+            return new NewMessage(type, inquiryId, message, senderName, version);
+        }
+    }
+
+    public record NegotiationRejected(String type, Long inquiryId, String reason, boolean conflict) {
+        public NegotiationRejected(Long inquiryId, String reason, boolean conflict) {
+            this("NEGOTIATION_REJECTED", inquiryId, reason, conflict);
+        }
+    }
+
+    // Pushed on /user/queue/errors when flood control turns away a frame that carried a message or an action
+    public record RateLimited(String type, Long inquiryId, String destination, long retryAfterMs) {
+        public RateLimited(Long inquiryId, String destination, long retryAfterMs) {
+            this("RATE_LIMITED", inquiryId, destination, retryAfterMs);
+        }
+    }
+
+    public record Typing(String type, Long inquiryId, @JsonProperty("isTyping") boolean isTyping, String senderName) {
+        public Typing(Long inquiryId, boolean isTyping, String senderName) {
+            this("TYPING_INDICATOR", inquiryId, isTyping, senderName);
+        }
+    }
+
+    // Pushed on /user/queue/unread whenever the user's unread count for an inquiry changes
+    public record UnreadCount(String type, long total, Long inquiryId, long inquiryUnread) {
+        public UnreadCount(long total, Long inquiryId, long inquiryUnread) {
+            this("UNREAD_COUNT", total, inquiryId, inquiryUnread);
+        }
+    }
+
+    public record MessagesRead(String type, Long inquiryId, LocalDateTime readAt) {
+        public MessagesRead(Long inquiryId, LocalDateTime readAt) {
+            this("MESSAGES_READ", inquiryId, readAt);
+        }
+    }
+}
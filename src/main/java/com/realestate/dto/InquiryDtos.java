@@ -0,0 +1,118 @@
+package com.realestate.dto;
+
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lightweight inquiry DTOs with stable JSON, and the mapping from entities.
+ * A Mapper lives for one response: every user and property is mapped once and the same DTO is shared
+ * by all rows that reference it.
+ */
+public final class InquiryDtos {
+
+    private InquiryDtos() {}
+
+    public static class UserDto {
+        public Long id;
+        public String firstName;
+        public String lastName;
+        public String email;
+    }
+
+    public static class PropertyDto {
+        public Long id;
+        public String title;
+        public String imageUrl;
+        public String address;
+        public String city;
+        public String state;
+        public BigDecimal price;
+    }
+
+    public static class ChatMessageDto {
+        public Long id;
+        public String content;
+        public String messageType;
+        public BigDecimal priceAmount;
+        public LocalDateTime sentAt;
+        public boolean isRead;
+        public UserDto sender;
+        public ChatFrames.Attachment attachment; // ATTACHMENT messages only
+    }
+
+    public static class InquiryDto {
+        public Long id;
+        public String status;
+        public BigDecimal agreedPrice;
+        public BigDecimal offeredPrice;
+        public long version; // send back as expectedVersion with the next offer
+        public LocalDateTime createdAt;
+        public LocalDateTime updatedAt;
+        public PropertyDto property;
+        public UserDto client;
+        public UserDto owner;
+    }
+
+    public static final class Mapper {
+        private final Map<Long, UserDto> users = new HashMap<>();
+        private final Map<Long, PropertyDto> properties = new HashMap<>();
+
+        public UserDto user(User u) {
+            if (u == null) return null;
+            return users.computeIfAbsent(u.getId(), id -> {
+                UserDto d = new UserDto();
+                d.id = id;
+                d.firstName = u.getFirstName();
+                d.lastName = u.getLastName();
+                d.email = u.getEmail();
+                return d;
+            });
+        }
+
+        public PropertyDto property(Property p) {
+            if (p == null) return null;
+            return properties.computeIfAbsent(p.getId(), id -> {
+                PropertyDto d = new PropertyDto();
+                d.id = id;
+                d.title = p.getTitle();
+                d.imageUrl = p.getImageUrl();
+                d.address = p.getAddress();
+                d.city = p.getCity();
+                d.state = p.getState();
+                d.price = p.getPrice();
+                return d;
+            });
+        }
+
+        public InquiryDto inquiry(PropertyInquiry inq) {
+            InquiryDto d = new InquiryDto();
+            d.id = inq.getId();
+            d.status = inq.getStatus() != null ? inq.getStatus().name() : null;
+            d.agreedPrice = inq.getAgreedPrice();
+            d.offeredPrice = inq.getOfferedPrice();
+            d.version = inq.getVersion();
+            d.createdAt = inq.getCreatedAt();
+            d.updatedAt = inq.getUpdatedAt();
+            d.property = property(inq.getProperty());
+            d.client = user(inq.getClient());
+            d.owner = user(inq.getOwner());
+            return d;
+        }
+    }
+
+    /** Inquiry list response: one Mapper for all rows, so users and properties are mapped once. */
+    public static List<InquiryDto> list(List<PropertyInquiry> inquiries) {
+        Mapper mapper = new Mapper();
+        List<InquiryDto> dtos = new ArrayList<>(inquiries.size());
+        for (PropertyInquiry inq : inquiries) dtos.add(mapper.inquiry(inq));
+        return dtos;
+    }
+}
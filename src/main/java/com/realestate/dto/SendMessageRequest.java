@@ -14,6 +14,8 @@ public class SendMessageRequest {
     
     private BigDecimal priceAmount; // Optional, for price-related messages
     
+    private Long expectedVersion; // Optional, inquiry version the offer was made against
+    
     // Constructors
     public SendMessageRequest() {}
     
@@ -51,4 +53,12 @@ public class SendMessageRequest {
     public void setPriceAmount(BigDecimal priceAmount) {
         this.priceAmount = priceAmount;
     }
+    
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+    
+    public void setExpectedVersion(Long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
 }
@@ -0,0 +1,47 @@
+package com.realestate.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One day of one analytics metric for one dimension value ("all" for the overall total),
+ * maintained by DailyRollupService.
+ */
+@Entity
+@Table(name = "analytics_daily_rollup", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_rollup_metric_dimension_day", columnNames = {"metric", "dimension", "rollup_day"})
+})
+public class AnalyticsDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false, length = 40)
+    private String metric;
+
+    @Column(nullable = false, length = 120)
+    private String dimension;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    @Column(precision = 19, scale = 2, nullable = false)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    public Long getId() { return id; }
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+    public String getMetric() { return metric; }
+    public void setMetric(String metric) { this.metric = metric; }
+    public String getDimension() { return dimension; }
+    public void setDimension(String dimension) { this.dimension = dimension; }
+    public long getEventCount() { return eventCount; }
+    public void setEventCount(long eventCount) { this.eventCount = eventCount; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+}
@@ -0,0 +1,76 @@
+package com.realestate.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * File attached to an ATTACHMENT chat message. The bytes live in the content-addressed attachment
+ * store under their SHA-256, so the same file uploaded twice is stored once.
+ * Message and inquiry are plain ids: the message row may later move to chat_messages_archive.
+ */
+@Entity
+@Table(name = "chat_attachments", indexes = {
+    @Index(name = "idx_chat_attachment_inquiry", columnList = "inquiry_id"),
+    @Index(name = "idx_chat_attachment_message", columnList = "message_id"),
+    @Index(name = "idx_chat_attachment_sha256", columnList = "sha256")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ChatAttachment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "inquiry_id", nullable = false)
+    private Long inquiryId;
+
+    @Column(name = "uploaded_by", nullable = false)
+    private Long uploadedBy;
+
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "content_type", nullable = false, length = 127)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public ChatAttachment() {}
+
+    public ChatAttachment(Long messageId, Long inquiryId, Long uploadedBy, String sha256, String fileName,
+                          String contentType, long sizeBytes) {
+        this.messageId = messageId;
+        this.inquiryId = inquiryId;
+        this.uploadedBy = uploadedBy;
+        this.sha256 = sha256;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Long getId() { return id; }
+    public Long getMessageId() { return messageId; }
+    public Long getInquiryId() { return inquiryId; }
+    public Long getUploadedBy() { return uploadedBy; }
+    public String getSha256() { return sha256; }
+    public String getFileName() { return fileName; }
+    public String getContentType() { return contentType; }
+    public long getSizeBytes() { return sizeBytes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
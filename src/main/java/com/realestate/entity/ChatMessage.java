@@ -18,7 +18,8 @@ public class ChatMessage {
         PRICE_REJECT,   // Price rejection
         SYSTEM,         // System generated message
         PURCHASE_REQUEST, // Client wants to purchase at agreed price
-        PURCHASE_CONFIRM  // Owner confirms purchase
+        PURCHASE_CONFIRM, // Owner confirms purchase
+        ATTACHMENT        // File shared in the chat, see ChatAttachment
     }
 
     @Id
@@ -33,8 +34,9 @@ public class ChatMessage {
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender; // Who sent this message
 
+    // varchar rather than a MySQL ENUM, which ddl-auto=update would never widen for new values
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "varchar(32)")
     private MessageType messageType = MessageType.TEXT;
 
     @Column(name = "content", columnDefinition = "TEXT")
@@ -0,0 +1,78 @@
+package com.realestate.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a chat message from a closed inquiry.
+ * Rows are moved here by ChatArchiveService, keep their original id and are never updated.
+ */
+@Entity
+@Table(name = "chat_messages_archive", indexes = {
+    @Index(name = "idx_chat_archive_inquiry", columnList = "inquiry_id, sent_at")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ChatMessageArchive {
+
+    @Id
+    private Long id; // Same id the message had in chat_messages
+
+    @Column(name = "inquiry_id", nullable = false, updatable = false)
+    private Long inquiryId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sender_id", nullable = false, updatable = false)
+    private User sender;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, columnDefinition = "varchar(32)")
+    private ChatMessage.MessageType messageType;
+
+    @Column(name = "content", columnDefinition = "TEXT", updatable = false)
+    private String content;
+
+    @Column(name = "price_amount", updatable = false)
+    private BigDecimal priceAmount;
+
+    @Column(name = "sent_at", nullable = false, updatable = false)
+    private LocalDateTime sentAt;
+
+    @Column(name = "read_at", updatable = false)
+    private LocalDateTime readAt;
+
+    @Column(name = "is_read", nullable = false, updatable = false)
+    private boolean isRead;
+
+    @Column(name = "archived_at", nullable = false, updatable = false)
+    private LocalDateTime archivedAt;
+
+    // Constructors
+    public ChatMessageArchive() {}
+
+    public ChatMessageArchive(ChatMessage message, Long inquiryId) {
+        this.id = message.getId();
+        this.inquiryId = inquiryId;
+        this.sender = message.getSender();
+        this.messageType = message.getMessageType();
+        this.content = message.getContent();
+        this.priceAmount = message.getPriceAmount();
+        this.sentAt = message.getSentAt();
+        this.readAt = message.getReadAt();
+        this.isRead = message.isRead();
+        this.archivedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getInquiryId() { return inquiryId; }
+    public User getSender() { return sender; }
+    public ChatMessage.MessageType getMessageType() { return messageType; }
+    public String getContent() { return content; }
+    public BigDecimal getPriceAmount() { return priceAmount; }
+    public LocalDateTime getSentAt() { return sentAt; }
+    public LocalDateTime getReadAt() { return readAt; }
+    public boolean isRead() { return isRead; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+}
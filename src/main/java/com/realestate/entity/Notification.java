@@ -31,6 +31,9 @@ public class Notification {
     @Column(name = "is_read", nullable = false)
     private boolean read = false;
 
+    @Column(name = "event_count")
+    private Integer eventCount = 1; // number of events merged into this notification
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -54,5 +57,7 @@ public class Notification {
     public void setLink(String link) { this.link = link; }
     public boolean isRead() { return read; }
     public void setRead(boolean read) { this.read = read; }
+    public int getEventCount() { return eventCount != null ? eventCount : 1; }
+    public void setEventCount(Integer eventCount) { this.eventCount = eventCount; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 }
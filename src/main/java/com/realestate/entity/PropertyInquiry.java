@@ -7,7 +7,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "property_inquiries")
+@Table(name = "property_inquiries", indexes = {
+    @Index(name = "idx_inquiry_status_updated", columnList = "status, updated_at, id"),
+    @Index(name = "idx_inquiry_updated", columnList = "updated_at, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class PropertyInquiry {
     
@@ -58,6 +61,17 @@ public class PropertyInquiry {
     @Column(name = "closed_at")
     private LocalDateTime closedAt;
 
+    // Optimistic lock for negotiation state, see InquiryNegotiationService
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    @Column(name = "nudged_at")
+    private LocalDateTime nudgedAt; // last stale reminder, see InquiryStaleSweeper
+
+    @Column(name = "last_offer_by")
+    private Long lastOfferBy; // User id of whoever made the current offeredPrice
+
     // One inquiry can have many chat messages
     @OneToMany(mappedBy = "inquiry", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ChatMessage> messages;
@@ -83,6 +97,7 @@ public class PropertyInquiry {
         this.owner = owner;
         this.initialMessage = initialMessage;
         this.offeredPrice = offeredPrice;
+        if (offeredPrice != null && client != null) this.lastOfferBy = client.getId(); // the opening offer is the client's
         this.status = InquiryStatus.ACTIVE;
     }
 
@@ -178,6 +193,18 @@ public class PropertyInquiry {
         this.closedAt = closedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Long getLastOfferBy() {
+        return lastOfferBy;
+    }
+
+    public void setLastOfferBy(Long lastOfferBy) {
+        this.lastOfferBy = lastOfferBy;
+    }
+
     public List<ChatMessage> getMessages() {
         return messages;
     }
@@ -191,6 +218,14 @@ public class PropertyInquiry {
         return status == InquiryStatus.ACTIVE || status == InquiryStatus.NEGOTIATING;
     }
 
+    public LocalDateTime getNudgedAt() {
+        return nudgedAt;
+    }
+
+    public void setNudgedAt(LocalDateTime nudgedAt) {
+        this.nudgedAt = nudgedAt;
+    }
+
     public boolean canBeModified() {
         return status != InquiryStatus.PURCHASED && status != InquiryStatus.CANCELLED && status != InquiryStatus.CLOSED;
     }
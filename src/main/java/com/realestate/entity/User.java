@@ -60,6 +60,9 @@ public class User implements UserDetails {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt; // Last WebSocket activity, flushed periodically by PresenceService
+    
     public enum Role {
         USER, AGENT, ADMIN
     }
@@ -186,6 +189,14 @@ public class User implements UserDetails {
         return updatedAt;
     }
     
+    public LocalDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+    
+    public void setLastSeenAt(LocalDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+    
     public String getFullName() {
         return firstName + " " + lastName;
     }
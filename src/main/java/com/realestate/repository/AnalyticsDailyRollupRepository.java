@@ -0,0 +1,34 @@
+package com.realestate.repository;
+
+import com.realestate.entity.AnalyticsDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface AnalyticsDailyRollupRepository extends JpaRepository<AnalyticsDailyRollup, Long> {
+
+    // Contiguous day range of the given metrics for one dimension value (unique index order)
+    @Query("SELECT r FROM AnalyticsDailyRollup r WHERE r.metric IN :metrics AND r.dimension = :dimension " +
+           "AND r.day BETWEEN :from AND :to ORDER BY r.day ASC")
+    List<AnalyticsDailyRollup> findRange(@Param("metrics") Collection<String> metrics, @Param("dimension") String dimension,
+                                         @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Adds a delta to the day's row, creating it on first use
+    @Modifying
+    @Query(value = "INSERT INTO analytics_daily_rollup (rollup_day, metric, dimension, event_count, amount) " +
+                   "VALUES (:day, :metric, :dimension, :count, :amount) " +
+                   "ON DUPLICATE KEY UPDATE event_count = event_count + VALUES(event_count), amount = amount + VALUES(amount)",
+           nativeQuery = true)
+    int addDelta(@Param("day") LocalDate day, @Param("metric") String metric, @Param("dimension") String dimension,
+                 @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsDailyRollup r WHERE r.metric IN :metrics AND r.day BETWEEN :from AND :to")
+    int deleteRange(@Param("metrics") Collection<String> metrics, @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
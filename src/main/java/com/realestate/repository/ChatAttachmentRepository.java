@@ -0,0 +1,18 @@
+package com.realestate.repository;
+
+import com.realestate.entity.ChatAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatAttachmentRepository extends JpaRepository<ChatAttachment, Long> {
+
+    List<ChatAttachment> findByInquiryId(Long inquiryId);
+
+    Optional<ChatAttachment> findByIdAndInquiryId(Long id, Long inquiryId);
+
+    Optional<ChatAttachment> findByMessageId(Long messageId);
+}
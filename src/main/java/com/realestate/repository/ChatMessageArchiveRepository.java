@@ -0,0 +1,29 @@
+package com.realestate.repository;
+
+import com.realestate.entity.ChatMessageArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChatMessageArchiveRepository extends JpaRepository<ChatMessageArchive, Long> {
+
+    // Archived history of an inquiry, oldest first (served by idx_chat_archive_inquiry)
+    @Query("SELECT a FROM ChatMessageArchive a LEFT JOIN FETCH a.sender WHERE a.inquiryId = :inquiryId ORDER BY a.sentAt ASC")
+    List<ChatMessageArchive> findByInquiryIdWithSender(@Param("inquiryId") Long inquiryId);
+
+    // Search index bootstrap: same columns as ChatMessageRepository.findSearchRowsAfter, participants from the inquiry
+    @Query("SELECT a.id, a.inquiryId, pi.client.id, pi.owner.id, a.sender.id, a.messageType, a.content, a.priceAmount, a.sentAt " +
+           "FROM ChatMessageArchive a JOIN PropertyInquiry pi ON pi.id = a.inquiryId WHERE a.id > :afterId ORDER BY a.id ASC")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Business data export: same columns and keyset as ChatMessageRepository.findExportChunk
+    @Query("SELECT a.id, a.inquiryId, a.sender.id, a.messageType, a.content, a.priceAmount, a.sentAt " +
+           "FROM ChatMessageArchive a WHERE a.id > :afterId AND (:since IS NULL OR a.sentAt >= :since) ORDER BY a.id")
+    List<Object[]> findExportChunk(@Param("afterId") Long afterId, @Param("since") LocalDateTime since, Pageable pageable);
+}
@@ -2,6 +2,7 @@ package com.realestate.repository;
 
 import com.realestate.entity.ChatMessage;
 import com.realestate.entity.PropertyInquiry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -40,6 +41,25 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query("UPDATE ChatMessage cm SET cm.isRead = true, cm.readAt = :readAt WHERE cm.inquiry.id = :inquiryId AND cm.sender.id != :userId AND cm.isRead = false")
     void markMessagesAsRead(@Param("inquiryId") Long inquiryId, @Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
     
+    // Mark messages up to a read high-water mark (batched read receipts)
+    @Modifying
+    @Query("UPDATE ChatMessage cm SET cm.isRead = true, cm.readAt = :readAt WHERE cm.inquiry.id = :inquiryId AND cm.sender.id != :userId AND cm.isRead = false AND cm.id <= :upToId")
+    int markMessagesAsReadUpTo(@Param("inquiryId") Long inquiryId, @Param("userId") Long userId, @Param("upToId") Long upToId, @Param("readAt") LocalDateTime readAt);
+
+    // Unread messages at or below a pending read mark
+    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.inquiry.id = :inquiryId AND cm.sender.id != :userId AND cm.isRead = false AND cm.id <= :upToId")
+    Long countUnreadMessagesUpTo(@Param("inquiryId") Long inquiryId, @Param("userId") Long userId, @Param("upToId") Long upToId);
+
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm WHERE cm.inquiry.id = :inquiryId")
+    Long findMaxMessageId(@Param("inquiryId") Long inquiryId);
+
+    @Query("SELECT MAX(cm.id) FROM ChatMessage cm")
+    Long findMaxId();
+
+    // Unread counter rebuild - unread messages per inquiry for a user, up to a message id
+    @Query("SELECT cm.inquiry.id, COUNT(cm) FROM ChatMessage cm WHERE cm.sender.id != :userId AND cm.isRead = false AND cm.id <= :upToId AND (cm.inquiry.client.id = :userId OR cm.inquiry.owner.id = :userId) GROUP BY cm.inquiry.id")
+    List<Object[]> countUnreadByInquiryForUser(@Param("userId") Long userId, @Param("upToId") Long upToId);
+    
     // Find the latest message in an inquiry
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.inquiry.id = :inquiryId ORDER BY cm.sentAt DESC LIMIT 1")
     ChatMessage findLatestMessageByInquiry(@Param("inquiryId") Long inquiryId);
@@ -76,4 +96,22 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     // Analytics - count messages by date range
     @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.sentAt BETWEEN :startDate AND :endDate")
     Long countMessagesBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Search index bootstrap - keyset page of message fields plus inquiry participants
+    @Query("SELECT cm.id, cm.inquiry.id, cm.inquiry.client.id, cm.inquiry.owner.id, cm.sender.id, cm.messageType, cm.content, cm.priceAmount, cm.sentAt FROM ChatMessage cm WHERE cm.id > :afterId ORDER BY cm.id ASC")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Archival - closed inquiries (closed before the cutoff) that still have messages in the hot table
+    @Query("SELECT DISTINCT cm.inquiry.id FROM ChatMessage cm WHERE cm.inquiry.status IN ('PURCHASED', 'CANCELLED', 'CLOSED') AND COALESCE(cm.inquiry.closedAt, cm.inquiry.updatedAt) < :cutoff")
+    List<Long> findArchivableInquiryIds(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    // Archival - remove messages that were copied to the archive table
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.inquiry.id = :inquiryId AND cm.id IN :ids")
+    int deleteArchived(@Param("inquiryId") Long inquiryId, @Param("ids") List<Long> ids);
+
+    // Business data export: the next keyset chunk after afterId, only messages sent since `since` when set
+    @Query("SELECT cm.id, cm.inquiry.id, cm.sender.id, cm.messageType, cm.content, cm.priceAmount, cm.sentAt " +
+           "FROM ChatMessage cm WHERE cm.id > :afterId AND (:since IS NULL OR cm.sentAt >= :since) ORDER BY cm.id")
+    List<Object[]> findExportChunk(@Param("afterId") Long afterId, @Param("since") LocalDateTime since, Pageable pageable);
 }
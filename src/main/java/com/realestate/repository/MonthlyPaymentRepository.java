@@ -1,13 +1,14 @@
 package com.realestate.repository;
 
 import com.realestate.entity.MonthlyPayment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -83,14 +84,70 @@ public interface MonthlyPaymentRepository extends JpaRepository<MonthlyPayment,
 
     // Revenue = PAID payments amount + lateFee within date range
     @Query("SELECT COALESCE(SUM(mp.amount + COALESCE(mp.lateFee, 0)), 0) FROM MonthlyPayment mp WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end")
-    java.math.BigDecimal sumRevenueBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query("SELECT COALESCE(SUM(mp.amount + COALESCE(mp.lateFee, 0)), 0) FROM MonthlyPayment mp WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end " +
-           "AND (mp.rentBooking.owner.id = :ownerId OR mp.pgBooking.owner.id = :ownerId)")
-    java.math.BigDecimal sumRevenueBetweenForOwner(@Param("ownerId") Long ownerId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query("SELECT COALESCE(SUM(mp.amount + COALESCE(mp.lateFee, 0)), 0) FROM MonthlyPayment mp WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end " +
-           "AND ((mp.rentBooking.property.id = :propertyId) OR (mp.pgBooking.bed.room.property.id = :propertyId))")
-    java.math.BigDecimal sumRevenueBetweenForProperty(@Param("propertyId") Long propertyId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    java.math.BigDecimal sumRevenueBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT COALESCE(SUM(mp.amount + COALESCE(mp.lateFee, 0)), 0) FROM MonthlyPayment mp " +
+           "LEFT JOIN mp.rentBooking rb LEFT JOIN mp.pgBooking pb " +
+           "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end " +
+           "AND (rb.owner.id = :ownerId OR pb.owner.id = :ownerId)")
+    java.math.BigDecimal sumRevenueBetweenForOwner(@Param("ownerId") Long ownerId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Payments of one owner's rent / PG bookings per status and due date: count, amount, amount with late fees (owner stats)
+    @Query("SELECT mp.status, mp.dueDate, COUNT(mp), SUM(mp.amount), SUM(mp.amount + COALESCE(mp.lateFee, 0)) " +
+           "FROM MonthlyPayment mp JOIN mp.rentBooking rb WHERE rb.owner.id = :ownerId GROUP BY mp.status, mp.dueDate")
+    List<Object[]> aggregateRentPaymentsForOwner(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT mp.status, mp.dueDate, COUNT(mp), SUM(mp.amount), SUM(mp.amount + COALESCE(mp.lateFee, 0)) " +
+           "FROM MonthlyPayment mp JOIN mp.pgBooking pb WHERE pb.owner.id = :ownerId GROUP BY mp.status, mp.dueDate")
+    List<Object[]> aggregatePgPaymentsForOwner(@Param("ownerId") Long ownerId);
+
+    // Revenue per paid day, rent and PG together; ownerId null for all owners (bucketed revenue charts)
+    @Query("SELECT mp.paidDate, SUM(mp.amount + COALESCE(mp.lateFee, 0)) FROM MonthlyPayment mp " +
+           "LEFT JOIN mp.rentBooking rb LEFT JOIN mp.pgBooking pb " +
+           "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end " +
+           "AND (:ownerId IS NULL OR rb.owner.id = :ownerId OR pb.owner.id = :ownerId) " +
+           "GROUP BY mp.paidDate")
+    List<Object[]> sumRevenueByPaidDate(@Param("ownerId") Long ownerId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT COALESCE(SUM(mp.amount + COALESCE(mp.lateFee, 0)), 0) FROM MonthlyPayment mp " +
+           "LEFT JOIN mp.rentBooking rb LEFT JOIN mp.pgBooking pb LEFT JOIN pb.bed b LEFT JOIN b.room r " +
+           "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end " +
+           "AND (rb.property.id = :propertyId OR r.property.id = :propertyId)")
+    java.math.BigDecimal sumRevenueBetweenForProperty(@Param("propertyId") Long propertyId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Monthly report: paid rent and PG revenue (late fees included) between two dates, attributed to the property
+    String REPORT_REVENUE = "FROM MonthlyPayment mp LEFT JOIN mp.rentBooking rb LEFT JOIN mp.pgBooking pb LEFT JOIN pb.bed b LEFT JOIN b.room r " +
+            "JOIN Property p ON p.id = COALESCE(rb.property.id, r.property.id) " +
+            "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end ";
+
+    @Query("SELECT p.city, SUM(mp.amount + COALESCE(mp.lateFee, 0)), COUNT(mp) " + REPORT_REVENUE + "GROUP BY p.city")
+    List<Object[]> reportRevenueByCity(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT p.owner.id, SUM(mp.amount + COALESCE(mp.lateFee, 0)) " + REPORT_REVENUE + "AND p.owner.id IS NOT NULL " +
+           "GROUP BY p.owner.id ORDER BY SUM(mp.amount + COALESCE(mp.lateFee, 0)) DESC")
+    List<Object[]> reportTopOwnersByRevenue(@Param("start") LocalDate start, @Param("end") LocalDate end, Pageable pageable);
+
+    // Per page of owners or properties the same revenue is read from the property side, rent and PG separately,
+    // so the id list goes through the property indexes instead of being checked against every payment of the month
+    String REPORT_RENT_REVENUE = "FROM Property p JOIN RentBooking rb ON rb.property = p JOIN MonthlyPayment mp ON mp.rentBooking = rb " +
+            "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end ";
+    String REPORT_PG_REVENUE = "FROM Property p JOIN PgRoom r ON r.property = p JOIN PgBed b ON b.room = r JOIN PgBooking pb ON pb.bed = b " +
+            "JOIN MonthlyPayment mp ON mp.pgBooking = pb " +
+            "WHERE mp.status = com.realestate.entity.MonthlyPayment$PaymentStatus.PAID AND mp.paidDate BETWEEN :start AND :end ";
+
+    @Query("SELECT p.owner.id, SUM(mp.amount + COALESCE(mp.lateFee, 0)), COUNT(mp) " + REPORT_RENT_REVENUE + "AND p.owner.id IN :ownerIds GROUP BY p.owner.id")
+    List<Object[]> reportRentRevenueByOwner(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("ownerIds") Collection<Long> ownerIds);
+
+    @Query("SELECT p.owner.id, SUM(mp.amount + COALESCE(mp.lateFee, 0)), COUNT(mp) " + REPORT_PG_REVENUE + "AND p.owner.id IN :ownerIds GROUP BY p.owner.id")
+    List<Object[]> reportPgRevenueByOwner(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("ownerIds") Collection<Long> ownerIds);
+
+    @Query("SELECT p.id, SUM(mp.amount + COALESCE(mp.lateFee, 0)), COUNT(mp) " + REPORT_RENT_REVENUE + "AND p.id IN :propertyIds GROUP BY p.id")
+    List<Object[]> reportRentRevenueByProperty(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("propertyIds") Collection<Long> propertyIds);
+
+    @Query("SELECT p.id, SUM(mp.amount + COALESCE(mp.lateFee, 0)), COUNT(mp) " + REPORT_PG_REVENUE + "AND p.id IN :propertyIds GROUP BY p.id")
+    List<Object[]> reportPgRevenueByProperty(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("propertyIds") Collection<Long> propertyIds);
+
+    // Changes whenever a payment is added or updated; part of the cache key of generated reports
+    @Query("SELECT COUNT(mp), MAX(mp.updatedAt) FROM MonthlyPayment mp")
+    List<Object[]> reportDataVersion();
 }
-
@@ -28,6 +28,11 @@ public interface PgBookingRepository extends JpaRepository<PgBooking, Long> {
     long countByStatus(PgBooking.BookingStatus status);
     long countByOwner_IdAndStatus(Long ownerId, PgBooking.BookingStatus status);
 
+    // Bookings per status for one owner (owner stats)
+    @Query("SELECT b.status, COUNT(b) FROM PgBooking b WHERE b.owner.id = :ownerId GROUP BY b.status")
+    List<Object[]> countByStatusForOwner(@Param("ownerId") Long ownerId);
+
+
     // Created/approved/cancelled trends
     @Query("SELECT COUNT(pb) FROM PgBooking pb WHERE pb.createdAt BETWEEN :start AND :end")
     long countCreatedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
@@ -72,5 +77,8 @@ public interface PgBookingRepository extends JpaRepository<PgBooking, Long> {
     // Distinct active tenants
     @Query("SELECT COUNT(DISTINCT pb.tenant.id) FROM PgBooking pb WHERE pb.status = com.realestate.entity.PgBooking$BookingStatus.ACTIVE")
     long countDistinctActiveTenants();
-}
 
+    // Changes whenever a booking is added or updated; part of the cache key of generated reports
+    @Query("SELECT COUNT(b), MAX(b.updatedAt) FROM PgBooking b")
+    List<Object[]> reportDataVersion();
+}
@@ -2,10 +2,14 @@ package com.realestate.repository;
 
 import com.realestate.entity.PropertyInquiry;
 import com.realestate.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,10 +18,12 @@ import java.util.Optional;
 @Repository
 public interface PropertyInquiryRepository extends JpaRepository<PropertyInquiry, Long> {
     
-    // Find inquiries by client (USER role)
+    // Find inquiries by client (USER role); parties and property loaded with the rows for the list DTOs
+    @EntityGraph(attributePaths = {"property", "client", "owner"})
     List<PropertyInquiry> findByClient_IdOrderByUpdatedAtDesc(Long clientId);
     
     // Find inquiries by owner (AGENT role)
+    @EntityGraph(attributePaths = {"property", "client", "owner"})
     List<PropertyInquiry> findByOwner_IdOrderByUpdatedAtDesc(Long ownerId);
     
     // Find inquiries for a specific property
@@ -34,8 +40,18 @@ public interface PropertyInquiryRepository extends JpaRepository<PropertyInquiry
     Optional<PropertyInquiry> findActiveInquiryByClientAndProperty(@Param("clientId") Long clientId, @Param("propertyId") Long propertyId);
     
     // Find inquiry that involves a specific user (either as client or owner)
-    @Query("SELECT pi FROM PropertyInquiry pi WHERE (pi.client.id = :userId OR pi.owner.id = :userId) AND pi.id = :inquiryId")
+    @Query("SELECT pi FROM PropertyInquiry pi JOIN FETCH pi.client JOIN FETCH pi.owner JOIN FETCH pi.property WHERE (pi.client.id = :userId OR pi.owner.id = :userId) AND pi.id = :inquiryId")
     Optional<PropertyInquiry> findByIdAndInvolvedUser(@Param("inquiryId") Long inquiryId, @Param("userId") Long userId);
+
+    // Inquiry with both parties and the property loaded, for use outside the loading transaction
+    @Query("SELECT pi FROM PropertyInquiry pi JOIN FETCH pi.client JOIN FETCH pi.owner JOIN FETCH pi.property WHERE pi.id = :inquiryId")
+    Optional<PropertyInquiry> findByIdWithParties(@Param("inquiryId") Long inquiryId);
+
+    // Activity timestamp only; a bulk update leaves the negotiation version alone
+    @Modifying
+    @Transactional
+    @Query("UPDATE PropertyInquiry pi SET pi.updatedAt = :now WHERE pi.id = :inquiryId")
+    int touch(@Param("inquiryId") Long inquiryId, @Param("now") LocalDateTime now);
     
     // Count active inquiries for a client
     @Query("SELECT COUNT(pi) FROM PropertyInquiry pi WHERE pi.client.id = :clientId AND pi.status IN ('ACTIVE', 'NEGOTIATING', 'AGREED')")
@@ -45,21 +61,77 @@ public interface PropertyInquiryRepository extends JpaRepository<PropertyInquiry
     @Query("SELECT COUNT(pi) FROM PropertyInquiry pi WHERE pi.owner.id = :ownerId AND pi.status IN ('ACTIVE', 'NEGOTIATING', 'AGREED')")
     Long countActiveInquiriesByOwner(@Param("ownerId") Long ownerId);
     
+    // Most recently updated inquiries with their users and property (analytics activity feed)
+    @EntityGraph(attributePaths = {"property", "client", "owner"})
+    @Query("SELECT pi FROM PropertyInquiry pi ORDER BY pi.updatedAt DESC, pi.id DESC")
+    List<PropertyInquiry> findRecentlyUpdated(Pageable pageable);
+
+    // Inquiry count and agreed-price total per status (analytics summary and funnel)
+    @Query("SELECT pi.status, COUNT(pi), SUM(pi.agreedPrice) FROM PropertyInquiry pi GROUP BY pi.status")
+    List<Object[]> aggregateByStatus();
+
+    // Per owner: inquiries, purchased, agreed and purchased revenue for inquiries created since (agent leaderboard)
+    @Query("SELECT pi.owner.id, COUNT(pi), " +
+           "SUM(CASE WHEN pi.status = 'PURCHASED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN pi.status = 'AGREED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN pi.status = 'PURCHASED' THEN COALESCE(pi.agreedPrice, 0) ELSE 0 END) " +
+           "FROM PropertyInquiry pi WHERE pi.createdAt >= :since GROUP BY pi.owner.id")
+    List<Object[]> aggregateByOwner(@Param("since") LocalDateTime since);
+
     // Find inquiries created within a date range (for analytics)
     List<PropertyInquiry> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
     
     // Find inquiries by status
     List<PropertyInquiry> findByStatusOrderByUpdatedAtDesc(PropertyInquiry.InquiryStatus status);
     
-    // Find inquiries that need attention (no recent activity)
-    @Query("SELECT pi FROM PropertyInquiry pi WHERE pi.status IN ('ACTIVE', 'NEGOTIATING') AND pi.updatedAt < :cutoffDate ORDER BY pi.updatedAt ASC")
-    List<PropertyInquiry> findStaleInquiries(@Param("cutoffDate") LocalDateTime cutoffDate);
+    // Open inquiries without activity since cutoffDate, one keyset chunk after (afterUpdatedAt, afterId).
+    // Inquiries reminded since their last activity are skipped when skipNudged is set.
+    @EntityGraph(attributePaths = {"property", "client", "owner"})
+    @Query("SELECT pi FROM PropertyInquiry pi WHERE pi.status IN ('ACTIVE', 'NEGOTIATING') AND pi.updatedAt < :cutoffDate " +
+           "AND (pi.updatedAt > :afterUpdatedAt OR (pi.updatedAt = :afterUpdatedAt AND pi.id > :afterId)) " +
+           "AND (:skipNudged = false OR pi.nudgedAt IS NULL OR pi.nudgedAt < pi.updatedAt) " +
+           "ORDER BY pi.updatedAt ASC, pi.id ASC")
+    List<PropertyInquiry> findStaleInquiries(@Param("cutoffDate") LocalDateTime cutoffDate,
+                                             @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                             @Param("afterId") Long afterId,
+                                             @Param("skipNudged") boolean skipNudged,
+                                             Pageable pageable);
+
+    // Reminder bookkeeping only: leaves updatedAt and the negotiation version alone
+    @Modifying
+    @Transactional
+    @Query("UPDATE PropertyInquiry pi SET pi.nudgedAt = :now WHERE pi.id IN :ids")
+    int markNudged(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    // Closes the given inquiries unless they saw activity in the meantime; bumps the version so
+    // in-flight offers against them fail their optimistic lock check
+    @Modifying
+    @Query("UPDATE PropertyInquiry pi SET pi.status = 'CLOSED', pi.closedAt = :now, pi.version = pi.version + 1 " +
+           "WHERE pi.id IN :ids AND pi.status IN ('ACTIVE', 'NEGOTIATING') AND pi.updatedAt < :cutoffDate")
+    int closeStale(@Param("ids") List<Long> ids, @Param("cutoffDate") LocalDateTime cutoffDate, @Param("now") LocalDateTime now);
+
+    // Attributes open offers saved before lastOfferBy existed: the sender of the latest offer message, else the client
+    @Modifying
+    @Transactional
+    @Query("UPDATE PropertyInquiry pi SET pi.lastOfferBy = COALESCE((SELECT m.sender.id FROM ChatMessage m WHERE m.id = " +
+           "(SELECT MAX(m2.id) FROM ChatMessage m2 WHERE m2.inquiry = pi AND m2.messageType IN ('PRICE_OFFER', 'PRICE_COUNTER'))), pi.client.id) " +
+           "WHERE pi.lastOfferBy IS NULL AND pi.offeredPrice IS NOT NULL AND pi.status IN ('ACTIVE', 'NEGOTIATING')")
+    int backfillLastOfferBy();
+
+    @Query("SELECT pi.id FROM PropertyInquiry pi WHERE pi.id IN :ids AND pi.status = 'CLOSED' AND pi.closedAt = :closedAt")
+    List<Long> findIdsClosedAt(@Param("ids") List<Long> ids, @Param("closedAt") LocalDateTime closedAt);
     
     // Admin queries - find all active inquiries
     @Query("SELECT pi FROM PropertyInquiry pi WHERE pi.status IN ('ACTIVE', 'NEGOTIATING', 'AGREED') ORDER BY pi.updatedAt DESC")
     List<PropertyInquiry> findAllActiveInquiries();
     
     // Find recent inquiries for admin dashboard
+    @EntityGraph(attributePaths = {"property", "client", "owner"})
     @Query("SELECT pi FROM PropertyInquiry pi ORDER BY pi.createdAt DESC")
     List<PropertyInquiry> findRecentInquiries();
+
+    // Business data export: the next keyset chunk after afterId, only rows changed since `since` when set
+    @Query("SELECT pi.id, pi.property.id, pi.client.id, pi.owner.id, pi.status, pi.offeredPrice, pi.agreedPrice, pi.createdAt, pi.updatedAt " +
+           "FROM PropertyInquiry pi WHERE pi.id > :afterId AND (:since IS NULL OR COALESCE(pi.updatedAt, pi.createdAt) >= :since) ORDER BY pi.id")
+    List<Object[]> findExportChunk(@Param("afterId") Long afterId, @Param("since") LocalDateTime since, Pageable pageable);
 }
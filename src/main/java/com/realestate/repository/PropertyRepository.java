@@ -1,13 +1,17 @@
 package com.realestate.repository;
 
 import com.realestate.entity.Property;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -33,6 +37,11 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
 
     List<Property> findByLocation_IdAndApprovalStatus(Long locationId, Property.ApprovalStatus status);
 
+    // Conditional SOLD transition: returns 0 when the property was already sold, so two sales cannot both win
+    @Modifying
+    @Query("UPDATE Property p SET p.status = :sold, p.updatedAt = :now WHERE p.id = :propertyId AND (p.status IS NULL OR p.status <> :sold)")
+    int markSoldIfUnsold(@Param("propertyId") Long propertyId, @Param("sold") Property.PropertyStatus sold, @Param("now") LocalDateTime now);
+
     @Query("SELECT p FROM Property p WHERE p.approvalStatus = 'APPROVED' OR p.approvalStatus IS NULL")
     List<Property> findAllApproved();
 
@@ -98,9 +107,49 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
     @Query("SELECT AVG(p.price) FROM Property p WHERE p.price IS NOT NULL")
     BigDecimal findAveragePrice();
 
+    // Admin dashboard in one pass: count, priced count, and price sum/min/max per status and type
+    @Query("SELECT p.status, p.propertyType, COUNT(p), COUNT(p.price), SUM(p.price), MIN(p.price), MAX(p.price) " +
+           "FROM Property p GROUP BY p.status, p.propertyType")
+    List<Object[]> aggregateForDashboard();
+
     @Query("SELECT p.city, COUNT(p) FROM Property p WHERE p.city IS NOT NULL GROUP BY p.city ORDER BY COUNT(p) DESC")
     List<Object[]> countPropertiesByCity();
 
     @Query("SELECT MONTH(p.createdAt), YEAR(p.createdAt), COUNT(p) FROM Property p WHERE p.createdAt >= :since GROUP BY YEAR(p.createdAt), MONTH(p.createdAt) ORDER BY YEAR(p.createdAt), MONTH(p.createdAt)")
     List<Object[]> getPropertyCreationTrends(@Param("since") LocalDateTime since);
+
+    // Business data export: the next keyset chunk after afterId, only rows changed since `since` when set
+    @Query("SELECT p.id, p.title, p.city, p.state, p.price, p.status FROM Property p " +
+           "WHERE p.id > :afterId AND (:since IS NULL OR COALESCE(p.updatedAt, p.createdAt) >= :since) ORDER BY p.id")
+    List<Object[]> findExportChunk(@Param("afterId") Long afterId, @Param("since") LocalDateTime since, Pageable pageable);
+
+    // Monthly report: a property counts as occupied when an approved rent or PG booking overlaps start..end
+    String REPORT_OCCUPIED = "(EXISTS (SELECT 1 FROM RentBooking rb WHERE rb.property = p AND rb.startDate <= :end " +
+            "AND (rb.endDate IS NULL OR rb.endDate >= :start) AND rb.status NOT IN ('PENDING_APPROVAL', 'REJECTED', 'CANCELLED')) " +
+            "OR EXISTS (SELECT 1 FROM PgBooking pb WHERE pb.bed.room.property = p AND pb.startDate <= :end " +
+            "AND (pb.endDate IS NULL OR pb.endDate >= :start) AND pb.status NOT IN ('PENDING_APPROVAL', 'REJECTED', 'CANCELLED')))";
+
+    @Query("SELECT p.city, COUNT(p) FROM Property p GROUP BY p.city")
+    List<Object[]> reportPropertiesByCity();
+
+    @Query("SELECT p.city, COUNT(p) FROM Property p WHERE " + REPORT_OCCUPIED + " GROUP BY p.city")
+    List<Object[]> reportOccupiedByCity(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT p.owner.id, COUNT(p) FROM Property p WHERE p.owner.id IN :ownerIds AND " + REPORT_OCCUPIED + " GROUP BY p.owner.id")
+    List<Object[]> reportOccupiedByOwner(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("ownerIds") Collection<Long> ownerIds);
+
+    @Query("SELECT p.id FROM Property p WHERE p.id IN :propertyIds AND " + REPORT_OCCUPIED)
+    List<Long> reportOccupiedProperties(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("propertyIds") Collection<Long> propertyIds);
+
+    // Keyset pages for the monthly report: properties by id, and property owners by id with their property count
+    @Query("SELECT p.id, p.title, p.city, o.firstName, o.lastName FROM Property p LEFT JOIN p.owner o WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> reportPropertyPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT o.id, o.firstName, o.lastName, COUNT(p) FROM Property p JOIN p.owner o WHERE o.id > :afterId " +
+           "GROUP BY o.id, o.firstName, o.lastName ORDER BY o.id")
+    List<Object[]> reportOwnerPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Changes whenever a property is added or updated; part of the cache key of generated reports
+    @Query("SELECT COUNT(p), MAX(p.updatedAt) FROM Property p")
+    List<Object[]> reportDataVersion();
 }
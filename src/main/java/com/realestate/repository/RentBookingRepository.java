@@ -27,6 +27,11 @@ public interface RentBookingRepository extends JpaRepository<RentBooking, Long>
     
     long countByStatus(RentBooking.BookingStatus status);
     long countByOwner_IdAndStatus(Long ownerId, RentBooking.BookingStatus status);
+
+    // Bookings per status for one owner (owner stats)
+    @Query("SELECT b.status, COUNT(b) FROM RentBooking b WHERE b.owner.id = :ownerId GROUP BY b.status")
+    List<Object[]> countByStatusForOwner(@Param("ownerId") Long ownerId);
+
     long countByProperty_Id(Long propertyId);
     long countByProperty_IdAndStatus(Long propertyId, RentBooking.BookingStatus status);
 
@@ -71,5 +76,8 @@ public interface RentBookingRepository extends JpaRepository<RentBooking, Long>
                                               @Param("endDate") LocalDate endDate);
     
     Optional<RentBooking> findByProperty_IdAndStatus(Long propertyId, RentBooking.BookingStatus status);
-}
 
+    // Changes whenever a booking is added or updated; part of the cache key of generated reports
+    @Query("SELECT COUNT(b), MAX(b.updatedAt) FROM RentBooking b")
+    List<Object[]> reportDataVersion();
+}
@@ -2,11 +2,14 @@ package com.realestate.repository;
 
 import com.realestate.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +24,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     // Analytics methods
     long countByRole(User.Role role);
+
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countGroupedByRole();
     
     @Query("SELECT MONTH(u.createdAt), YEAR(u.createdAt), COUNT(u) FROM User u WHERE u.createdAt >= :since GROUP BY YEAR(u.createdAt), MONTH(u.createdAt) ORDER BY YEAR(u.createdAt), MONTH(u.createdAt)")
     List<Object[]> getUserRegistrationTrends(@Param("since") LocalDateTime since);
@@ -28,6 +34,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT COUNT(u) FROM User u WHERE u.createdAt >= :since")
     long countCreatedSince(@Param("since") LocalDateTime since);
     
+    // Id and name only, for leaderboards over many users
+    @Query("SELECT u.id, u.firstName, u.lastName FROM User u WHERE u.role IN :roles ORDER BY u.id")
+    List<Object[]> findNamesByRoleIn(@Param("roles") Collection<User.Role> roles);
+
     // Find users by role and enabled status
     List<User> findByRoleAndEnabledTrue(User.Role role);
+    
+    // Presence - one statement for every user seen since the last flush
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.lastSeenAt = :seenAt WHERE u.id IN :ids")
+    int updateLastSeen(@Param("ids") Collection<Long> ids, @Param("seenAt") LocalDateTime seenAt);
 }
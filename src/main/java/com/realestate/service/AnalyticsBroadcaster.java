@@ -1,30 +1,121 @@
 package com.realestate.service;
 
+import com.realestate.dto.InquiryDtos;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Live updates for the admin analytics page on /topic/analytics/summary and /topic/analytics/recent.
+ * Request threads only mark the data dirty; a scheduled flush recomputes at most once per
+ * analytics.broadcast.interval-ms, and not at all while nobody is subscribed. Inquiry status changes
+ * are picked up from InquiryStatsService without a call.
+ * Only changes are sent: the summary keys whose value moved, and the recent inquiries that are new or
+ * were updated since the last push. Clients merge them into what they loaded over REST; a new
+ * subscription gets the full state on the next flush.
+ */
 @Component
 public class AnalyticsBroadcaster {
 
+    private static final String TOPIC_PREFIX = "/topic/analytics/";
+    private static final String SUMMARY_TOPIC = TOPIC_PREFIX + "summary";
+    private static final String RECENT_TOPIC = TOPIC_PREFIX + "recent";
+    private static final int RECENT_LIMIT = 10;
+
     @Autowired private AnalyticsService analyticsService;
+    @Autowired private InquiryStatsService inquiryStats;
     @Autowired private SimpMessagingTemplate messagingTemplate;
 
-    public void broadcastSummary() {
-        Map<String, Object> summary = analyticsService.getSummary();
-        // Broadcast to admins subscribed to analytics summary
-        messagingTemplate.convertAndSend("/topic/analytics/summary", summary);
+    // sessionId -> ids of its analytics subscriptions
+    private final Map<String, Set<String>> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean resendAll = new AtomicBoolean();
+
+    // What subscribers have been sent so far; only touched by flush()
+    private Map<String, Object> sentSummary = Map.of();
+    private final Map<Long, LocalDateTime> sentRecent = new HashMap<>();
+    private long seenChanges = -1;
+
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.broadcast.interval-ms:2000}")
+    public synchronized void flush() {
+        long changes = inquiryStats.changeCount();
+        boolean changed = dirty.getAndSet(false) | changes != seenChanges;
+        seenChanges = changes;
+        if (subscribers.get() == 0) return;
+        boolean full = resendAll.getAndSet(false);
+        if (!changed && !full) return;
+        if (full) {
+            sentSummary = Map.of();
+            sentRecent.clear();
+        }
+
+        try {
+            Map<String, Object> summary = analyticsService.getSummary();
+            Map<String, Object> summaryDelta = new HashMap<>();
+            summary.forEach((key, value) -> {
+                if (!Objects.equals(sentSummary.get(key), value)) summaryDelta.put(key, value);
+            });
+            if (!summaryDelta.isEmpty()) messagingTemplate.convertAndSend(SUMMARY_TOPIC, summaryDelta);
+            sentSummary = summary;
+
+            List<InquiryDtos.InquiryDto> recentDelta = new ArrayList<>();
+            for (InquiryDtos.InquiryDto inquiry : analyticsService.recentInquiries(RECENT_LIMIT)) {
+                if (!Objects.equals(sentRecent.get(inquiry.id), inquiry.updatedAt)) recentDelta.add(inquiry);
+            }
+            if (!recentDelta.isEmpty()) {
+                messagingTemplate.convertAndSend(RECENT_TOPIC, recentDelta);
+                recentDelta.forEach(inquiry -> sentRecent.put(inquiry.id, inquiry.updatedAt));
+                if (sentRecent.size() > RECENT_LIMIT * 10) sentRecent.clear(); // rows that left the feed; worst case one resend
+            }
+        } catch (Exception e) {
+            dirty.set(true);
+            System.err.println("[AnalyticsBroadcaster] Broadcast failed: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)
+                || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        if (sessions.computeIfAbsent(accessor.getSessionId(), s -> ConcurrentHashMap.newKeySet()).add(accessor.getSubscriptionId())) {
+            subscribers.incrementAndGet();
+        }
+        resendAll.set(true);
     }
 
-    public void broadcastRecent() {
-        var recent = analyticsService.recentInquiries(10);
-        messagingTemplate.convertAndSend("/topic/analytics/recent", recent);
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Set<String> subs = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subs != null && accessor.getSubscriptionId() != null && subs.remove(accessor.getSubscriptionId())) {
+            subscribers.decrementAndGet();
+        }
     }
 
-    public void broadcastAll() {
-        broadcastSummary();
-        broadcastRecent();
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Set<String> subs = sessions.remove(event.getSessionId());
+        if (subs != null) subscribers.addAndGet(-subs.size());
     }
 }
@@ -1,11 +1,14 @@
 package com.realestate.service;
 
+import com.realestate.dto.InquiryDtos;
 import com.realestate.entity.PropertyInquiry;
 import com.realestate.entity.User;
 import com.realestate.repository.PropertyInquiryRepository;
 import com.realestate.repository.PropertyRepository;
 import com.realestate.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -13,7 +16,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AnalyticsService {
@@ -21,142 +24,144 @@ public class AnalyticsService {
     @Autowired private PropertyRepository propertyRepository;
     @Autowired private PropertyInquiryRepository inquiryRepository;
     @Autowired private UserRepository userRepository;
+    @Autowired private InquiryStatsService inquiryStats;
+    @Autowired private DailyRollupService dailyRollups;
+
+    @Value("${analytics.leaderboard.ttl-ms:60000}")
+    private long leaderboardTtlMs;
+
+    private static final LocalDateTime ALL_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /** A page of leaderboard rows and the number of ranked agents. */
+    public record Leaderboard(List<Map<String, Object>> agents, int total) {}
+
+    private record CachedLeaderboard(long version, long builtAt, List<Map<String, Object>> rows) {}
+
+    private final Map<Integer, CachedLeaderboard> leaderboards = new ConcurrentHashMap<>();
 
     public Map<String, Object> getSummary() {
         Map<String, Object> summary = new HashMap<>();
         long totalProperties = propertyRepository.count();
-        long totalInquiries = inquiryRepository.count();
-
-        long active = inquiryRepository.findAll().stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.ACTIVE)
-                .count();
-        long negotiating = inquiryRepository.findAll().stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.NEGOTIATING)
-                .count();
-        long agreed = inquiryRepository.findAll().stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.AGREED)
-                .count();
-        long purchased = inquiryRepository.findAll().stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
-                .count();
-
-        // Simple revenue approximation: sum of agreed price for PURCHASED inquiries
-        BigDecimal revenue = inquiryRepository.findAll().stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
-                .map(i -> i.getAgreedPrice() != null ? i.getAgreedPrice() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<PropertyInquiry.InquiryStatus, InquiryStatsService.StatusTotals> byStatus = inquiryStats.snapshot();
+        long totalInquiries = byStatus.values().stream().mapToLong(InquiryStatsService.StatusTotals::count).sum();
 
         summary.put("totalProperties", totalProperties);
         summary.put("totalInquiries", totalInquiries);
-        summary.put("active", active);
-        summary.put("negotiating", negotiating);
-        summary.put("agreed", agreed);
-        summary.put("purchased", purchased);
-        summary.put("revenue", revenue);
+        putFunnel(summary, byStatus);
+        // Simple revenue approximation: sum of agreed price for PURCHASED inquiries
+        summary.put("revenue", byStatus.get(PropertyInquiry.InquiryStatus.PURCHASED).agreedTotal());
         return summary;
     }
 
-    public Map<String, Object> getTimeSeries(String metric, int days) {
-        // Minimal stub: count per day over last N days
-        Map<String, Object> result = new HashMap<>();
-        LocalDate today = LocalDate.now(ZoneId.systemDefault());
-        Map<String, Number> series = new HashMap<>();
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate day = today.minusDays(i);
-            long count = inquiryRepository.findAll().stream()
-                    .filter(inq -> inq.getCreatedAt() != null && inq.getCreatedAt().toLocalDate().isEqual(day))
-                    .count();
-            series.put(day.toString(), count);
+    /**
+     * Daily series for one or more comma-separated metrics over the last N days, read from the daily
+     * rollups. "series" keeps the old date -> count shape for the first metric.
+     */
+    public Map<String, Object> getTimeSeries(String metric, int days, String dimension) {
+        List<DailyRollupService.Metric> metrics = new ArrayList<>();
+        for (String key : metric.split(",")) {
+            DailyRollupService.Metric.parse(key).filter(m -> !metrics.contains(m)).ifPresent(metrics::add);
+        }
+        if (metrics.isEmpty()) metrics.add(DailyRollupService.Metric.INQUIRIES);
+        int range = Math.max(1, Math.min(days, 730));
+        LocalDate to = LocalDate.now(ZoneId.systemDefault());
+        LocalDate from = to.minusDays(range - 1L);
+        Map<DailyRollupService.Metric, List<DailyRollupService.Point>> points = dailyRollups.series(metrics, dimension, from, to);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Number> series = new LinkedHashMap<>();
+        points.get(metrics.get(0)).forEach(p -> series.put(p.day().toString(), p.count()));
+        Map<String, Object> byMetric = new LinkedHashMap<>();
+        for (DailyRollupService.Metric m : metrics) {
+            byMetric.put(m.key(), points.get(m));
         }
-        result.put("metric", metric);
+        result.put("metric", metrics.get(0).key());
+        result.put("dimension", dimension);
+        result.put("from", from.toString());
+        result.put("to", to.toString());
         result.put("series", series);
+        result.put("metrics", byMetric);
         return result;
     }
 
-    public List<PropertyInquiry> recentInquiries(int limit) {
-        // Minimal stub: use repository method if present; else take latest by updatedAt
-        return inquiryRepository.findAll().stream()
-                .sorted((a, b) -> {
-                    LocalDateTime la = a.getUpdatedAt();
-                    LocalDateTime lb = b.getUpdatedAt();
-                    if (la == null && lb == null) return 0;
-                    if (la == null) return 1;
-                    if (lb == null) return -1;
-                    return lb.compareTo(la);
-                })
-                .limit(limit)
+    public List<InquiryDtos.InquiryDto> recentInquiries(int limit) {
+        InquiryDtos.Mapper mapper = new InquiryDtos.Mapper();
+        return inquiryRepository.findRecentlyUpdated(PageRequest.of(0, Math.max(1, Math.min(limit, 100)))).stream()
+                .map(mapper::inquiry)
                 .toList();
     }
 
-    public List<Map<String, Object>> getAgentPerformance() {
-        // Get all agents/owners and their performance metrics
-        List<User> agents = userRepository.findAll().stream()
-                .filter(u -> u.getRole() == User.Role.AGENT || u.getRole() == User.Role.ADMIN)
-                .collect(Collectors.toList());
-        
+    /**
+     * One page of the agent leaderboard: agents and admins by revenue from purchased inquiries, counting
+     * inquiries created in the last N days (0 for all time).
+     */
+    public Leaderboard getAgentPerformance(int days, int page, int size) {
+        List<Map<String, Object>> all = leaderboard(Math.max(0, days));
+        int from = (int) Math.min((long) Math.max(0, page) * size, all.size());
+        int to = Math.min(from + size, all.size());
+        return new Leaderboard(all.subList(from, to), all.size());
+    }
+
+    // Rebuilt after the TTL, or sooner when an inquiry changed status since it was built
+    private List<Map<String, Object>> leaderboard(int days) {
+        long version = inquiryStats.changeCount();
+        long now = System.currentTimeMillis();
+        CachedLeaderboard cached = leaderboards.get(days);
+        if (cached != null && cached.version() == version && now - cached.builtAt() < leaderboardTtlMs) {
+            return cached.rows();
+        }
+        List<Map<String, Object>> rows = buildLeaderboard(days);
+        if (leaderboards.size() >= 16) leaderboards.clear();
+        leaderboards.put(days, new CachedLeaderboard(version, now, rows));
+        return rows;
+    }
+
+    private List<Map<String, Object>> buildLeaderboard(int days) {
+        LocalDateTime since = days > 0 ? LocalDate.now().minusDays(days - 1L).atStartOfDay() : ALL_TIME;
+        Map<Long, Object[]> byOwner = new HashMap<>();
+        for (Object[] row : inquiryRepository.aggregateByOwner(since)) {
+            byOwner.put((Long) row[0], row);
+        }
+
         List<Map<String, Object>> performance = new ArrayList<>();
-        for (User agent : agents) {
-            List<PropertyInquiry> agentInquiries = inquiryRepository.findAll().stream()
-                    .filter(inq -> inq.getOwner() != null && inq.getOwner().getId().equals(agent.getId()))
-                    .collect(Collectors.toList());
-            
-            long totalInquiries = agentInquiries.size();
-            long purchased = agentInquiries.stream()
-                    .filter(inq -> inq.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
-                    .count();
-            long agreed = agentInquiries.stream()
-                    .filter(inq -> inq.getStatus() == PropertyInquiry.InquiryStatus.AGREED)
-                    .count();
-            
-            BigDecimal revenue = agentInquiries.stream()
-                    .filter(inq -> inq.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
-                    .map(inq -> inq.getAgreedPrice() != null ? inq.getAgreedPrice() : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
+        for (Object[] agent : userRepository.findNamesByRoleIn(List.of(User.Role.AGENT, User.Role.ADMIN))) {
+            Object[] totals = byOwner.get((Long) agent[0]);
+            long totalInquiries = totals != null ? ((Number) totals[1]).longValue() : 0;
+            long purchased = totals != null ? ((Number) totals[2]).longValue() : 0;
+            long agreed = totals != null ? ((Number) totals[3]).longValue() : 0;
+            BigDecimal revenue = totals != null ? toBigDecimal(totals[4]) : BigDecimal.ZERO;
+
             Map<String, Object> agentData = new HashMap<>();
-            agentData.put("agentId", agent.getId());
-            agentData.put("agentName", agent.getFirstName() + " " + agent.getLastName());
+            agentData.put("agentId", agent[0]);
+            agentData.put("agentName", agent[1] + " " + agent[2]);
             agentData.put("totalInquiries", totalInquiries);
             agentData.put("purchased", purchased);
             agentData.put("agreed", agreed);
             agentData.put("revenue", revenue);
             agentData.put("conversionRate", totalInquiries > 0 ? (double) purchased / totalInquiries : 0.0);
-            
             performance.add(agentData);
         }
-        
+
         // Sort by revenue descending
-        performance.sort((a, b) -> {
-            BigDecimal revA = (BigDecimal) a.get("revenue");
-            BigDecimal revB = (BigDecimal) b.get("revenue");
-            return revB.compareTo(revA);
-        });
-        
-        return performance;
+        performance.sort((a, b) -> ((BigDecimal) b.get("revenue")).compareTo((BigDecimal) a.get("revenue")));
+        return List.copyOf(performance);
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        return value instanceof BigDecimal b ? b : new BigDecimal(value.toString());
     }
 
     public Map<String, Object> getFunnelData() {
-        List<PropertyInquiry> allInquiries = inquiryRepository.findAll();
-        
-        long active = allInquiries.stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.ACTIVE)
-                .count();
-        long negotiating = allInquiries.stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.NEGOTIATING)
-                .count();
-        long agreed = allInquiries.stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.AGREED)
-                .count();
-        long purchased = allInquiries.stream()
-                .filter(i -> i.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED)
-                .count();
-        
         Map<String, Object> funnel = new HashMap<>();
-        funnel.put("active", active);
-        funnel.put("negotiating", negotiating);
-        funnel.put("agreed", agreed);
-        funnel.put("purchased", purchased);
-        
+        putFunnel(funnel, inquiryStats.snapshot());
         return funnel;
     }
+
+    private static void putFunnel(Map<String, Object> target, Map<PropertyInquiry.InquiryStatus, InquiryStatsService.StatusTotals> byStatus) {
+        target.put("active", byStatus.get(PropertyInquiry.InquiryStatus.ACTIVE).count());
+        target.put("negotiating", byStatus.get(PropertyInquiry.InquiryStatus.NEGOTIATING).count());
+        target.put("agreed", byStatus.get(PropertyInquiry.InquiryStatus.AGREED).count());
+        target.put("purchased", byStatus.get(PropertyInquiry.InquiryStatus.PURCHASED).count());
+    }
 }
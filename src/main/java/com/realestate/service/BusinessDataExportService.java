@@ -0,0 +1,155 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.repository.ChatMessageArchiveRepository;
+import com.realestate.repository.ChatMessageRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the business data export (properties, inquiries, chat messages including archived ones) as
+ * NDJSON, one fact per line.
+ * Rows are read in keyset chunks of analytics.export.chunk-size as plain column projections, so no
+ * entities are managed and memory stays flat however many rows there are; each chunk is flushed to the
+ * client before the next is read. The last line is a summary whose "until" is the `since` to pass for the
+ * next incremental export. The body is gzipped when the client accepts it.
+ */
+@Service
+public class BusinessDataExportService {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    @Autowired private PropertyRepository propertyRepository;
+    @Autowired private PropertyInquiryRepository inquiryRepository;
+    @Autowired private ChatMessageRepository chatMessageRepository;
+    @Autowired private ChatMessageArchiveRepository archiveRepository;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${analytics.export.chunk-size:1000}")
+    private int chunkSize;
+
+    // One keyset-paged source: up to page-size rows with id > afterId, ordered by id
+    private interface ChunkQuery {
+        List<Object[]> next(Long afterId, LocalDateTime since, PageRequest page);
+    }
+
+    /** Streams every row changed since `since` (everything when null) to the response. */
+    public void export(LocalDateTime since, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Captured before reading, so rows changed during the export are picked up again next time
+        LocalDateTime until = LocalDateTime.now();
+        boolean gzip = acceptsGzip(request);
+
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"business-data.ndjson" + (gzip ? ".gz" : "") + "\"");
+        response.setHeader("Vary", "Accept-Encoding");
+        if (gzip) response.setHeader("Content-Encoding", "gzip");
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192, true) : response.getOutputStream();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null); // lines end with '\n' instead
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "export");
+            summary.put("since", since != null ? ISO.format(since) : null);
+            summary.put("until", ISO.format(until));
+            summary.put("properties", write(json, since, propertyRepository::findExportChunk, BusinessDataExportService::property));
+            summary.put("inquiries", write(json, since, inquiryRepository::findExportChunk, BusinessDataExportService::inquiry));
+            // Archived rows keep their id and never change, so together they are every message exactly once
+            summary.put("messages", write(json, since, chatMessageRepository::findExportChunk, row -> message(row, false))
+                    + write(json, since, archiveRepository::findExportChunk, row -> message(row, true)));
+            line(json, summary);
+        }
+    }
+
+    private long write(JsonGenerator json, LocalDateTime since, ChunkQuery query,
+                       Function<Object[], Map<String, Object>> toLine) throws IOException {
+        PageRequest page = PageRequest.of(0, Math.max(1, chunkSize));
+        long afterId = 0;
+        long written = 0;
+        while (true) {
+            List<Object[]> rows = query.next(afterId, since, page);
+            for (Object[] row : rows) line(json, toLine.apply(row));
+            written += rows.size();
+            json.flush();
+            if (rows.size() < page.getPageSize()) return written;
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+        }
+    }
+
+    private static void line(JsonGenerator json, Map<String, Object> fields) throws IOException {
+        json.writeObject(fields);
+        json.writeRaw('\n');
+    }
+
+    private static Map<String, Object> property(Object[] row) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type", "property");
+        m.put("id", row[0]);
+        m.put("title", row[1]);
+        m.put("city", row[2]);
+        m.put("state", row[3]);
+        m.put("price", row[4]);
+        m.put("status", name(row[5]));
+        return m;
+    }
+
+    private static Map<String, Object> inquiry(Object[] row) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type", "inquiry");
+        m.put("id", row[0]);
+        m.put("propertyId", row[1]);
+        m.put("clientId", row[2]);
+        m.put("ownerId", row[3]);
+        m.put("status", name(row[4]));
+        m.put("offeredPrice", row[5]);
+        m.put("agreedPrice", row[6]);
+        m.put("createdAt", time(row[7]));
+        m.put("updatedAt", time(row[8]));
+        return m;
+    }
+
+    private static Map<String, Object> message(Object[] row, boolean archived) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type", "message");
+        m.put("id", row[0]);
+        m.put("inquiryId", row[1]);
+        m.put("senderId", row[2]);
+        m.put("messageType", name(row[3]));
+        m.put("content", row[4]);
+        m.put("priceAmount", row[5]);
+        m.put("sentAt", time(row[6]));
+        m.put("archived", archived);
+        return m;
+    }
+
+    private static String name(Object value) {
+        return value instanceof Enum<?> e ? e.name() : null;
+    }
+
+    private static String time(Object value) {
+        return value instanceof LocalDateTime t ? ISO.format(t) : null;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request.getHeader("Accept-Encoding");
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+}
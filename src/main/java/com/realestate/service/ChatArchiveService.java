@@ -0,0 +1,119 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.ChatMessageArchive;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.repository.ChatMessageArchiveRepository;
+import com.realestate.repository.ChatMessageRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Moves chat messages of closed inquiries (PURCHASED, CANCELLED, CLOSED) into chat_messages_archive
+ * once the inquiry has been closed for longer than chat.archive.after-days, keeping chat_messages small.
+ * History reads go through {@link #loadHistory(PropertyInquiry)}, which merges both tables.
+ */
+@Service
+public class ChatArchiveService {
+
+    private static final int INQUIRY_BATCH_SIZE = 100;
+
+    @Autowired private ChatMessageRepository messageRepo;
+    @Autowired private ChatMessageArchiveRepository archiveRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @PersistenceContext private EntityManager entityManager;
+
+    @Value("${chat.archive.after-days:180}")
+    private int afterDays;
+
+    public static class HistoryEntry {
+        public final ChatMessage message;          // set for hot rows
+        public final ChatMessageArchive archived;  // set for archived rows
+
+        HistoryEntry(ChatMessage message, ChatMessageArchive archived) {
+            this.message = message;
+            this.archived = archived;
+        }
+
+        public LocalDateTime getSentAt() {
+            return message != null ? message.getSentAt() : archived.getSentAt();
+        }
+    }
+
+    // Runs nightly at 3 AM
+    @Scheduled(cron = "${chat.archive.cron:0 0 3 * * *}")
+    public void archiveClosedInquiries() {
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int inquiries = 0;
+        int messages = 0;
+
+        try {
+            while (true) {
+                // Archived inquiries drop out of this query, so always read the first page
+                List<Long> inquiryIds = messageRepo.findArchivableInquiryIds(cutoff, PageRequest.of(0, INQUIRY_BATCH_SIZE));
+                if (inquiryIds.isEmpty()) break;
+                for (Long inquiryId : inquiryIds) {
+                    Integer moved = tx.execute(status -> archiveInquiry(inquiryId));
+                    messages += moved != null ? moved : 0;
+                    inquiries++;
+                }
+                if (inquiryIds.size() < INQUIRY_BATCH_SIZE) break;
+            }
+            System.out.println("[ChatArchive] Archived " + messages + " messages from " + inquiries + " inquiries in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("[ChatArchive] Archival run failed: " + e.getMessage());
+        }
+    }
+
+    // Copy then delete in the same transaction, so a message is always in exactly one table
+    private int archiveInquiry(Long inquiryId) {
+        List<ChatMessage> messages = messageRepo.findByInquiry_IdOrderBySentAtAsc(inquiryId);
+        if (messages.isEmpty()) return 0;
+
+        List<ChatMessageArchive> rows = new ArrayList<>(messages.size());
+        List<Long> ids = new ArrayList<>(messages.size());
+        for (ChatMessage m : messages) {
+            rows.add(new ChatMessageArchive(m, inquiryId));
+            ids.add(m.getId());
+        }
+        // persist directly: ids are pre-assigned, save() would issue a SELECT per row to merge
+        rows.forEach(entityManager::persist);
+        entityManager.flush();
+        return messageRepo.deleteArchived(inquiryId, ids);
+    }
+
+    /**
+     * Full message history of an inquiry, oldest first. Only inquiries that were closed at some
+     * point can have archived messages, so the others never touch the archive table.
+     */
+    public List<HistoryEntry> loadHistory(PropertyInquiry inquiry) {
+        List<HistoryEntry> history = new ArrayList<>();
+        if (inquiry.getClosedAt() != null || !inquiry.canBeModified()) {
+            for (ChatMessageArchive a : archiveRepo.findByInquiryIdWithSender(inquiry.getId())) {
+                history.add(new HistoryEntry(null, a));
+            }
+        }
+        boolean hasArchived = !history.isEmpty();
+        for (ChatMessage m : messageRepo.findByInquiry_IdOrderBySentAtAsc(inquiry.getId())) {
+            history.add(new HistoryEntry(m, null));
+        }
+        // Both parts are already sorted; only interleave if a run was interrupted halfway
+        if (hasArchived) history.sort(Comparator.comparing(HistoryEntry::getSentAt));
+        return history;
+    }
+}
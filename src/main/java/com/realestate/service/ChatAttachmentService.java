@@ -0,0 +1,243 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatAttachment;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Local-disk, content-addressed store for chat attachments.
+ * Uploads are streamed to a temp file while the SHA-256 is computed, then renamed to
+ * {root}/ab/cd/{sha256} once the caller has saved the rows for it; a file that is already stored
+ * is not written twice.
+ * Downloads use Tomcat sendfile when the connector supports it, FileChannel.transferTo otherwise,
+ * and honour single byte-range requests.
+ */
+@Service
+public class ChatAttachmentService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Set<String> INLINE_TYPES = Set.of("image/png", "image/jpeg", "image/gif", "image/webp", "application/pdf");
+
+    // Tomcat sendfile request attributes (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${chat.attachments.dir:uploads/chat-attachments}")
+    private String rootDir;
+
+    @Value("${chat.attachments.max-size-mb:25}")
+    private long maxSizeMb;
+
+    private Path root;
+    private Path tmp;
+
+    public record StoredFile(String sha256, long size) {}
+
+    /** An upload written to the temp directory but not yet moved into the store. */
+    public record StagedFile(Path part, String sha256, long size) {}
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long limit) {
+            super("Attachment exceeds the " + limit + " byte limit");
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(rootDir).toAbsolutePath().normalize();
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+    }
+
+    public long getMaxBytes() {
+        return maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Streams the input to a temp file and returns its hash and size. Only one buffer is held in memory.
+     * Nothing is visible under the store until {@link #commit}; {@link #discard} drops the upload instead.
+     */
+    public StagedFile stage(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        long limit = getMaxBytes();
+        Path part = Files.createTempFile(tmp, "upload-", ".part");
+        long size = 0;
+        try {
+            try (OutputStream out = Files.newOutputStream(part, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > limit) throw new TooLargeException(limit);
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            return new StagedFile(part, HexFormat.of().formatHex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a staged upload into place. Called once the rows that reference it are committed, so a
+     * failed save never leaves a file behind; a file that is already stored is not written twice.
+     */
+    public StoredFile commit(StagedFile staged) throws IOException {
+        try {
+            Path target = resolve(staged.sha256());
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // Same content racing in twice renames identical bytes over each other, which is harmless
+                Files.move(staged.part(), target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredFile(staged.sha256(), staged.size());
+        } finally {
+            Files.deleteIfExists(staged.part());
+        }
+    }
+
+    public void discard(StagedFile staged) {
+        try {
+            Files.deleteIfExists(staged.part());
+        } catch (IOException e) {
+            System.err.println("[ChatAttachments] Could not delete " + staged.part() + ": " + e.getMessage());
+        }
+    }
+
+    public Path resolve(String sha256) {
+        if (sha256 == null || !sha256.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid attachment hash");
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    public void serve(ChatAttachment attachment, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = resolve(attachment.getSha256());
+        if (!Files.isRegularFile(file)) {
+            // Plain status, sendError would dispatch to /error which is not open to the caller
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = Files.size(file);
+        String etag = "\"" + attachment.getSha256() + "\"";
+
+        // Content-addressed, so the bytes behind an id never change
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, max-age=31536000, immutable");
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        String contentType = attachment.getContentType();
+        response.setContentType(contentType);
+        response.setHeader("Content-Disposition", (INLINE_TYPES.contains(contentType) ? "inline" : "attachment")
+                + "; filename*=UTF-8''" + URLEncoder.encode(attachment.getFileName(), StandardCharsets.UTF_8).replace("+", "%20"));
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the file with sendfile(2) after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Parses a single "bytes=" range. Returns {start, end} (inclusive), an empty array when the header
+     * should be ignored (multiple ranges or another unit), or null when the range cannot be satisfied.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return new long[0];
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return null;
+                start = Math.max(length - suffix, 0);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
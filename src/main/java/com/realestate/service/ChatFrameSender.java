@@ -0,0 +1,135 @@
+package com.realestate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realestate.config.StompRelayInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends chat frames to users in the encoding their sessions negotiated.
+ * A client asks for a compact encoding with the "frame-encoding: cbor|smile" header on CONNECT
+ * (over the raw /ws-native endpoint, SockJS cannot carry binary frames) and subscribes to the
+ * suffixed destination, e.g. /user/queue/messages.cbor. JSON on the plain destination stays the default.
+ */
+@Service
+public class ChatFrameSender {
+
+    public static final String ENCODING_HEADER = "frame-encoding";
+
+    public enum Encoding {
+        JSON, CBOR, SMILE;
+
+        static Encoding parse(String value) {
+            if (value == null) return JSON;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return JSON;
+            }
+        }
+
+        String suffix() {
+            return "." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private StompRelayInterceptor relayInterceptor;
+
+    private final Map<Encoding, ObjectMapper> binaryMappers = new EnumMap<>(Encoding.class);
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // username -> number of local sessions per encoding
+    private final Map<String, Map<Encoding, AtomicInteger>> userEncodings = new ConcurrentHashMap<>();
+
+    private record Session(String username, Encoding encoding) {}
+
+    public ChatFrameSender() {
+        binaryMappers.put(Encoding.CBOR, binaryMapper(new ObjectMapper(new CBORFactory())));
+        binaryMappers.put(Encoding.SMILE, binaryMapper(new ObjectMapper(new SmileFactory())));
+    }
+
+    public void sendToUser(String username, String destination, Object frame) {
+        Map<Encoding, AtomicInteger> encodings = userEncodings.get(username);
+
+        // JSON unless every local session of the user negotiated a binary encoding;
+        // with a cluster relay other nodes may hold JSON sessions, so always send it
+        if (encodings == null || relayInterceptor.isEnabled() || active(encodings, Encoding.JSON)) {
+            messagingTemplate.convertAndSendToUser(username, destination, frame);
+        }
+        if (encodings == null) return;
+
+        for (Map.Entry<Encoding, ObjectMapper> entry : binaryMappers.entrySet()) {
+            if (!active(encodings, entry.getKey())) continue;
+            try {
+                byte[] payload = entry.getValue().writeValueAsBytes(frame);
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                // octet-stream is what lets the STOMP handler send a binary WebSocket frame
+                accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                accessor.setNativeHeader(ENCODING_HEADER, entry.getKey().name().toLowerCase(Locale.ROOT));
+                accessor.setLeaveMutable(true);
+                messagingTemplate.send("/user/" + username.replace("/", "%2F") + destination + entry.getKey().suffix(),
+                        MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+            } catch (Exception e) {
+                System.err.println("Failed to send " + entry.getKey() + " frame: " + e.getMessage());
+            }
+        }
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        if (user == null || accessor.getSessionId() == null) return;
+        Session session = new Session(user.getName(), Encoding.parse(accessor.getFirstNativeHeader(ENCODING_HEADER)));
+        if (sessions.putIfAbsent(accessor.getSessionId(), session) != null) return;
+        userEncodings.compute(session.username(), (u, encodings) -> {
+            if (encodings == null) encodings = new ConcurrentHashMap<>();
+            encodings.computeIfAbsent(session.encoding(), e -> new AtomicInteger()).incrementAndGet();
+            return encodings;
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Session session = sessions.remove(event.getSessionId());
+        if (session == null) return;
+        // The user's entry goes with their last session; compute keeps a concurrent connect from losing its count
+        userEncodings.computeIfPresent(session.username(), (u, encodings) -> {
+            AtomicInteger count = encodings.get(session.encoding());
+            if (count != null && count.decrementAndGet() <= 0) encodings.remove(session.encoding());
+            return encodings.isEmpty() ? null : encodings;
+        });
+    }
+
+    private static boolean active(Map<Encoding, AtomicInteger> encodings, Encoding encoding) {
+        AtomicInteger count = encodings.get(encoding);
+        return count != null && count.get() > 0;
+    }
+
+    private static ObjectMapper binaryMapper(ObjectMapper mapper) {
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        return mapper;
+    }
+}
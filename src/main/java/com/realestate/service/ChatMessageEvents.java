@@ -0,0 +1,77 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * Publishes a {@link MessageSaved} application event once a chat message insert has committed, and a
+ * {@link MessageDeleted} once a delete has, whichever path wrote the row. The search index, read
+ * receipts and unread counters listen for these instead of every send path calling them.
+ * Bulk statements (archiving) bypass entities and publish nothing.
+ */
+@Service
+public class ChatMessageEvents {
+
+    public record MessageSaved(ChatMessage message) {}
+
+    public record MessageDeleted(Long messageId) {}
+
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    private void publish(Object event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            // The message is committed either way; a listener's failure must not reach the sender
+            System.err.println("[ChatMessageEvents] " + event.getClass().getSimpleName() + " listener failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isMessage(EntityPersister persister) {
+        return persister.getMappedClass() == ChatMessage.class;
+    }
+
+    private final class Listener implements PostCommitInsertEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (isMessage(event.getPersister())) publish(new MessageSaved((ChatMessage) event.getEntity()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (isMessage(event.getPersister())) publish(new MessageDeleted((Long) event.getId()));
+        }
+
+        // Other listeners' entities are delivered here too once any listener asked for them
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return isMessage(persister);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+    }
+}
@@ -0,0 +1,331 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.repository.ChatMessageArchiveRepository;
+import com.realestate.repository.ChatMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Embedded inverted index over chat messages (content, message type and price amount).
+ * Built from the database on startup, hot and archived messages alike, and kept current from committed
+ * message inserts and deletes (ChatMessageEvents); archiving keeps a message's id, so moved messages
+ * stay indexed as they are.
+ * Results are scoped to inquiries the searching user participates in.
+ *
+ * Query syntax: plain words are AND-ed (the last word also matches as a prefix),
+ * "type:PRICE_OFFER" filters by message type and "price:5000000" by exact amount.
+ */
+@Service
+public class ChatSearchIndex {
+
+    private static final int BOOTSTRAP_BATCH_SIZE = 1000;
+    private static final int SNIPPET_LENGTH = 160;
+
+    @Autowired private ChatMessageRepository messageRepo;
+    @Autowired private ChatMessageArchiveRepository archiveRepo;
+
+    // One keyset page of search rows after an id
+    private interface RowSource {
+        List<Object[]> after(Long afterId, PageRequest page);
+    }
+
+    public static class SearchHit {
+        public Long messageId;
+        public Long inquiryId;
+        public Long senderId;
+        public String messageType;
+        public BigDecimal priceAmount;
+        public LocalDateTime sentAt;
+        public String highlight;
+    }
+
+    private static final class Doc {
+        final long id;
+        final Long inquiryId;
+        final Long clientId;
+        final Long ownerId;
+        final Long senderId;
+        final ChatMessage.MessageType messageType;
+        final String content;
+        final BigDecimal priceAmount;
+        final LocalDateTime sentAt;
+
+        Doc(long id, Long inquiryId, Long clientId, Long ownerId, Long senderId, ChatMessage.MessageType messageType,
+            String content, BigDecimal priceAmount, LocalDateTime sentAt) {
+            this.id = id;
+            this.inquiryId = inquiryId;
+            this.clientId = clientId;
+            this.ownerId = ownerId;
+            this.senderId = senderId;
+            this.messageType = messageType;
+            this.content = content;
+            this.priceAmount = priceAmount;
+            this.sentAt = sentAt;
+        }
+
+        boolean visibleTo(Long userId) {
+            return userId.equals(clientId) || userId.equals(ownerId);
+        }
+    }
+
+    // term -> message ids, terms kept sorted for prefix lookups
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            int indexed = indexAll(messageRepo::findSearchRowsAfter);
+            int archived = indexAll(archiveRepo::findSearchRowsAfter);
+            System.out.println("[ChatSearch] Indexed " + indexed + " messages and " + archived + " archived messages in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("[ChatSearch] Initial indexing failed: " + e.getMessage());
+        }
+    }
+
+    private int indexAll(RowSource source) {
+        long afterId = 0L;
+        int indexed = 0;
+        while (true) {
+            List<Object[]> rows = source.after(afterId, PageRequest.of(0, BOOTSTRAP_BATCH_SIZE));
+            if (rows.isEmpty()) break;
+            for (Object[] r : rows) {
+                add(new Doc((Long) r[0], (Long) r[1], (Long) r[2], (Long) r[3], (Long) r[4],
+                        (ChatMessage.MessageType) r[5], (String) r[6], (BigDecimal) r[7], (LocalDateTime) r[8]));
+                afterId = (Long) r[0];
+            }
+            indexed += rows.size();
+            if (rows.size() < BOOTSTRAP_BATCH_SIZE) break;
+        }
+        return indexed;
+    }
+
+    @EventListener
+    public void onMessageSaved(ChatMessageEvents.MessageSaved event) {
+        index(event.message());
+    }
+
+    @EventListener
+    public void onMessageDeleted(ChatMessageEvents.MessageDeleted event) {
+        remove(event.messageId());
+    }
+
+    // Incremental indexing; message must already be persisted
+    public void index(ChatMessage message) {
+        if (message == null || message.getId() == null || message.getInquiry() == null) return;
+        try {
+            PropertyInquiry inquiry = message.getInquiry();
+            add(new Doc(message.getId(), inquiry.getId(),
+                    inquiry.getClient() != null ? inquiry.getClient().getId() : null,
+                    inquiry.getOwner() != null ? inquiry.getOwner().getId() : null,
+                    message.getSender() != null ? message.getSender().getId() : null,
+                    message.getMessageType(), message.getContent(), message.getPriceAmount(), message.getSentAt()));
+        } catch (Exception e) {
+            System.err.println("[ChatSearch] Failed to index message " + message.getId() + ": " + e.getMessage());
+        }
+    }
+
+    public void remove(Long messageId) {
+        Doc doc = docs.remove(messageId);
+        if (doc == null) return;
+        for (String term : terms(doc)) {
+            postings.computeIfPresent(term, (t, ids) -> {
+                ids.remove(doc.id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Runs a query for a user. Pass {@code userId == null} for an unscoped (admin) search.
+     * Hits are ordered newest first; returns "results", "total", "page" and "size".
+     */
+    public Map<String, Object> search(String query, Long userId, int page, int size) {
+        List<String> words = new ArrayList<>();
+        List<String> filters = new ArrayList<>();
+        for (String raw : query == null ? new String[0] : query.trim().split("\\s+")) {
+            String lower = raw.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("type:") || lower.startsWith("price:")) {
+                filters.add(normalizeFilter(lower));
+            } else {
+                words.addAll(tokenize(lower));
+            }
+        }
+
+        List<Long> ids = new ArrayList<>();
+        int total = 0;
+        if (!words.isEmpty() || !filters.isEmpty()) {
+            List<Set<Long>> sets = new ArrayList<>();
+            for (String f : filters) sets.add(postings.getOrDefault(f, Collections.emptySet()));
+            for (int i = 0; i < words.size(); i++) {
+                boolean last = i == words.size() - 1;
+                sets.add(last ? prefixMatches(words.get(i)) : postings.getOrDefault(words.get(i), Collections.emptySet()));
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+
+            for (Long id : sets.get(0)) {
+                boolean all = true;
+                for (int i = 1; i < sets.size() && all; i++) all = sets.get(i).contains(id);
+                if (!all) continue;
+                Doc doc = docs.get(id);
+                if (doc != null && (userId == null || doc.visibleTo(userId))) ids.add(id);
+            }
+            ids.sort(Comparator.reverseOrder());
+            total = ids.size();
+        }
+
+        // long arithmetic: a large page number must give an empty page, not an overflowed index
+        int from = (int) Math.min((long) page * size, ids.size());
+        int to = (int) Math.min((long) from + size, ids.size());
+        List<SearchHit> results = new ArrayList<>(to - from);
+        for (Long id : ids.subList(from, to)) {
+            Doc doc = docs.get(id);
+            if (doc == null) continue;
+            SearchHit hit = new SearchHit();
+            hit.messageId = doc.id;
+            hit.inquiryId = doc.inquiryId;
+            hit.senderId = doc.senderId;
+            hit.messageType = doc.messageType != null ? doc.messageType.name() : null;
+            hit.priceAmount = doc.priceAmount;
+            hit.sentAt = doc.sentAt;
+            hit.highlight = highlight(doc.content, words);
+            results.add(hit);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", results);
+        response.put("total", total);
+        response.put("page", page);
+        response.put("size", size);
+        return response;
+    }
+
+    private void add(Doc doc) {
+        if (docs.put(doc.id, doc) != null) return;
+        for (String term : terms(doc)) {
+            postings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(doc.id);
+        }
+    }
+
+    private Set<Long> prefixMatches(String prefix) {
+        NavigableMap<String, Set<Long>> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) return range.firstEntry().getValue();
+        Set<Long> union = new HashSet<>();
+        for (Set<Long> ids : range.values()) union.addAll(ids);
+        return union;
+    }
+
+    private static Set<String> terms(Doc doc) {
+        Set<String> terms = new HashSet<>(tokenize(doc.content));
+        if (doc.messageType != null) terms.add("type:" + doc.messageType.name().toLowerCase(Locale.ROOT));
+        if (doc.priceAmount != null) terms.add("price:" + plain(doc.priceAmount));
+        return terms;
+    }
+
+    private static String normalizeFilter(String filter) {
+        if (filter.startsWith("price:")) {
+            try {
+                return "price:" + plain(new BigDecimal(filter.substring(6).replace(",", "")));
+            } catch (NumberFormatException e) {
+                return filter;
+            }
+        }
+        return filter;
+    }
+
+    private static String plain(BigDecimal amount) {
+        return amount.stripTrailingZeros().toPlainString();
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+        return tokens;
+    }
+
+    // Trims the content to a snippet around the first match and wraps matched words in <mark>.
+    // The message text is HTML-escaped, so the <mark> tags are the only markup in the result
+    private static String highlight(String content, List<String> words) {
+        if (content == null) return null;
+        int from = 0;
+        int to = content.length();
+        if (content.length() > SNIPPET_LENGTH) {
+            int firstMatch = 0;
+            for (int[] span : wordSpans(content)) {
+                if (matches(content.substring(span[0], span[1]), words)) {
+                    firstMatch = span[0];
+                    break;
+                }
+            }
+            from = Math.max(0, Math.min(firstMatch - SNIPPET_LENGTH / 4, content.length() - SNIPPET_LENGTH));
+            to = Math.min(content.length(), from + SNIPPET_LENGTH);
+            // Snap to word boundaries
+            while (from > 0 && Character.isLetterOrDigit(content.charAt(from - 1))) from--;
+            while (to < content.length() && Character.isLetterOrDigit(content.charAt(to))) to++;
+        }
+
+        String snippet = content.substring(from, to);
+        StringBuilder out = new StringBuilder(snippet.length() + 32);
+        if (from > 0) out.append("...");
+        int last = 0;
+        for (int[] span : wordSpans(snippet)) {
+            String token = snippet.substring(span[0], span[1]);
+            if (!matches(token, words)) continue;
+            out.append(HtmlUtils.htmlEscape(snippet.substring(last, span[0])))
+                    .append("<mark>").append(HtmlUtils.htmlEscape(token)).append("</mark>");
+            last = span[1];
+        }
+        out.append(HtmlUtils.htmlEscape(snippet.substring(last)));
+        if (to < content.length()) out.append("...");
+        return out.toString();
+    }
+
+    private static boolean matches(String token, List<String> words) {
+        String lower = token.toLowerCase(Locale.ROOT);
+        for (int w = 0; w < words.size(); w++) {
+            boolean last = w == words.size() - 1;
+            if (last ? lower.startsWith(words.get(w)) : lower.equals(words.get(w))) return true;
+        }
+        return false;
+    }
+
+    private static List<int[]> wordSpans(String text) {
+        List<int[]> spans = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) i++;
+            spans.add(new int[]{start, i});
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,391 @@
+package com.realestate.service;
+
+import com.realestate.entity.*;
+import com.realestate.repository.AnalyticsDailyRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily analytics rollups: one row per day, metric and dimension value in analytics_daily_rollup, so a
+ * time series reads a contiguous range of small rows instead of scanning the source tables.
+ * Committed entity changes (inquiry created or purchased, booking created, payment paid), seen through
+ * Hibernate's post-commit events, add to in-memory deltas, written as upserts every
+ * analytics.rollup.flush-interval-ms; reads add whatever is still pending.
+ * The backfill recomputes whole days from the source tables, a chunk of days per transaction. It runs
+ * at startup when the table is empty, nightly over the last two days to correct drift, and on request.
+ * It stops at yesterday, since today's events are still arriving as deltas.
+ */
+@Service
+public class DailyRollupService {
+
+    public static final String ALL = "all";
+
+    public enum Metric {
+        INQUIRIES("inquiries"),   // inquiries created, by city:<property city>
+        PURCHASES("purchases"),   // inquiries purchased, amount = agreed price, by city:<property city>
+        BOOKINGS("bookings"),     // rent and PG bookings created, by kind:RENT|PG
+        PAYMENTS("payments");     // monthly payments paid, amount = rent + late fee, by kind:RENT|PG
+
+        private final String key;
+
+        Metric(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public static Optional<Metric> parse(String key) {
+            for (Metric m : values()) {
+                if (m.key.equalsIgnoreCase(key.trim())) return Optional.of(m);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /** One day of a metric; days without events are returned with zeros. */
+    public record Point(LocalDate day, long count, BigDecimal amount) {}
+
+    private record Key(LocalDate day, String metric, String dimension) {}
+
+    private static final class Delta {
+        long count;
+        BigDecimal amount = BigDecimal.ZERO;
+    }
+
+    @Autowired private AnalyticsDailyRollupRepository rollupRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @PersistenceContext private EntityManager entityManager;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    @Value("${analytics.rollup.backfill-days:365}")
+    private int backfillDays;
+
+    @Value("${analytics.rollup.backfill-chunk-days:31}")
+    private int chunkDays;
+
+    private final Map<Key, Delta> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+    }
+
+    private void onInquiryCreated(PropertyInquiry inquiry) {
+        LocalDateTime at = inquiry.getCreatedAt() != null ? inquiry.getCreatedAt() : LocalDateTime.now();
+        record(Metric.INQUIRIES, at.toLocalDate(), city(inquiry), 1, null);
+    }
+
+    private void onPurchase(PropertyInquiry inquiry) {
+        LocalDateTime at = inquiry.getClosedAt() != null ? inquiry.getClosedAt() : LocalDateTime.now();
+        record(Metric.PURCHASES, at.toLocalDate(), city(inquiry), 1, inquiry.getAgreedPrice());
+    }
+
+    // kind is RENT or PG
+    private void onBookingCreated(String kind) {
+        record(Metric.BOOKINGS, LocalDate.now(), "kind:" + kind, 1, null);
+    }
+
+    private void onPaymentPaid(MonthlyPayment payment) {
+        BigDecimal amount = payment.getAmount();
+        if (payment.getLateFee() != null) amount = amount.add(payment.getLateFee());
+        LocalDate day = payment.getPaidDate() != null ? payment.getPaidDate() : LocalDate.now();
+        record(Metric.PAYMENTS, day, "kind:" + (payment.getRentBooking() != null ? "RENT" : "PG"), 1, amount);
+    }
+
+    /**
+     * Every day from..to of each metric for one dimension value (ALL for the overall totals).
+     */
+    public Map<Metric, List<Point>> series(List<Metric> metrics, String dimension, LocalDate from, LocalDate to) {
+        Map<String, Metric> byKey = new HashMap<>();
+        metrics.forEach(m -> byKey.put(m.key(), m));
+        Map<Metric, Map<LocalDate, Delta>> days = new EnumMap<>(Metric.class);
+        metrics.forEach(m -> days.put(m, new HashMap<>()));
+
+        for (AnalyticsDailyRollup row : rollupRepo.findRange(byKey.keySet(), dimension, from, to)) {
+            Delta d = days.get(byKey.get(row.getMetric())).computeIfAbsent(row.getDay(), k -> new Delta());
+            d.count += row.getEventCount();
+            d.amount = d.amount.add(row.getAmount());
+        }
+        pending.forEach((key, delta) -> {
+            Metric metric = byKey.get(key.metric());
+            if (metric == null || !key.dimension().equals(dimension) || key.day().isBefore(from) || key.day().isAfter(to)) return;
+            Delta d = days.get(metric).computeIfAbsent(key.day(), k -> new Delta());
+            d.count += delta.count;
+            d.amount = d.amount.add(delta.amount);
+        });
+
+        Map<Metric, List<Point>> result = new EnumMap<>(Metric.class);
+        for (Metric metric : metrics) {
+            List<Point> points = new ArrayList<>();
+            Map<LocalDate, Delta> values = days.get(metric);
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                Delta d = values.get(day);
+                points.add(d != null ? new Point(day, d.count, d.amount) : new Point(day, 0, BigDecimal.ZERO));
+            }
+            result.put(metric, points);
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        Map<Key, Delta> batch = new HashMap<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            Delta d = pending.remove(key);
+            if (d != null) batch.put(key, d);
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    batch.forEach((k, d) -> rollupRepo.addDelta(k.day(), k.metric(), k.dimension(), d.count, d.amount)));
+        } catch (Exception e) {
+            System.err.println("[Rollup] Flush failed, keeping " + batch.size() + " deltas: " + e.getMessage());
+            batch.forEach((k, d) -> add(k, d.count, d.amount));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepo.count() > 0) return;
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            backfillAsync(yesterday.minusDays(backfillDays - 1L), yesterday);
+        } catch (Exception e) {
+            System.err.println("[Rollup] Startup backfill check failed: " + e.getMessage());
+        }
+    }
+
+    // Re-derives the last two days so anything that bypassed the deltas shows up by the next morning
+    @Scheduled(cron = "${analytics.rollup.backfill-cron:0 30 2 * * *}")
+    public void backfillRecent() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (backfilling.compareAndSet(false, true)) {
+            try {
+                backfill(yesterday.minusDays(1), yesterday);
+            } finally {
+                backfilling.set(false);
+            }
+        }
+    }
+
+    /** Starts a background backfill of from..to (capped at yesterday); false when one is already running. */
+    public boolean backfillAsync(LocalDate from, LocalDate to) {
+        if (!backfilling.compareAndSet(false, true)) return false;
+        Thread worker = new Thread(() -> {
+            try {
+                backfill(from, to);
+            } finally {
+                backfilling.set(false);
+            }
+        }, "rollup-backfill");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    private void backfill(LocalDate from, LocalDate to) {
+        LocalDate last = to.isBefore(LocalDate.now()) ? to : LocalDate.now().minusDays(1);
+        long started = System.currentTimeMillis();
+        int days = 0;
+        int rows = 0;
+        List<String> metricKeys = Arrays.stream(Metric.values()).map(Metric::key).toList();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            for (LocalDate chunkStart = from; !chunkStart.isAfter(last); chunkStart = chunkStart.plusDays(chunkDays)) {
+                LocalDate start = chunkStart;
+                LocalDate end = start.plusDays(chunkDays - 1L).isAfter(last) ? last : start.plusDays(chunkDays - 1L);
+                Integer written = recompute(tx, metricKeys, start, end);
+                rows += written != null ? written : 0;
+                days += (int) (end.toEpochDay() - start.toEpochDay() + 1);
+            }
+            System.out.println("[Rollup] Backfilled " + days + " days (" + rows + " rows) in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("[Rollup] Backfill failed after " + days + " days: " + e.getMessage());
+        }
+    }
+
+    // Holds the flush lock so no delta for these days is written while they are replaced, then drops the
+    // pending ones: their events were committed before the recompute read the source tables. A past-day
+    // event committing while the chunk is computed is left to the next nightly backfill.
+    private synchronized Integer recompute(TransactionTemplate tx, List<String> metricKeys, LocalDate start, LocalDate end) {
+        Integer written = tx.execute(status -> {
+            rollupRepo.deleteRange(metricKeys, start, end);
+            Map<Key, Delta> computed = compute(start, end);
+            computed.forEach((k, d) -> {
+                AnalyticsDailyRollup row = new AnalyticsDailyRollup();
+                row.setDay(k.day());
+                row.setMetric(k.metric());
+                row.setDimension(k.dimension());
+                row.setEventCount(d.count);
+                row.setAmount(d.amount);
+                entityManager.persist(row);
+            });
+            return computed.size();
+        });
+        pending.keySet().removeIf(k -> !k.day().isBefore(start) && !k.day().isAfter(end));
+        return written;
+    }
+
+    // Grouped queries over the source tables for from..to, in the same shape the deltas produce
+    private Map<Key, Delta> compute(LocalDate from, LocalDate to) {
+        Map<Key, Delta> result = new HashMap<>();
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+        for (Object[] r : rows("SELECT CAST(pi.created_at AS DATE), p.city, COUNT(*), 0 FROM property_inquiries pi " +
+                "JOIN properties p ON p.id = pi.property_id WHERE pi.created_at >= :start AND pi.created_at < :end " +
+                "GROUP BY CAST(pi.created_at AS DATE), p.city", start, end)) {
+            put(result, Metric.INQUIRIES, r, r[1] != null ? "city:" + r[1] : null);
+        }
+        for (Object[] r : rows("SELECT CAST(pi.closed_at AS DATE), p.city, COUNT(*), SUM(pi.agreed_price) FROM property_inquiries pi " +
+                "JOIN properties p ON p.id = pi.property_id WHERE pi.status = 'PURCHASED' AND pi.closed_at >= :start AND pi.closed_at < :end " +
+                "GROUP BY CAST(pi.closed_at AS DATE), p.city", start, end)) {
+            put(result, Metric.PURCHASES, r, r[1] != null ? "city:" + r[1] : null);
+        }
+        for (Object[] r : rows("SELECT CAST(created_at AS DATE), 'RENT', COUNT(*), 0 FROM rent_bookings " +
+                "WHERE created_at >= :start AND created_at < :end GROUP BY CAST(created_at AS DATE)", start, end)) {
+            put(result, Metric.BOOKINGS, r, "kind:RENT");
+        }
+        for (Object[] r : rows("SELECT CAST(created_at AS DATE), 'PG', COUNT(*), 0 FROM pg_bookings " +
+                "WHERE created_at >= :start AND created_at < :end GROUP BY CAST(created_at AS DATE)", start, end)) {
+            put(result, Metric.BOOKINGS, r, "kind:PG");
+        }
+        for (Object[] r : rows("SELECT paid_date, CASE WHEN rent_booking_id IS NOT NULL THEN 'RENT' ELSE 'PG' END, COUNT(*), " +
+                "SUM(amount + COALESCE(late_fee, 0)) FROM monthly_payments WHERE status = 'PAID' " +
+                "AND paid_date >= :start AND paid_date < :end " +
+                "GROUP BY paid_date, CASE WHEN rent_booking_id IS NOT NULL THEN 'RENT' ELSE 'PG' END", start.toLocalDate(), end.toLocalDate())) {
+            put(result, Metric.PAYMENTS, r, "kind:" + r[1]);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String sql, Object start, Object end) {
+        return entityManager.createNativeQuery(sql)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+    }
+
+    private static void put(Map<Key, Delta> result, Metric metric, Object[] row, String dimension) {
+        LocalDate day = toDate(row[0]);
+        long count = ((Number) row[2]).longValue();
+        BigDecimal amount = row[3] instanceof BigDecimal b ? b : row[3] != null ? new BigDecimal(row[3].toString()) : BigDecimal.ZERO;
+        for (String dim : dimension != null ? List.of(ALL, dimension) : List.of(ALL)) {
+            Delta d = result.computeIfAbsent(new Key(day, metric.key(), dim), k -> new Delta());
+            d.count += count;
+            d.amount = d.amount.add(amount);
+        }
+    }
+
+    private static LocalDate toDate(Object value) {
+        if (value instanceof LocalDate d) return d;
+        if (value instanceof java.sql.Date d) return d.toLocalDate();
+        if (value instanceof java.sql.Timestamp t) return t.toLocalDateTime().toLocalDate();
+        if (value instanceof LocalDateTime t) return t.toLocalDate();
+        return LocalDate.parse(value.toString().substring(0, 10));
+    }
+
+    private void record(Metric metric, LocalDate day, String dimension, long count, BigDecimal amount) {
+        add(new Key(day, metric.key(), ALL), count, amount);
+        if (dimension != null) add(new Key(day, metric.key(), dimension), count, amount);
+    }
+
+    private void add(Key key, long count, BigDecimal amount) {
+        pending.compute(key, (k, d) -> {
+            if (d == null) d = new Delta();
+            d.count += count;
+            if (amount != null) d.amount = d.amount.add(amount);
+            return d;
+        });
+    }
+
+    private static String city(PropertyInquiry inquiry) {
+        return inquiry.getProperty() != null && inquiry.getProperty().getCity() != null
+                ? "city:" + inquiry.getProperty().getCity() : null;
+    }
+
+    private static boolean tracked(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == PropertyInquiry.class || type == RentBooking.class || type == PgBooking.class
+                || type == MonthlyPayment.class;
+    }
+
+    private static Object status(EntityPersister persister, Object[] state) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals("status")) return state[i];
+        }
+        return null;
+    }
+
+    final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            Object entity = event.getEntity();
+            if (entity instanceof PropertyInquiry inquiry) onInquiryCreated(inquiry);
+            else if (entity instanceof RentBooking) onBookingCreated("RENT");
+            else if (entity instanceof PgBooking) onBookingCreated("PG");
+            else if (entity instanceof MonthlyPayment payment && payment.getStatus() == MonthlyPayment.PaymentStatus.PAID) {
+                onPaymentPaid(payment);
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!tracked(event.getPersister()) || event.getOldState() == null) return; // left to the nightly backfill
+            Object before = status(event.getPersister(), event.getOldState());
+            Object entity = event.getEntity();
+            if (entity instanceof PropertyInquiry inquiry && before != PropertyInquiry.InquiryStatus.PURCHASED
+                    && inquiry.getStatus() == PropertyInquiry.InquiryStatus.PURCHASED) {
+                onPurchase(inquiry);
+            } else if (entity instanceof MonthlyPayment payment && before != MonthlyPayment.PaymentStatus.PAID
+                    && payment.getStatus() == MonthlyPayment.PaymentStatus.PAID) {
+                onPaymentPaid(payment);
+            }
+        }
+
+        // Other listeners' entities are delivered here too once any listener asked for them
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return tracked(persister);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+    }
+}
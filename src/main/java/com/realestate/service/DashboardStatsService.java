@@ -0,0 +1,198 @@
+package com.realestate.service;
+
+import com.realestate.entity.Property;
+import com.realestate.entity.User;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * User and property totals behind /api/analytics/dashboard and /api/analytics/property-types.
+ * Built from two grouped queries (users by role; properties by status and type with their price
+ * figures) into an immutable snapshot that every call is answered from.
+ * The snapshot is rebuilt in the background once it is analytics.dashboard.ttl-ms old, or on the next
+ * check (every analytics.dashboard.refresh-check-ms) after a committed change to a user's role or a
+ * property's status, type or price, seen through Hibernate's post-commit events.
+ */
+@Service
+public class DashboardStatsService {
+
+    private static final Set<String> USER_FIELDS = Set.of("role");
+    private static final Set<String> PROPERTY_FIELDS = Set.of("status", "propertyType", "price");
+
+    /** Dashboard figures as of builtAt; the maps are unmodifiable. */
+    public record Snapshot(long builtAt, Map<String, Object> dashboard, Map<String, Long> propertyTypes) {}
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PropertyRepository propertyRepository;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    @Value("${analytics.dashboard.ttl-ms:300000}")
+    private long ttlMs;
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+        synchronized (this) {
+            if (snapshot == null) snapshot = build();
+            return snapshot;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.dashboard.refresh-check-ms:2000}")
+    public void refreshIfStale() {
+        Snapshot current = snapshot;
+        if (current == null) return; // built on first read
+        // Cleared before reading, so a change committed while the queries run triggers another rebuild
+        boolean changed = dirty.getAndSet(false);
+        if (!changed && System.currentTimeMillis() - current.builtAt() < ttlMs) return;
+        try {
+            Snapshot next = build();
+            synchronized (this) {
+                snapshot = next;
+            }
+        } catch (Exception e) {
+            dirty.set(true);
+            System.err.println("[DashboardStats] Refresh failed, serving the previous snapshot: " + e.getMessage());
+        }
+    }
+
+    private Snapshot build() {
+        long builtAt = System.currentTimeMillis();
+
+        Map<User.Role, Long> roles = new EnumMap<>(User.Role.class);
+        long totalUsers = 0;
+        for (Object[] row : userRepository.countGroupedByRole()) {
+            long count = ((Number) row[1]).longValue();
+            totalUsers += count;
+            if (row[0] != null) roles.put((User.Role) row[0], count);
+        }
+
+        Map<Property.PropertyStatus, Long> statuses = new EnumMap<>(Property.PropertyStatus.class);
+        Map<Property.PropertyType, Long> types = new EnumMap<>(Property.PropertyType.class);
+        long totalProperties = 0;
+        long priced = 0;
+        BigDecimal priceSum = BigDecimal.ZERO;
+        BigDecimal minPrice = null;
+        BigDecimal maxPrice = null;
+        for (Object[] row : propertyRepository.aggregateForDashboard()) {
+            long count = ((Number) row[2]).longValue();
+            totalProperties += count;
+            if (row[0] != null) statuses.merge((Property.PropertyStatus) row[0], count, Long::sum);
+            if (row[1] != null) types.merge((Property.PropertyType) row[1], count, Long::sum);
+            priced += ((Number) row[3]).longValue();
+            if (row[4] != null) priceSum = priceSum.add(decimal(row[4]));
+            if (row[5] != null && (minPrice == null || decimal(row[5]).compareTo(minPrice) < 0)) minPrice = decimal(row[5]);
+            if (row[6] != null && (maxPrice == null || decimal(row[6]).compareTo(maxPrice) > 0)) maxPrice = decimal(row[6]);
+        }
+
+        Map<String, Object> users = new HashMap<>();
+        users.put("total", totalUsers);
+        users.put("admins", roles.getOrDefault(User.Role.ADMIN, 0L));
+        users.put("agents", roles.getOrDefault(User.Role.AGENT, 0L));
+        users.put("clients", roles.getOrDefault(User.Role.USER, 0L));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("total", totalProperties);
+        properties.put("forSale", statuses.getOrDefault(Property.PropertyStatus.FOR_SALE, 0L));
+        properties.put("forRent", statuses.getOrDefault(Property.PropertyStatus.FOR_RENT, 0L));
+        properties.put("sold", statuses.getOrDefault(Property.PropertyStatus.SOLD, 0L));
+        properties.put("rented", statuses.getOrDefault(Property.PropertyStatus.RENTED, 0L));
+
+        Map<String, Object> pricing = new HashMap<>();
+        pricing.put("average", priced > 0 ? priceSum.divide(BigDecimal.valueOf(priced), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        pricing.put("minimum", minPrice != null ? minPrice : BigDecimal.ZERO);
+        pricing.put("maximum", maxPrice != null ? maxPrice : BigDecimal.ZERO);
+
+        Map<String, Long> propertyTypes = new HashMap<>();
+        for (Property.PropertyType type : Property.PropertyType.values()) {
+            propertyTypes.put(type.name(), types.getOrDefault(type, 0L));
+        }
+
+        Map<String, Object> dashboard = Map.of("users", Map.copyOf(users), "properties", Map.copyOf(properties), "pricing", Map.copyOf(pricing));
+        return new Snapshot(builtAt, dashboard, Map.copyOf(propertyTypes));
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value instanceof BigDecimal b ? b : new BigDecimal(value.toString());
+    }
+
+    private static Set<String> fields(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        if (type == User.class) return USER_FIELDS;
+        if (type == Property.class) return PROPERTY_FIELDS;
+        return null;
+    }
+
+    // Only the fields the dashboard counts matter; logins and profile edits leave the snapshot alone
+    private static boolean changed(EntityPersister persister, Object[] oldState, Object[] state) {
+        if (oldState == null || state == null) return true;
+        Set<String> fields = fields(persister);
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (fields.contains(names[i]) && !Objects.equals(oldState[i], state[i])) return true;
+        }
+        return false;
+    }
+
+    private final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (fields(event.getPersister()) != null) dirty.set(true);
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (fields(event.getPersister()) != null && changed(event.getPersister(), event.getOldState(), event.getState())) dirty.set(true);
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (fields(event.getPersister()) != null) dirty.set(true);
+        }
+
+        // Other listeners' entities are delivered here too once any listener asked for them
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return fields(persister) != null;
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+    }
+}
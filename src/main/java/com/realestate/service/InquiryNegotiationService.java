@@ -0,0 +1,319 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.entity.User;
+import com.realestate.repository.ChatMessageRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Single place where an inquiry's negotiation state changes.
+ * Every transition reloads the inquiry in its own transaction, validates it against the state machine
+ * below and saves it under the @Version check; a concurrent change makes the commit fail and the whole
+ * transition (including its chat message) is retried against the fresh state.
+ * Offers carrying an expectedVersion older than the inquiry are rejected instead of overwriting newer terms.
+ */
+@Service
+public class InquiryNegotiationService {
+
+    private static final Map<InquiryStatus, Set<InquiryStatus>> TRANSITIONS = new EnumMap<>(InquiryStatus.class);
+
+    static {
+        TRANSITIONS.put(InquiryStatus.ACTIVE, EnumSet.of(InquiryStatus.NEGOTIATING, InquiryStatus.AGREED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED));
+        TRANSITIONS.put(InquiryStatus.NEGOTIATING, EnumSet.of(InquiryStatus.AGREED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED));
+        TRANSITIONS.put(InquiryStatus.AGREED, EnumSet.of(InquiryStatus.NEGOTIATING, InquiryStatus.PURCHASED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED));
+        TRANSITIONS.put(InquiryStatus.PURCHASED, EnumSet.noneOf(InquiryStatus.class));
+        TRANSITIONS.put(InquiryStatus.CANCELLED, EnumSet.noneOf(InquiryStatus.class));
+        TRANSITIONS.put(InquiryStatus.CLOSED, EnumSet.noneOf(InquiryStatus.class));
+    }
+
+    private static final Set<ChatMessage.MessageType> NEGOTIATION_TYPES = EnumSet.of(
+            ChatMessage.MessageType.PRICE_OFFER, ChatMessage.MessageType.PRICE_COUNTER,
+            ChatMessage.MessageType.PRICE_ACCEPT, ChatMessage.MessageType.PRICE_REJECT,
+            ChatMessage.MessageType.PURCHASE_REQUEST, ChatMessage.MessageType.PURCHASE_CONFIRM);
+
+    @Autowired private PropertyInquiryRepository inquiryRepo;
+    @Autowired private ChatMessageRepository messageRepo;
+    @Autowired private PropertyRepository propertyRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private InquiryStatsService inquiryStats;
+
+    @Value("${inquiry.negotiation.max-attempts:5}")
+    private int maxAttempts;
+
+    public static class TransitionRejectedException extends RuntimeException {
+        // NOT_ALLOWED: the transition is not permitted (HTTP 400); CONFLICT: the request lost against newer
+        // state (409); NOT_FOUND: no such inquiry, or the user is not a party to it (404)
+        public enum Kind { NOT_ALLOWED, CONFLICT, NOT_FOUND }
+
+        private final Kind kind;
+
+        public TransitionRejectedException(String message, Kind kind) {
+            super(message);
+            this.kind = kind;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public boolean isConflict() {
+            return kind == Kind.CONFLICT;
+        }
+
+        public boolean isNotFound() {
+            return kind == Kind.NOT_FOUND;
+        }
+    }
+
+    /** Inquiry after the transition (parties and property loaded) and the chat message it produced. */
+    public record Outcome(PropertyInquiry inquiry, ChatMessage message) {}
+
+    /** Inquiry after a payment, and whether this call is the one that completed the purchase. */
+    public record PaymentOutcome(PropertyInquiry inquiry, boolean purchased) {}
+
+    // Open offers from before offers were attributed, so an owner's counter is not taken for the client's
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOfferAuthors() {
+        try {
+            int updated = inquiryRepo.backfillLastOfferBy();
+            if (updated > 0) System.out.println("[Negotiation] Attributed open offers of " + updated + " inquiries");
+        } catch (Exception e) {
+            System.err.println("[Negotiation] Offer author backfill failed: " + e.getMessage());
+        }
+    }
+
+    public static boolean isNegotiation(ChatMessage.MessageType type) {
+        return NEGOTIATION_TYPES.contains(type);
+    }
+
+    /**
+     * Applies a negotiation message (offer, counter, accept, reject, purchase request/confirm) and stores it.
+     * expectedVersion is the inquiry version the sender was looking at; null skips the staleness check.
+     */
+    public Outcome negotiate(Long inquiryId, User sender, ChatMessage.MessageType type, String content,
+                             BigDecimal price, Long expectedVersion) {
+        if (!isNegotiation(type)) {
+            throw new IllegalArgumentException(type + " is not a negotiation message");
+        }
+        return withRetry(() -> {
+            PropertyInquiry inquiry = load(inquiryId);
+            boolean isClient = sender.getId().equals(inquiry.getClient().getId());
+            boolean isOwner = sender.getId().equals(inquiry.getOwner().getId());
+            if (!isClient && !isOwner) throw notFound("Inquiry not found or access denied");
+            if (!inquiry.canBeModified()) throw rejected("Inquiry is " + inquiry.getStatus() + " and can no longer change");
+            if (expectedVersion != null && expectedVersion != inquiry.getVersion()) {
+                throw conflict("The negotiation has moved on since this offer was made, reload and try again");
+            }
+
+            BigDecimal messagePrice = price;
+            switch (type) {
+                case PRICE_OFFER, PRICE_COUNTER -> {
+                    if (price == null || price.signum() <= 0) throw rejected("An offer needs a positive price");
+                    if (inquiry.getStatus() != InquiryStatus.NEGOTIATING) move(inquiry, InquiryStatus.NEGOTIATING);
+                    inquiry.setOfferedPrice(price);
+                    inquiry.setAgreedPrice(null);
+                    inquiry.setLastOfferBy(sender.getId());
+                }
+                case PRICE_ACCEPT -> {
+                    requireOpenOfferFromOtherParty(inquiry, sender);
+                    if (price != null && price.compareTo(inquiry.getOfferedPrice()) != 0) {
+                        throw conflict("The offer is now ₹" + inquiry.getOfferedPrice() + ", not ₹" + price);
+                    }
+                    move(inquiry, InquiryStatus.AGREED);
+                    inquiry.setAgreedPrice(inquiry.getOfferedPrice());
+                    messagePrice = inquiry.getOfferedPrice();
+                }
+                case PRICE_REJECT -> {
+                    requireOpenOfferFromOtherParty(inquiry, sender);
+                    messagePrice = inquiry.getOfferedPrice();
+                }
+                case PURCHASE_REQUEST -> {
+                    if (!isClient) throw rejected("Only the client can request the purchase");
+                    if (inquiry.getStatus() != InquiryStatus.AGREED) throw rejected("A price has to be agreed first");
+                    if (price != null && price.compareTo(inquiry.getAgreedPrice()) != 0) {
+                        throw conflict("The agreed price is ₹" + inquiry.getAgreedPrice() + ", not ₹" + price);
+                    }
+                    messagePrice = inquiry.getAgreedPrice();
+                }
+                case PURCHASE_CONFIRM -> {
+                    if (!isOwner) throw rejected("Only the owner can confirm the purchase");
+                    completePurchase(inquiry);
+                    messagePrice = inquiry.getAgreedPrice();
+                }
+                default -> throw new IllegalStateException();
+            }
+            // Touching the row also bumps the version, so every accepted step invalidates older offers
+            inquiry.setUpdatedAt(LocalDateTime.now());
+
+            ChatMessage message = messageRepo.save(new ChatMessage(inquiry, sender, type, content, messagePrice));
+            return new Outcome(inquiry, message);
+        });
+    }
+
+    /**
+     * Explicit status change (PATCH /api/inquiries/{id}/status). Admins may change any inquiry.
+     */
+    public PropertyInquiry changeStatus(Long inquiryId, User actor, InquiryStatus target) {
+        return withRetry(() -> {
+            PropertyInquiry inquiry = load(inquiryId);
+            boolean isAdmin = actor.getRole() == User.Role.ADMIN;
+            boolean isOwner = actor.getId().equals(inquiry.getOwner().getId());
+            if (!isAdmin && !isOwner && !actor.getId().equals(inquiry.getClient().getId())) {
+                throw notFound("Inquiry not found or access denied");
+            }
+            if (inquiry.getStatus() == target) return inquiry;
+
+            if (target == InquiryStatus.PURCHASED) {
+                if (!isOwner && !isAdmin) throw rejected("Only the owner can confirm the purchase");
+                completePurchase(inquiry);
+            } else {
+                if (target == InquiryStatus.AGREED) {
+                    // Same rule as PRICE_ACCEPT: only the other party can agree to an offer
+                    if (!isAdmin) requireOpenOfferFromOtherParty(inquiry, actor);
+                    else if (inquiry.getOfferedPrice() == null) throw rejected("There is no offer to agree on");
+                }
+                move(inquiry, target);
+                if (target == InquiryStatus.AGREED) inquiry.setAgreedPrice(inquiry.getOfferedPrice());
+                else if (target == InquiryStatus.NEGOTIATING) inquiry.setAgreedPrice(null); // back to open offers
+            }
+            inquiry.setUpdatedAt(LocalDateTime.now());
+            return inquiry;
+        });
+    }
+
+    /**
+     * Verified token payment: the deal is done whatever stage the negotiation was at, as long as the
+     * inquiry is still open and the property has not been sold through another inquiry. Idempotent:
+     * only the call whose transaction moved the inquiry to PURCHASED reports purchased=true, so a
+     * repeated or concurrent verify of the same payment can tell it must not charge again.
+     */
+    public PaymentOutcome completePurchaseFromPayment(Long inquiryId) {
+        try {
+            return withRetry(() -> {
+                PropertyInquiry inquiry = load(inquiryId);
+                if (inquiry.getStatus() == InquiryStatus.PURCHASED) return new PaymentOutcome(inquiry, false);
+                if (!inquiry.canBeModified()) throw rejected("Inquiry is " + inquiry.getStatus() + " and can no longer change");
+                markPropertySold(inquiry);
+                inquiry.setStatus(InquiryStatus.PURCHASED);
+                inquiry.setUpdatedAt(LocalDateTime.now());
+                return new PaymentOutcome(inquiry, true);
+            });
+        } catch (TransitionRejectedException e) {
+            // A concurrent verify of the same inquiry holds the property row and sells it first; this attempt
+            // then finds the property SOLD. Re-read: if it was this inquiry's sale, report it as already done.
+            if (e.isNotFound()) throw e;
+            PropertyInquiry current = inquiryRepo.findByIdWithParties(inquiryId).orElseThrow(() -> e);
+            if (current.getStatus() == InquiryStatus.PURCHASED) return new PaymentOutcome(current, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes inquiries that have had no activity since cutoff (stale sweeper), in one statement.
+     * Inquiries that saw activity in the meantime are left alone. Returns the ids that were closed.
+     */
+    public List<Long> closeStale(List<PropertyInquiry> inquiries, LocalDateTime cutoff) {
+        if (inquiries.isEmpty()) return List.of();
+        List<Long> inquiryIds = inquiries.stream().map(PropertyInquiry::getId).toList();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Whole seconds, so the marker compares equal whatever precision the column keeps
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Long> closed = tx.execute(status -> inquiryRepo.closeStale(inquiryIds, cutoff, now) == 0
+                ? List.<Long>of()
+                : inquiryRepo.findIdsClosedAt(inquiryIds, now));
+        // Status unchanged since the sweeper read them: any activity would have kept them open
+        inquiryStats.onBulkChange(inquiries.stream().filter(i -> closed.contains(i.getId())).toList(), InquiryStatus.CLOSED);
+        return closed;
+    }
+
+    private void completePurchase(PropertyInquiry inquiry) {
+        if (inquiry.getStatus() != InquiryStatus.AGREED) throw rejected("A price has to be agreed before the sale");
+        markPropertySold(inquiry);
+        move(inquiry, InquiryStatus.PURCHASED);
+    }
+
+    // Conditional UPDATE holds the property row until commit; a second sale of the same property finds it SOLD
+    private void markPropertySold(PropertyInquiry inquiry) {
+        Property property = inquiry.getProperty();
+        if (propertyRepo.markSoldIfUnsold(property.getId(), Property.PropertyStatus.SOLD, LocalDateTime.now()) == 0) {
+            throw rejected("This property has already been sold");
+        }
+        property.setStatus(Property.PropertyStatus.SOLD);
+    }
+
+    private static void requireOpenOfferFromOtherParty(PropertyInquiry inquiry, User sender) {
+        if (inquiry.getOfferedPrice() == null) throw rejected("There is no open offer");
+        // Unset only on an opening offer made before offers were attributed, which is the client's
+        Long offeredBy = inquiry.getLastOfferBy() != null ? inquiry.getLastOfferBy() : inquiry.getClient().getId();
+        if (sender.getId().equals(offeredBy)) throw rejected("You cannot answer your own offer");
+    }
+
+    private static void move(PropertyInquiry inquiry, InquiryStatus target) {
+        if (!TRANSITIONS.get(inquiry.getStatus()).contains(target)) {
+            throw rejected("Cannot move inquiry from " + inquiry.getStatus() + " to " + target);
+        }
+        inquiry.setStatus(target);
+    }
+
+    private PropertyInquiry load(Long inquiryId) {
+        return inquiryRepo.findByIdWithParties(inquiryId).orElseThrow(() -> notFound("Inquiry not found"));
+    }
+
+    // Each attempt runs in a fresh transaction so it re-reads the row; callers must not hold one open
+    private <T> T withRetry(Supplier<T> transition) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tx.execute(status -> transition.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw conflict("The inquiry is being changed by someone else, please try again");
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw conflict("Interrupted while retrying the inquiry update");
+                }
+            }
+        }
+    }
+
+    private static TransitionRejectedException rejected(String message) {
+        return new TransitionRejectedException(message, TransitionRejectedException.Kind.NOT_ALLOWED);
+    }
+
+    private static TransitionRejectedException conflict(String message) {
+        return new TransitionRejectedException(message, TransitionRejectedException.Kind.CONFLICT);
+    }
+
+    private static TransitionRejectedException notFound(String message) {
+        return new TransitionRejectedException(message, TransitionRejectedException.Kind.NOT_FOUND);
+    }
+}
@@ -0,0 +1,213 @@
+package com.realestate.service;
+
+import com.realestate.entity.Notification;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.NotificationRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reminds or closes open inquiries (ACTIVE, NEGOTIATING) that have gone quiet, so idle threads stop
+ * piling up in the inboxes.
+ * After inquiry.stale.nudge-days without activity the party whose turn it is gets a reminder; after
+ * inquiry.stale.expire-days the inquiry is closed and both parties are told.
+ * Stale inquiries are walked in (updatedAt, id) keyset chunks. Each phase keeps a watermark at the last
+ * row it handled, and since updatedAt only moves forward the next run starts there and reads only rows
+ * that went stale in between. Reminders are also recorded on the inquiry (nudged_at), so a restart,
+ * which resets the watermarks, does not send them twice.
+ * Notifications are grouped per recipient and chunk: one row and one push per user, however many of
+ * their inquiries are in the chunk.
+ */
+@Service
+public class InquiryStaleSweeper {
+
+    // Lower bound for the first run after startup
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired private PropertyInquiryRepository inquiryRepo;
+    @Autowired private NotificationRepository notificationRepo;
+    @Autowired private InquiryNegotiationService negotiationService;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${inquiry.stale.nudge-days:7}")
+    private int nudgeDays;
+
+    @Value("${inquiry.stale.expire-days:30}")
+    private int expireDays; // 0 keeps stale inquiries open
+
+    @Value("${inquiry.stale.batch-size:200}")
+    private int batchSize;
+
+    private record Mark(LocalDateTime updatedAt, long id) {}
+
+    private volatile Mark nudgeMark;
+    private volatile Mark expireMark;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Scheduled(cron = "${inquiry.stale.cron:0 15 * * * *}")
+    public void sweep() {
+        if (!running.compareAndSet(false, true)) return;
+        long started = System.currentTimeMillis();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expireCutoff = expireDays > 0 ? now.minusDays(expireDays) : null;
+            int[] expired = expireCutoff != null ? expire(expireCutoff) : new int[2];
+            int[] nudged = nudge(now.minusDays(nudgeDays), expireCutoff);
+            long elapsed = System.currentTimeMillis() - started;
+
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("finishedAt", LocalDateTime.now().toString());
+            run.put("scanned", expired[0] + nudged[0]);
+            run.put("expired", expired[1]);
+            run.put("nudged", nudged[1]);
+            run.put("elapsedMs", elapsed);
+            lastRun = run;
+            System.out.println("[StaleSweeper] Scanned " + run.get("scanned") + " stale inquiries, expired "
+                    + expired[1] + ", nudged " + nudged[1] + " in " + elapsed + " ms");
+        } catch (Exception e) {
+            System.err.println("[StaleSweeper] Sweep failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>(lastRun);
+        stats.put("running", running.get());
+        Mark n = nudgeMark;
+        Mark e = expireMark;
+        stats.put("nudgeWatermark", n != null ? n.updatedAt().toString() : null);
+        stats.put("expireWatermark", e != null ? e.updatedAt().toString() : null);
+        return stats;
+    }
+
+    // Returns {scanned, closed}
+    private int[] expire(LocalDateTime cutoff) {
+        int scanned = 0;
+        int closed = 0;
+        Mark mark = expireMark != null ? expireMark : new Mark(START, 0);
+        while (true) {
+            List<PropertyInquiry> chunk = inquiryRepo.findStaleInquiries(cutoff, mark.updatedAt(), mark.id(), false,
+                    PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) break;
+            scanned += chunk.size();
+
+            Set<Long> closedIds = new HashSet<>(negotiationService.closeStale(chunk, cutoff));
+            Map<User, List<PropertyInquiry>> byRecipient = new LinkedHashMap<>();
+            for (PropertyInquiry inquiry : chunk) {
+                if (!closedIds.contains(inquiry.getId())) continue;
+                byRecipient.computeIfAbsent(inquiry.getClient(), u -> new ArrayList<>()).add(inquiry);
+                byRecipient.computeIfAbsent(inquiry.getOwner(), u -> new ArrayList<>()).add(inquiry);
+            }
+            notify(byRecipient, false, null);
+            closed += closedIds.size();
+
+            PropertyInquiry last = chunk.get(chunk.size() - 1);
+            mark = new Mark(last.getUpdatedAt(), last.getId());
+            expireMark = mark;
+            if (chunk.size() < batchSize) break;
+        }
+        return new int[]{scanned, closed};
+    }
+
+    // Returns {scanned, reminded}
+    private int[] nudge(LocalDateTime cutoff, LocalDateTime expireCutoff) {
+        int scanned = 0;
+        int reminded = 0;
+        Mark mark = nudgeMark;
+        // Anything idle beyond the expiry cutoff has just been closed
+        if (mark == null || (expireCutoff != null && mark.updatedAt().isBefore(expireCutoff))) {
+            mark = new Mark(expireCutoff != null ? expireCutoff : START, 0);
+        }
+        while (true) {
+            List<PropertyInquiry> chunk = inquiryRepo.findStaleInquiries(cutoff, mark.updatedAt(), mark.id(), true,
+                    PageRequest.of(0, batchSize));
+            if (chunk.isEmpty()) break;
+            scanned += chunk.size();
+
+            Map<User, List<PropertyInquiry>> byRecipient = new LinkedHashMap<>();
+            for (PropertyInquiry inquiry : chunk) {
+                byRecipient.computeIfAbsent(whoseTurn(inquiry), u -> new ArrayList<>()).add(inquiry);
+            }
+            notify(byRecipient, true, chunk.stream().map(PropertyInquiry::getId).toList());
+            reminded += chunk.size();
+
+            PropertyInquiry last = chunk.get(chunk.size() - 1);
+            mark = new Mark(last.getUpdatedAt(), last.getId());
+            nudgeMark = mark;
+            if (chunk.size() < batchSize) break;
+        }
+        return new int[]{scanned, reminded};
+    }
+
+    // The party that has to answer: whoever did not make the current offer, the owner for a bare inquiry
+    private static User whoseTurn(PropertyInquiry inquiry) {
+        Long lastOfferBy = inquiry.getLastOfferBy();
+        if (lastOfferBy != null && lastOfferBy.equals(inquiry.getOwner().getId())) return inquiry.getClient();
+        return inquiry.getOwner();
+    }
+
+    // One notification per recipient, stored with the reminder marks in one transaction and pushed after commit
+    private void notify(Map<User, List<PropertyInquiry>> byRecipient, boolean reminder, List<Long> nudgedIds) {
+        List<Notification> notifications = new ArrayList<>(byRecipient.size());
+        for (Map.Entry<User, List<PropertyInquiry>> e : byRecipient.entrySet()) {
+            notifications.add(notification(e.getKey(), e.getValue(), reminder));
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            if (nudgedIds != null) inquiryRepo.markNudged(nudgedIds, LocalDateTime.now());
+            notificationRepo.saveAll(notifications);
+        });
+
+        for (Notification notification : notifications) {
+            User recipient = notification.getRecipient();
+            try {
+                Map<String, Object> wsNotification = new HashMap<>();
+                wsNotification.put("type", reminder ? "INQUIRY_REMINDER" : "INQUIRY_EXPIRED");
+                wsNotification.put("notification", notification);
+                wsNotification.put("count", notification.getEventCount());
+                messagingTemplate.convertAndSendToUser(recipient.getEmail(), "/queue/notifications", wsNotification);
+            } catch (Exception ex) {
+                System.err.println("[StaleSweeper] Failed to push notification: " + ex.getMessage());
+            }
+        }
+    }
+
+    private Notification notification(User recipient, List<PropertyInquiry> inquiries, boolean reminder) {
+        Notification n = new Notification();
+        n.setRecipient(recipient);
+        n.setType(Notification.Type.INQUIRY_UPDATE);
+        n.setEventCount(inquiries.size());
+        StringBuilder titles = new StringBuilder();
+        for (int i = 0; i < inquiries.size() && i < 3; i++) {
+            if (i > 0) titles.append(", ");
+            titles.append(inquiries.get(i).getProperty().getTitle());
+        }
+        if (inquiries.size() > 3) titles.append(" and ").append(inquiries.size() - 3).append(" more");
+
+        if (inquiries.size() == 1) {
+            n.setLink("/inquiries/" + inquiries.get(0).getId());
+            n.setTitle(reminder ? "An inquiry is waiting for your reply" : "An inquiry was closed after " + expireDays + " days without activity");
+        } else {
+            n.setLink("/inquiries");
+            n.setTitle(reminder ? inquiries.size() + " inquiries are waiting for your reply"
+                    : inquiries.size() + " inquiries were closed after " + expireDays + " days without activity");
+        }
+        n.setBody(titles.toString());
+        return n;
+    }
+}
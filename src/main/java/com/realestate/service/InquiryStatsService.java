@@ -0,0 +1,174 @@
+package com.realestate.service;
+
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.repository.PropertyInquiryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Inquiry count and agreed-price total per status, behind the analytics summary and funnel.
+ * Loaded with one GROUP BY on first use and then kept current in memory from Hibernate's post-commit
+ * events: an inserted inquiry adds to its status, an update moves it between statuses. Reads never
+ * touch the inquiries table.
+ * A change committing while a load runs may be counted twice or missed, as may writes that bypass
+ * entities; the periodic rebuild (analytics.inquiry-stats.rebuild-ms) corrects that drift.
+ */
+@Service
+public class InquiryStatsService {
+
+    @Autowired private PropertyInquiryRepository inquiryRepo;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    /** Inquiries in one status and the sum of their agreed prices. */
+    public record StatusTotals(long count, BigDecimal agreedTotal) {}
+
+    private final long[] counts = new long[InquiryStatus.values().length];
+    private final BigDecimal[] agreedTotals = new BigDecimal[InquiryStatus.values().length];
+    private boolean loaded;
+    private long changes; // bumped by every applied change
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    public synchronized Map<InquiryStatus, StatusTotals> snapshot() {
+        if (!loaded) install(inquiryRepo.aggregateByStatus());
+        Map<InquiryStatus, StatusTotals> result = new EnumMap<>(InquiryStatus.class);
+        for (InquiryStatus status : InquiryStatus.values()) {
+            result.put(status, new StatusTotals(counts[status.ordinal()], agreedTotals[status.ordinal()]));
+        }
+        return result;
+    }
+
+    // Bulk status change that did not go through entities (stale sweeper), called once it committed
+    public void onBulkChange(List<PropertyInquiry> before, InquiryStatus after) {
+        for (PropertyInquiry inquiry : before) {
+            apply(inquiry.getStatus(), inquiry.getAgreedPrice(), after, inquiry.getAgreedPrice());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.inquiry-stats.rebuild-ms:900000}",
+               initialDelayString = "${analytics.inquiry-stats.rebuild-ms:900000}")
+    public void scheduledRebuild() {
+        synchronized (this) {
+            if (!loaded) return;
+        }
+        try {
+            List<Object[]> rows = inquiryRepo.aggregateByStatus();
+            synchronized (this) {
+                install(rows);
+            }
+        } catch (Exception e) {
+            System.err.println("[InquiryStats] Rebuild failed, keeping the running totals: " + e.getMessage());
+        }
+    }
+
+    // Bumped by every change that moved a count or total; lets dependent caches tell they are stale
+    public synchronized long changeCount() {
+        return changes;
+    }
+
+    private synchronized void apply(InquiryStatus from, BigDecimal fromPrice, InquiryStatus to, BigDecimal toPrice) {
+        if (from == to && Objects.equals(fromPrice, toPrice)) return;
+        changes++;
+        if (!loaded) return; // the first read loads everything committed so far
+        if (from != null) {
+            counts[from.ordinal()]--;
+            if (fromPrice != null) agreedTotals[from.ordinal()] = agreedTotals[from.ordinal()].subtract(fromPrice);
+        }
+        if (to != null) {
+            counts[to.ordinal()]++;
+            if (toPrice != null) agreedTotals[to.ordinal()] = agreedTotals[to.ordinal()].add(toPrice);
+        }
+    }
+
+    private void install(List<Object[]> rows) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(agreedTotals, BigDecimal.ZERO);
+        for (Object[] row : rows) {
+            InquiryStatus status = (InquiryStatus) row[0];
+            counts[status.ordinal()] = ((Number) row[1]).longValue();
+            agreedTotals[status.ordinal()] = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+        }
+        loaded = true;
+    }
+
+    private static boolean isInquiry(EntityPersister persister) {
+        return persister.getMappedClass() == PropertyInquiry.class;
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) return state[i];
+        }
+        return null;
+    }
+
+    final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (!isInquiry(event.getPersister())) return;
+            Object[] state = event.getState();
+            apply(null, null, (InquiryStatus) value(event.getPersister(), state, "status"),
+                    (BigDecimal) value(event.getPersister(), state, "agreedPrice"));
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!isInquiry(event.getPersister())) return;
+            if (event.getOldState() == null) return; // no loaded state to diff against, left to the rebuild
+            EntityPersister persister = event.getPersister();
+            apply((InquiryStatus) value(persister, event.getOldState(), "status"),
+                    (BigDecimal) value(persister, event.getOldState(), "agreedPrice"),
+                    (InquiryStatus) value(persister, event.getState(), "status"),
+                    (BigDecimal) value(persister, event.getState(), "agreedPrice"));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (!isInquiry(event.getPersister())) return;
+            Object[] state = event.getDeletedState();
+            apply((InquiryStatus) value(event.getPersister(), state, "status"),
+                    (BigDecimal) value(event.getPersister(), state, "agreedPrice"), null, null);
+        }
+
+        // Other listeners' entities are delivered here too once any listener asked for them
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return isInquiry(persister);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+    }
+}
@@ -0,0 +1,93 @@
+package com.realestate.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks which users currently have an inquiry's chat open.
+ * Clients subscribe to /user/queue/inquiries/{inquiryId} while the conversation is on screen;
+ * the subscription itself is only used as a "viewing" hint.
+ */
+@Component
+public class InquiryViewerRegistry {
+
+    private static final String VIEW_PREFIX = "/user/queue/inquiries/";
+
+    private static final class Subscription {
+        final String username;
+        final Long inquiryId;
+
+        Subscription(String username, Long inquiryId) {
+            this.username = username;
+            this.inquiryId = inquiryId;
+        }
+    }
+
+    // sessionId -> (subscriptionId -> subscription)
+    private final Map<String, Map<String, Subscription>> sessions = new ConcurrentHashMap<>();
+    // "username:inquiryId" -> number of open viewing subscriptions
+    private final Map<String, AtomicInteger> viewers = new ConcurrentHashMap<>();
+
+    public boolean isViewing(String username, Long inquiryId) {
+        if (username == null || inquiryId == null) return false;
+        AtomicInteger count = viewers.get(key(username, inquiryId));
+        return count != null && count.get() > 0;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Long inquiryId = parseInquiryId(accessor.getDestination());
+        Principal user = event.getUser();
+        if (inquiryId == null || user == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Subscription sub = new Subscription(user.getName(), inquiryId);
+        Subscription previous = sessions.computeIfAbsent(accessor.getSessionId(), s -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), sub);
+        if (previous != null) release(previous);
+        viewers.computeIfAbsent(key(sub.username, sub.inquiryId), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Subscription> subs = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subs == null || accessor.getSubscriptionId() == null) return;
+        Subscription sub = subs.remove(accessor.getSubscriptionId());
+        if (sub != null) release(sub);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Subscription> subs = sessions.remove(event.getSessionId());
+        if (subs == null) return;
+        subs.values().forEach(this::release);
+    }
+
+    private void release(Subscription sub) {
+        viewers.computeIfPresent(key(sub.username, sub.inquiryId), (k, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    private static Long parseInquiryId(String destination) {
+        if (destination == null || !destination.startsWith(VIEW_PREFIX)) return null;
+        try {
+            return Long.valueOf(destination.substring(VIEW_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String key(String username, Long inquiryId) {
+        return username + ":" + inquiryId;
+    }
+}
@@ -27,8 +27,8 @@ public class LateFeeCalculationService {
     private static final int DEFAULT_GRACE_PERIOD_DAYS = 3;
     private static final BigDecimal MAX_LATE_FEE_PERCENTAGE = new BigDecimal("0.25"); // Max 25% of monthly rent
 
-    // Run daily at 2 AM to check for overdue payments
-    @Scheduled(cron = "0 0 2 * * *")
+    // Daily overdue processing (late fees, OVERDUE, terminations); off unless payments.overdue.cron is set, e.g. "0 0 2 * * *"
+    @Scheduled(cron = "${payments.overdue.cron:-}")
     public void processOverduePayments() {
         System.out.println("Starting daily overdue payment processing...");
         
@@ -246,8 +246,8 @@ public class LateFeeCalculationService {
         }
     }
 
-    // Send payment reminders (run every Monday at 9 AM)
-    @Scheduled(cron = "0 0 9 * * MON")
+    // Send payment reminders; off unless payments.reminders.cron is set, e.g. "0 0 9 * * MON"
+    @Scheduled(cron = "${payments.reminders.cron:-}")
     public void sendPaymentReminders() {
         LocalDate today = LocalDate.now();
         LocalDate reminderDate = today.plusDays(3); // Remind 3 days before due
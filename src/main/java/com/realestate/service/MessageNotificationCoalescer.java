@@ -0,0 +1,171 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.Notification;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.User;
+import com.realestate.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merges chat message notifications per (recipient, inquiry).
+ * Messages arriving within the coalescing window update a single Notification row
+ * (with an event counter) instead of inserting one row per message. The recipient gets one
+ * /queue/notifications frame when the window opens and at most one more per window length
+ * carrying the latest count, so a busy conversation does not push a frame per message.
+ */
+@Service
+public class MessageNotificationCoalescer {
+
+    @Autowired private NotificationRepository notificationRepo;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private InquiryViewerRegistry viewerRegistry;
+
+    @Value("${chat.notifications.coalesce-window-ms:60000}")
+    private long windowMs;
+
+    // Guarded by the window's monitor
+    private static final class Window {
+        Long notificationId;
+        Notification notification;
+        String recipientEmail;
+        Long inquiryId;
+        int count;
+        int pushedCount;
+        long lastEventAt;
+        long lastPushAt;
+        // Set once the window has left the map; a caller still holding it must look it up again
+        boolean retired;
+    }
+
+    private record Push(String recipientEmail, Long inquiryId, Notification notification, int count) {}
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void onMessage(PropertyInquiry inquiry, User sender, User recipient, ChatMessage message) {
+        // Recipient has this conversation open, the message frame itself is enough
+        if (viewerRegistry.isViewing(recipient.getEmail(), inquiry.getId())) return;
+
+        try {
+            String key = recipient.getId() + ":" + inquiry.getId();
+            List<Push> pushes = new ArrayList<>(2);
+            while (true) {
+                Window window = windows.computeIfAbsent(key, k -> new Window());
+                synchronized (window) {
+                    if (window.retired) continue; // evicted between the lookup and the lock
+                    update(window, inquiry, sender, recipient, message, pushes);
+                    break;
+                }
+            }
+            pushes.forEach(this::push);
+        } catch (Exception e) {
+            System.err.println("Failed to create message notification: " + e.getMessage());
+        }
+    }
+
+    private void update(Window window, PropertyInquiry inquiry, User sender, User recipient, ChatMessage message, List<Push> pushes) {
+        long now = System.currentTimeMillis();
+        Notification notification = null;
+        boolean expired = now - window.lastEventAt > windowMs;
+        if (window.notificationId != null && !expired) {
+            notification = notificationRepo.findById(window.notificationId)
+                    .filter(n -> !n.isRead())
+                    .orElse(null);
+        }
+        if (notification == null) {
+            // An expired notification's last count goes out before it is replaced (a read one needs no update)
+            if (expired && window.count > window.pushedCount) pushes.add(markPushed(window, now));
+            notification = new Notification();
+            notification.setType(Notification.Type.INQUIRY_UPDATE);
+            notification.setLink("/inquiries/" + inquiry.getId());
+            window.count = 0;
+            window.pushedCount = 0;
+        }
+        window.count++;
+        window.lastEventAt = now;
+
+        String senderName = sender.getFirstName() + " " + sender.getLastName();
+        notification.setRecipient(recipient);
+        notification.setEventCount(window.count);
+        notification.setTitle(window.count == 1
+                ? "New message from " + senderName
+                : window.count + " new messages from " + senderName);
+        notification.setBody(preview(message.getContent()));
+        notification = notificationRepo.save(notification);
+        // merge() hands back an uninitialized recipient proxy, keep the loaded user for serialization
+        notification.setRecipient(recipient);
+        window.notificationId = notification.getId();
+        window.notification = notification;
+        window.recipientEmail = recipient.getEmail();
+        window.inquiryId = inquiry.getId();
+
+        // Leading edge: the first message of a window is pushed straight away
+        if (window.pushedCount == 0) pushes.add(markPushed(window, now));
+    }
+
+    /**
+     * Trailing edge: pushes the latest count of windows that took more messages since their last frame,
+     * once a window length has passed since that frame, and drops windows that have been idle for longer
+     * than the window with nothing left to push.
+     */
+    @Scheduled(fixedDelayString = "${chat.notifications.flush-check-ms:1000}")
+    public void flushWindows() {
+        long now = System.currentTimeMillis();
+        List<Push> pushes = new ArrayList<>();
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            synchronized (window) {
+                if (window.retired) continue;
+                if (window.count > window.pushedCount && now - window.lastPushAt >= windowMs) {
+                    pushes.add(markPushed(window, now));
+                }
+                if (window.count == window.pushedCount && now - window.lastEventAt > windowMs) {
+                    window.retired = true;
+                    windows.remove(entry.getKey(), window);
+                }
+            }
+        }
+        pushes.forEach(this::push);
+    }
+
+    private static Push markPushed(Window window, long now) {
+        window.pushedCount = window.count;
+        window.lastPushAt = now;
+        return new Push(window.recipientEmail, window.inquiryId, window.notification, window.count);
+    }
+
+    private void push(Push push) {
+        try {
+            Map<String, Object> wsNotification = new HashMap<>();
+            wsNotification.put("type", "MESSAGE_NOTIFICATION");
+            wsNotification.put("notification", push.notification());
+            wsNotification.put("inquiryId", push.inquiryId());
+            wsNotification.put("count", push.count());
+
+            messagingTemplate.convertAndSendToUser(
+                push.recipientEmail(),
+                "/queue/notifications",
+                wsNotification
+            );
+        } catch (Exception e) {
+            System.err.println("Failed to push message notification: " + e.getMessage());
+        }
+    }
+
+    private static String preview(String content) {
+        if (content != null && content.length() > 100) {
+            return content.substring(0, 100) + "...";
+        }
+        return content;
+    }
+}
@@ -63,7 +63,7 @@ public class OtpService {
             otpTokenRepository.save(otpToken);
             
             // Send email
-            sendOtpEmail(email, otpCode, userOpt.get().getName());
+            sendOtpEmail(email, otpCode, userOpt.get().getFullName());
             
             // Clean up expired OTPs
             cleanupExpiredOtps();
@@ -0,0 +1,365 @@
+package com.realestate.service;
+
+import com.realestate.entity.MonthlyPayment;
+import com.realestate.entity.MonthlyPayment.PaymentStatus;
+import com.realestate.entity.PgBooking;
+import com.realestate.entity.RentBooking;
+import com.realestate.entity.User;
+import com.realestate.repository.MonthlyPaymentRepository;
+import com.realestate.repository.PgBookingRepository;
+import com.realestate.repository.RentBookingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Booking and payment counters per owner behind the owner views of /api/booking-analytics: bookings
+ * per status, payments per status with their amounts, and unpaid payments by due date.
+ * An owner is loaded with a few grouped queries on first read and then kept current from Hibernate's
+ * post-commit events for RentBooking, PgBooking and MonthlyPayment, which carry the row's state before
+ * and after the change, so every write path is covered without hooks at the call sites.
+ * A payment only references its booking, so booking owners are remembered as bookings are loaded, and a
+ * payment flushed with an unloaded booking has that booking loaded inside its transaction; the
+ * post-commit callbacks never query.
+ * Bulk JPQL updates bypass those events; all owners are dropped every analytics.owner-stats.refresh-ms
+ * and reloaded on their next read.
+ */
+@Service
+public class OwnerStatsService {
+
+    private static final int MAX_OWNERS = 10_000;
+
+    /** Counters of one owner as the booking analytics endpoints report them. */
+    public record OwnerStats(long activeRentBookings, long activePgBookings, long pendingApprovals,
+                             long pendingPayments, long overduePayments, long paidPayments,
+                             BigDecimal pendingAmount, BigDecimal overdueAmount,
+                             long unpaidPastDue) {}
+
+    private static final class Totals {
+        final long[] rent = new long[RentBooking.BookingStatus.values().length];
+        final long[] pg = new long[PgBooking.BookingStatus.values().length];
+        final long[] payments = new long[PaymentStatus.values().length];
+        final BigDecimal[] amounts = zeros();            // amount, per payment status
+        final BigDecimal[] amountsWithFees = zeros();    // amount + late fee, per payment status
+        final TreeMap<LocalDate, Long> unpaidByDueDate = new TreeMap<>();
+
+        private static BigDecimal[] zeros() {
+            BigDecimal[] a = new BigDecimal[PaymentStatus.values().length];
+            Arrays.fill(a, BigDecimal.ZERO);
+            return a;
+        }
+    }
+
+    // What one row adds to its owner's counters
+    private record Contribution(Long ownerId, Enum<?> status, BigDecimal amount, BigDecimal lateFee, LocalDate dueDate) {}
+
+    @Autowired private RentBookingRepository rentBookingRepo;
+    @Autowired private PgBookingRepository pgBookingRepo;
+    @Autowired private MonthlyPaymentRepository paymentRepo;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    // Owner loads in flight; a change to the owner while loading keeps the result out of the cache
+    private static final class Load {
+        int readers;
+        boolean changed;
+    }
+
+    private final Map<Long, Totals> owners = new HashMap<>();
+    private final Map<Long, Load> loads = new HashMap<>();
+    private final Map<Long, Long> rentBookingOwners = new ConcurrentHashMap<>();
+    private final Map<Long, Long> pgBookingOwners = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        OwnerResolver resolver = new OwnerResolver();
+        registry.appendListeners(EventType.POST_LOAD, resolver);
+        registry.appendListeners(EventType.POST_INSERT, resolver);
+        registry.appendListeners(EventType.POST_UPDATE, resolver);
+        registry.appendListeners(EventType.POST_DELETE, resolver);
+    }
+
+    public OwnerStats stats(Long ownerId) {
+        Load load;
+        synchronized (this) {
+            Totals cached = owners.get(ownerId);
+            if (cached != null) return view(cached);
+            load = loads.computeIfAbsent(ownerId, id -> new Load());
+            load.readers++;
+        }
+        Totals totals;
+        try {
+            totals = load(ownerId);
+        } finally {
+            synchronized (this) {
+                if (--load.readers == 0) loads.remove(ownerId);
+            }
+        }
+        synchronized (this) {
+            // A change to this owner that committed while loading may or may not be in the result; keep it uncached then
+            if (!load.changed && !owners.containsKey(ownerId)) {
+                if (owners.size() >= MAX_OWNERS) owners.clear();
+                owners.put(ownerId, totals);
+            }
+            return view(totals);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.owner-stats.refresh-ms:900000}",
+               initialDelayString = "${analytics.owner-stats.refresh-ms:900000}")
+    public synchronized void refresh() {
+        owners.clear();
+        loads.values().forEach(l -> l.changed = true);
+    }
+
+    private Totals load(Long ownerId) {
+        Totals totals = new Totals();
+        for (Object[] row : rentBookingRepo.countByStatusForOwner(ownerId)) {
+            totals.rent[((RentBooking.BookingStatus) row[0]).ordinal()] = ((Number) row[1]).longValue();
+        }
+        for (Object[] row : pgBookingRepo.countByStatusForOwner(ownerId)) {
+            totals.pg[((PgBooking.BookingStatus) row[0]).ordinal()] = ((Number) row[1]).longValue();
+        }
+        List<Object[]> payments = new ArrayList<>(paymentRepo.aggregateRentPaymentsForOwner(ownerId));
+        payments.addAll(paymentRepo.aggregatePgPaymentsForOwner(ownerId));
+        for (Object[] row : payments) {
+            int status = ((PaymentStatus) row[0]).ordinal();
+            long count = ((Number) row[2]).longValue();
+            totals.payments[status] += count;
+            totals.amounts[status] = totals.amounts[status].add(decimal(row[3]));
+            totals.amountsWithFees[status] = totals.amountsWithFees[status].add(decimal(row[4]));
+            if (row[0] != PaymentStatus.PAID && row[1] != null) totals.unpaidByDueDate.merge((LocalDate) row[1], count, Long::sum);
+        }
+        return totals;
+    }
+
+    private static OwnerStats view(Totals t) {
+        long pastDue = t.unpaidByDueDate.headMap(LocalDate.now(), false).values().stream().mapToLong(Long::longValue).sum();
+        return new OwnerStats(
+                t.rent[RentBooking.BookingStatus.ACTIVE.ordinal()],
+                t.pg[PgBooking.BookingStatus.ACTIVE.ordinal()],
+                t.rent[RentBooking.BookingStatus.PENDING_APPROVAL.ordinal()] + t.pg[PgBooking.BookingStatus.PENDING_APPROVAL.ordinal()],
+                t.payments[PaymentStatus.PENDING.ordinal()],
+                t.payments[PaymentStatus.OVERDUE.ordinal()],
+                t.payments[PaymentStatus.PAID.ordinal()],
+                t.amounts[PaymentStatus.PENDING.ordinal()],
+                t.amountsWithFees[PaymentStatus.OVERDUE.ordinal()],
+                pastDue);
+    }
+
+    private synchronized void apply(Contribution before, Contribution after) {
+        if (Objects.equals(before, after)) return;
+        if (before != null) changed(before.ownerId());
+        if (after != null) changed(after.ownerId());
+        if (before != null) add(before, -1);
+        if (after != null) add(after, 1);
+    }
+
+    private void changed(Long ownerId) {
+        Load load = loads.get(ownerId);
+        if (load != null) load.changed = true;
+    }
+
+    private void add(Contribution c, int sign) {
+        Totals t = owners.get(c.ownerId());
+        if (t == null || c.status() == null) return; // loaded from the database on first read
+        if (c.status() instanceof RentBooking.BookingStatus s) {
+            t.rent[s.ordinal()] += sign;
+        } else if (c.status() instanceof PgBooking.BookingStatus s) {
+            t.pg[s.ordinal()] += sign;
+        } else if (c.status() instanceof PaymentStatus s) {
+            BigDecimal amount = c.amount() != null ? c.amount() : BigDecimal.ZERO;
+            BigDecimal withFee = c.lateFee() != null ? amount.add(c.lateFee()) : amount;
+            t.payments[s.ordinal()] += sign;
+            t.amounts[s.ordinal()] = sign > 0 ? t.amounts[s.ordinal()].add(amount) : t.amounts[s.ordinal()].subtract(amount);
+            t.amountsWithFees[s.ordinal()] = sign > 0 ? t.amountsWithFees[s.ordinal()].add(withFee) : t.amountsWithFees[s.ordinal()].subtract(withFee);
+            if (s != PaymentStatus.PAID && c.dueDate() != null) {
+                t.unpaidByDueDate.merge(c.dueDate(), (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+
+    // The row's contribution from a Hibernate state array; null for rows without an owner
+    private Contribution contribution(EntityPersister persister, Object[] state) {
+        if (state == null) return null;
+        String[] names = persister.getPropertyNames();
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < names.length; i++) values.put(names[i], state[i]);
+
+        Object entity = persister.getMappedClass();
+        if (entity == RentBooking.class || entity == PgBooking.class) {
+            Long ownerId = idOf(values.get("owner"));
+            return ownerId != null ? new Contribution(ownerId, (Enum<?>) values.get("status"), null, null, null) : null;
+        }
+        Object booking = values.get("rentBooking") != null ? values.get("rentBooking") : values.get("pgBooking");
+        if (booking == null) return null;
+        Long ownerId = bookingOwner(booking);
+        if (ownerId == null) {
+            // Resolved while the payment was flushed; missing only if that failed
+            throw new IllegalStateException("Owner of " + booking.getClass().getSimpleName() + " " + bookingId(booking) + " unknown");
+        }
+        return new Contribution(ownerId, (Enum<?>) values.get("status"),
+                (BigDecimal) values.get("amount"), (BigDecimal) values.get("lateFee"), (LocalDate) values.get("dueDate"));
+    }
+
+    // Bookings never change owner; from the loaded booking if it is, from the remembered owners otherwise
+    private Long bookingOwner(Object booking) {
+        Long id = bookingId(booking);
+        if (id == null) return null;
+        if (Hibernate.isInitialized(booking)) {
+            Long ownerId = idOf(booking instanceof RentBooking rb ? rb.getOwner() : ((PgBooking) booking).getOwner());
+            if (ownerId != null) return ownerId;
+        }
+        return (booking instanceof RentBooking ? rentBookingOwners : pgBookingOwners).get(id);
+    }
+
+    private void rememberOwner(Object booking) {
+        Long id = bookingId(booking);
+        Long ownerId = idOf(booking instanceof RentBooking rb ? rb.getOwner() : ((PgBooking) booking).getOwner());
+        if (id == null || ownerId == null) return;
+        Map<Long, Long> cache = booking instanceof RentBooking ? rentBookingOwners : pgBookingOwners;
+        if (cache.size() >= MAX_OWNERS * 10) cache.clear();
+        cache.put(id, ownerId);
+    }
+
+    // Ids of proxies are read from the proxy, without loading the row
+    private static Long bookingId(Object booking) {
+        LazyInitializer proxy = HibernateProxy.extractLazyInitializer(booking);
+        if (proxy != null) return (Long) proxy.getInternalIdentifier();
+        return booking instanceof RentBooking rb ? rb.getId() : ((PgBooking) booking).getId();
+    }
+
+    private static Long idOf(Object user) {
+        if (user == null) return null;
+        LazyInitializer proxy = HibernateProxy.extractLazyInitializer(user);
+        return proxy != null ? (Long) proxy.getInternalIdentifier() : ((User) user).getId();
+    }
+
+    private static boolean tracked(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == RentBooking.class || type == PgBooking.class || type == MonthlyPayment.class;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        return value instanceof BigDecimal b ? b : new BigDecimal(value.toString());
+    }
+
+    private final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            handle(() -> apply(null, contribution(event.getPersister(), event.getState())));
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            // Without the old state (e.g. an update of a detached instance) the owner is reloaded instead
+            if (event.getOldState() == null) {
+                Contribution after = contribution(event.getPersister(), event.getState());
+                if (after != null) handle(() -> evict(after.ownerId()));
+                return;
+            }
+            handle(() -> apply(contribution(event.getPersister(), event.getOldState()), contribution(event.getPersister(), event.getState())));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            handle(() -> apply(contribution(event.getPersister(), event.getDeletedState()), null));
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return tracked(persister);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+        private void handle(Runnable change) {
+            try {
+                change.run();
+            } catch (Exception e) {
+                System.err.println("[OwnerStats] Failed to apply change, dropping cached owners: " + e.getMessage());
+                refresh();
+            }
+        }
+    }
+
+    private synchronized void evict(Long ownerId) {
+        owners.remove(ownerId);
+        changed(ownerId);
+    }
+
+    /**
+     * Runs inside the transaction: remembers booking owners as bookings are loaded or written, and loads
+     * the booking of a payment whose owner is not known yet, so the post-commit listener finds it.
+     */
+    private final class OwnerResolver implements PostLoadEventListener, PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            Object entity = event.getEntity();
+            if (entity instanceof RentBooking || entity instanceof PgBooking) rememberOwner(entity);
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            resolve(event.getEntity());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            resolve(event.getEntity());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            resolve(event.getEntity());
+        }
+
+        private void resolve(Object entity) {
+            if (entity instanceof RentBooking || entity instanceof PgBooking) {
+                rememberOwner(entity);
+            } else if (entity instanceof MonthlyPayment payment) {
+                Object booking = payment.getRentBooking() != null ? payment.getRentBooking() : payment.getPgBooking();
+                if (booking != null && bookingOwner(booking) == null) {
+                    // A load by id, which does not flush; onPostLoad remembers the owner
+                    Hibernate.initialize(booking);
+                    rememberOwner(Hibernate.unproxy(booking));
+                }
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+    }
+}
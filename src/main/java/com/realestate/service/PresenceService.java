@@ -0,0 +1,152 @@
+package com.realestate.service;
+
+import com.realestate.entity.User;
+import com.realestate.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks who is online from STOMP CONNECT/DISCONNECT events and inbound frames.
+ * Session counts and last-seen times live in lock-free maps; online/offline transitions are
+ * pushed to /topic/presence and lastSeenAt is written to users in one batched UPDATE per flush.
+ * State is per node: with a cluster relay each node reports the sessions connected to it.
+ */
+@Service
+public class PresenceService {
+
+    @Autowired private UserRepository userRepo;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+
+    private final Map<Long, AtomicInteger> sessionCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> lastSeenMillis = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = resolveUserId(event.getUser());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (userId == null || sessionId == null) return;
+        if (sessionUsers.putIfAbsent(sessionId, userId) != null) return;
+
+        touch(userId);
+        if (sessionCounts.computeIfAbsent(userId, id -> new AtomicInteger()).incrementAndGet() == 1) {
+            publishDelta(userId, true);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        // Disconnect can be reported more than once per session; only the first removal counts
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) return;
+
+        touch(userId);
+        AtomicInteger count = sessionCounts.get(userId);
+        if (count != null && count.decrementAndGet() == 0) {
+            publishDelta(userId, false);
+        }
+    }
+
+    // Called for every inbound frame of a connected session
+    public void touchSession(String sessionId) {
+        if (sessionId == null) return;
+        Long userId = sessionUsers.get(sessionId);
+        if (userId != null) touch(userId);
+    }
+
+    public boolean isOnline(Long userId) {
+        AtomicInteger count = sessionCounts.get(userId);
+        return count != null && count.get() > 0;
+    }
+
+    public List<Map<String, Object>> getPresence(Collection<Long> userIds) {
+        // Users never seen on this node since startup fall back to the persisted value
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : userIds) {
+            if (!lastSeenMillis.containsKey(id)) unknown.add(id);
+        }
+        Map<Long, LocalDateTime> persisted = new HashMap<>();
+        if (!unknown.isEmpty()) {
+            for (User u : userRepo.findAllById(unknown)) persisted.put(u.getId(), u.getLastSeenAt());
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(userIds.size());
+        for (Long id : userIds) {
+            AtomicLong seen = lastSeenMillis.get(id);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("userId", id);
+            entry.put("online", isOnline(id));
+            entry.put("lastSeen", seen != null ? toDateTime(seen.get()) : persisted.get(id));
+            result.add(entry);
+        }
+        return result;
+    }
+
+    // Coalesced lastSeen write: one UPDATE for all users active since the previous flush
+    @Scheduled(fixedDelayString = "${presence.flush-interval-ms:30000}")
+    public void flushLastSeen() {
+        Set<Long> ids = new HashSet<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        // Connected users count as seen even if they sent nothing but heartbeats
+        sessionCounts.forEach((id, count) -> {
+            if (count.get() > 0) ids.add(id);
+        });
+        if (ids.isEmpty()) return;
+        try {
+            userRepo.updateLastSeen(ids, LocalDateTime.now());
+        } catch (Exception e) {
+            dirty.addAll(ids);
+            System.err.println("[Presence] Failed to flush lastSeen: " + e.getMessage());
+        }
+    }
+
+    private void touch(Long userId) {
+        lastSeenMillis.computeIfAbsent(userId, id -> new AtomicLong()).set(System.currentTimeMillis());
+        dirty.add(userId);
+    }
+
+    private void publishDelta(Long userId, boolean online) {
+        try {
+            Map<String, Object> delta = new HashMap<>();
+            delta.put("type", "PRESENCE");
+            delta.put("userId", userId);
+            delta.put("online", online);
+            delta.put("lastSeen", toDateTime(lastSeenMillis.get(userId).get()));
+            messagingTemplate.convertAndSend("/topic/presence", delta);
+        } catch (Exception e) {
+            System.err.println("[Presence] Failed to publish presence delta: " + e.getMessage());
+        }
+    }
+
+    private Long resolveUserId(Principal principal) {
+        if (principal == null) return null;
+        if (principal instanceof Authentication auth && auth.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return userRepo.findByEmailAndEnabledTrue(principal.getName()).map(User::getId).orElse(null);
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
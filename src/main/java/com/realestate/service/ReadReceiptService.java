@@ -0,0 +1,132 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.repository.ChatMessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers chat read marks instead of running a bulk UPDATE on every chat.markRead.
+ * A mark is a high-water message id per (reader, inquiry); marks are written in one transaction per
+ * flush. Until then read flags are corrected from the pending marks.
+ * Unread counts come from UnreadCounterService, rebuilt from the database (minus pending marks) on a miss.
+ */
+@Service
+public class ReadReceiptService {
+
+    @Autowired private ChatMessageRepository messageRepo;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private UnreadCounterService unreadCounters;
+
+    private record Mark(Long userId, Long inquiryId, long upToId, LocalDateTime readAt) {}
+
+    private final Map<String, Mark> pending = new ConcurrentHashMap<>();
+    // inquiryId -> highest message id seen, so marking read needs no query
+    private final Map<Long, AtomicLong> latestMessageIds = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onMessageSaved(ChatMessageEvents.MessageSaved event) {
+        ChatMessage message = event.message();
+        if (message.getId() == null || message.getInquiry() == null) return;
+        latestMessageIds.computeIfAbsent(message.getInquiry().getId(), id -> new AtomicLong())
+                .accumulateAndGet(message.getId(), Math::max);
+    }
+
+    /**
+     * Records that the user has read everything currently in the inquiry. Returns the mark's time.
+     */
+    public LocalDateTime markRead(Long userId, Long inquiryId) {
+        LocalDateTime now = LocalDateTime.now();
+        unreadCounters.reset(userId, inquiryId);
+        long upToId = latestMessageId(inquiryId);
+        if (upToId <= 0) return now;
+        pending.merge(key(userId, inquiryId), new Mark(userId, inquiryId, upToId, now),
+                (old, mark) -> old.upToId() >= mark.upToId() ? old : mark);
+        return now;
+    }
+
+    // Pending (not yet flushed) read mark of the user in the inquiry, 0 when none
+    public long pendingReadUpTo(Long userId, Long inquiryId) {
+        Mark mark = pending.get(key(userId, inquiryId));
+        return mark != null ? mark.upToId() : 0;
+    }
+
+    public long countUnread(Long inquiryId, Long userId) {
+        return unreadCounters.forInquiry(userId, null, inquiryId, this::loadUnread);
+    }
+
+    // email is where count changes get pushed (/user/queue/unread)
+    public long countTotalUnread(Long userId, String email) {
+        return unreadCounters.total(userId, email, this::loadUnread);
+    }
+
+    public Map<Long, Long> countUnreadByInquiry(Long userId, String email) {
+        return unreadCounters.perInquiry(userId, email, this::loadUnread);
+    }
+
+    // Counter rebuild: unread per inquiry from the database, minus what pending marks already cover
+    private UnreadCounterService.Snapshot loadUnread(Long userId) {
+        Long max = messageRepo.findMaxId();
+        long upToId = max != null ? max : 0;
+        Map<Long, Long> perInquiry = new HashMap<>();
+        for (Object[] row : messageRepo.countUnreadByInquiryForUser(userId, upToId)) {
+            perInquiry.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        // Pending marks are few (one flush interval worth)
+        for (Mark mark : pending.values()) {
+            if (!mark.userId().equals(userId) || !perInquiry.containsKey(mark.inquiryId())) continue;
+            Long covered = messageRepo.countUnreadMessagesUpTo(mark.inquiryId(), userId, mark.upToId());
+            perInquiry.computeIfPresent(mark.inquiryId(), (id, count) -> Math.max(count - (covered != null ? covered : 0), 0));
+        }
+        return new UnreadCounterService.Snapshot(perInquiry, upToId);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-receipts.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+        List<Mark> batch = new ArrayList<>(pending.values());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (Mark mark : batch) {
+                    messageRepo.markMessagesAsReadUpTo(mark.inquiryId(), mark.userId(), mark.upToId(), mark.readAt());
+                }
+            });
+            // A newer mark may have replaced one of these while the UPDATE ran; keep it for the next flush
+            for (Mark mark : batch) {
+                pending.remove(key(mark.userId(), mark.inquiryId()), mark);
+            }
+        } catch (Exception e) {
+            System.err.println("[ReadReceipts] Failed to flush read marks: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private long latestMessageId(Long inquiryId) {
+        AtomicLong latest = latestMessageIds.get(inquiryId);
+        if (latest != null) return latest.get();
+        Long max = messageRepo.findMaxMessageId(inquiryId);
+        if (max == null) return 0;
+        return latestMessageIds.computeIfAbsent(inquiryId, id -> new AtomicLong()).accumulateAndGet(max, Math::max);
+    }
+
+    private static String key(Long userId, Long inquiryId) {
+        return userId + ":" + inquiryId;
+    }
+}
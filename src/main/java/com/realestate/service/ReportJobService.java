@@ -0,0 +1,321 @@
+package com.realestate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Analytics reports rendered off the request thread. A submission returns a job id at once; the PDF is
+ * rendered by a pool of reports.workers threads (at most reports.queue-capacity waiting) straight into a
+ * temp file under reports.dir, then renamed to {key}.pdf. The key hashes the report type, its parameters
+ * and the version of the data it reads, so an identical request while one is queued or running joins
+ * that job, and a repeat after it finished is served from the existing file without rendering.
+ * Requesters get the finished job on /user/queue/reports; GET /api/analytics/reports/{id} polls it.
+ * Jobs and files unused for reports.retention-hours are removed.
+ */
+@Service
+public class ReportJobService {
+
+    public enum ReportType {
+        SUMMARY("analytics-summary"),
+        MONTHLY("portfolio-report");
+
+        private final String fileName;
+
+        ReportType(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public static Optional<ReportType> parse(String value) {
+            return Arrays.stream(values()).filter(t -> t.name().equalsIgnoreCase(value) || t.fileName.equalsIgnoreCase(value)).findFirst();
+        }
+    }
+
+    public enum JobStatus { QUEUED, RUNNING, DONE, FAILED }
+
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException() {
+            super("Report queue is full, try again shortly");
+        }
+    }
+
+    public static final class ReportJob {
+        private final String id = UUID.randomUUID().toString();
+        private final String key;
+        private final ReportType type;
+        private final String requestedBy;
+        private final Instant createdAt = Instant.now();
+        private final CompletableFuture<ReportJob> completion = new CompletableFuture<>();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile boolean cached;
+        private volatile Instant finishedAt;
+        private volatile long size;
+        private volatile String error;
+
+        private ReportJob(String key, ReportType type, String requestedBy) {
+            this.key = key;
+            this.type = type;
+            this.requestedBy = requestedBy;
+        }
+
+        public String getId() { return id; }
+        public JobStatus getStatus() { return status; }
+
+        public Map<String, Object> view() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", id);
+            m.put("type", type.name());
+            m.put("status", status.name());
+            m.put("cached", cached);
+            m.put("createdAt", createdAt.toString());
+            m.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            m.put("size", status == JobStatus.DONE ? size : null);
+            m.put("error", error);
+            m.put("downloadUrl", status == JobStatus.DONE ? "/api/analytics/reports/" + id + "/file" : null);
+            return m;
+        }
+    }
+
+    // What to render: the data version that goes into the key, and the renderer reading that data
+    private record Plan(String version, Renderer renderer) {}
+
+    @FunctionalInterface
+    private interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    @Autowired private AnalyticsService analyticsService;
+    @Autowired private ReportService reportService;
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${reports.dir:uploads/reports}")
+    private String rootDir;
+
+    @Value("${reports.workers:2}")
+    private int workers;
+
+    @Value("${reports.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${reports.retention-hours:24}")
+    private long retentionHours;
+
+    private Path root;
+    private Path tmp;
+    private ThreadPoolTaskExecutor executor;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>(); // key -> queued or running job
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(rootDir).toAbsolutePath().normalize();
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("report-");
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the job for this report: an existing one when the same report is queued or running, a
+     * finished one when its file is already stored, otherwise a newly queued job. Throws
+     * IllegalArgumentException for invalid parameters.
+     */
+    public ReportJob submit(ReportType type, Map<String, String> params, String requestedBy) {
+        Plan plan = plan(type, params);
+        String key = key(type, plan.version());
+        ReportJob running = inFlight.get(key);
+        if (running != null) return running;
+
+        ReportJob job = new ReportJob(key, type, requestedBy);
+        Path file = artifact(key);
+        if (Files.isRegularFile(file)) {
+            touch(file);
+            job.cached = true;
+            complete(job, JobStatus.DONE, null);
+            jobs.put(job.id, job);
+            return job;
+        }
+
+        ReportJob existing = inFlight.putIfAbsent(key, job);
+        if (existing != null) return existing;
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, plan));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, job);
+            jobs.remove(job.id);
+            throw new QueueFullException();
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Waits up to the timeout for the job to finish; returns the job either way. */
+    public ReportJob await(ReportJob job, Duration timeout) {
+        try {
+            job.completion.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Still running, or failed; the status says which
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return job;
+    }
+
+    /** Streams a finished job's PDF; the key doubles as ETag since the bytes behind it never change. */
+    public void serve(ReportJob job, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = artifact(job.key);
+        if (job.status != JobStatus.DONE || !Files.isRegularFile(file)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + job.key + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, max-age=3600");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("application/pdf");
+        response.setHeader("Content-Disposition", "attachment; filename=" + job.type.fileName + ".pdf");
+        response.setContentLengthLong(Files.size(file));
+        Files.copy(file, response.getOutputStream());
+    }
+
+    private void run(ReportJob job, Plan plan) {
+        job.status = JobStatus.RUNNING;
+        Path part = tmp.resolve(job.key + "-" + job.id + ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(part)) {
+                plan.renderer().render(out);
+            }
+            job.size = Files.size(part);
+            Files.move(part, artifact(job.key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete(job, JobStatus.DONE, null);
+        } catch (Exception e) {
+            System.err.println("[ReportJobs] " + job.type + " report " + job.id + " failed: " + e.getMessage());
+            complete(job, JobStatus.FAILED, e.getMessage());
+        } finally {
+            inFlight.remove(job.key, job);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void complete(ReportJob job, JobStatus status, String error) {
+        if (status == JobStatus.DONE && job.size == 0) {
+            try {
+                job.size = Files.size(artifact(job.key));
+            } catch (IOException ignored) {
+            }
+        }
+        job.error = error;
+        job.finishedAt = Instant.now();
+        job.status = status;
+        job.completion.complete(job);
+        if (job.requestedBy != null && !job.cached) {
+            try {
+                messagingTemplate.convertAndSendToUser(job.requestedBy, "/queue/reports", job.view());
+            } catch (Exception e) {
+                System.err.println("[ReportJobs] Failed to push job " + job.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Plan plan(ReportType type, Map<String, String> params) {
+        switch (type) {
+            case SUMMARY -> {
+                // Served from in-memory totals, so the numbers themselves are the data version
+                Map<String, Object> summary = analyticsService.getSummary();
+                return new Plan(new TreeMap<>(summary).toString(), out -> reportService.writeAnalyticsPdf(summary, out));
+            }
+            case MONTHLY -> {
+                YearMonth month = parseMonth(params.get("month"));
+                return new Plan(month + "|" + reportService.monthlyDataVersion(), out -> reportService.writeMonthlyPdf(month, out));
+            }
+            default -> throw new IllegalArgumentException("Unknown report type " + type);
+        }
+    }
+
+    // yyyy-MM; the last full month when absent
+    private static YearMonth parseMonth(String value) {
+        if (value == null || value.isBlank()) return YearMonth.now().minusMonths(1);
+        try {
+            return YearMonth.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month must be yyyy-MM");
+        }
+    }
+
+    private static String key(ReportType type, String version) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((type.name() + "\n" + version).getBytes(StandardCharsets.UTF_8));
+            return type.fileName + "-" + HexFormat.of().formatHex(digest.digest()).substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path artifact(String key) {
+        return root.resolve(key + ".pdf");
+    }
+
+    // A served file counts as used, so the retention sweep keeps popular reports
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reports.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(retentionHours));
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*.pdf")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("[ReportJobs] Cleanup failed: " + e.getMessage());
+        }
+    }
+}
@@ -4,24 +4,71 @@ import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.Element;
 import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
 import com.lowagie.text.Paragraph;
 import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfTemplate;
 import com.lowagie.text.pdf.PdfWriter;
+import com.realestate.entity.User;
+import com.realestate.repository.MonthlyPaymentRepository;
+import com.realestate.repository.PgBookingRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.repository.RentBookingRepository;
+import com.realestate.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Map;
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
 
+/**
+ * PDF reports. The monthly portfolio report has revenue and occupancy sections per city, per agent and per
+ * property. Agent and property rows are read in keyset pages of reports.page-size with their figures
+ * aggregated per page, and tables are added to the document as incomplete tables every few rows so OpenPDF
+ * writes finished pages to the stream and drops them; memory does not grow with the number of rows.
+ */
 @Service
 public class ReportService {
 
-    public byte[] buildAnalyticsPdf(Map<String, Object> summary) {
+    private static final int FLUSH_ROWS = 100;
+    private static final int CHART_BARS = 10;
+    private static final DateTimeFormatter MONTH_TITLE = DateTimeFormatter.ofPattern("MMMM yyyy");
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 18, Font.BOLD);
+    private static final Font SECTION_FONT = new Font(Font.HELVETICA, 14, Font.BOLD);
+    private static final Font NOTE_FONT = new Font(Font.HELVETICA, 9, Font.ITALIC, Color.DARK_GRAY);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 8, Font.BOLD);
+    private static final Font CELL_FONT = new Font(Font.HELVETICA, 8, Font.NORMAL);
+    private static final Color HEADER_BACKGROUND = new Color(229, 231, 235);
+    private static final Color BAR_COLOR = new Color(37, 99, 235);
+
+    @Autowired private PropertyRepository propertyRepo;
+    @Autowired private MonthlyPaymentRepository paymentRepo;
+    @Autowired private RentBookingRepository rentBookingRepo;
+    @Autowired private PgBookingRepository pgBookingRepo;
+    @Autowired private UserRepository userRepo;
+
+    @Value("${reports.page-size:500}")
+    private int pageSize;
+
+    /** Writes the summary PDF to the stream, e.g. a report job's file; the stream is closed when done. */
+    public void writeAnalyticsPdf(Map<String, Object> summary, OutputStream out) {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
             Document document = new Document();
-            PdfWriter.getInstance(document, baos);
+            PdfWriter.getInstance(document, out);
             document.open();
 
             Font titleFont = new Font(Font.HELVETICA, 18, Font.BOLD);
@@ -50,12 +97,296 @@ public class ReportService {
             document.add(table);
 
             document.close();
-            return baos.toByteArray();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
         }
     }
 
+    /** Identifies the data the monthly report reads; changes when properties, bookings or payments change. */
+    public String monthlyDataVersion() {
+        return versionOf(propertyRepo.reportDataVersion()) + "|" + versionOf(paymentRepo.reportDataVersion())
+                + "|" + versionOf(rentBookingRepo.reportDataVersion()) + "|" + versionOf(pgBookingRepo.reportDataVersion());
+    }
+
+    /**
+     * Writes the monthly portfolio report: totals, then revenue (paid rent and PG payments, late fees
+     * included, by paid date) and occupancy (properties with an approved booking overlapping the month) per
+     * city, per agent and per property. The stream is closed when done.
+     */
+    public void writeMonthlyPdf(YearMonth month, OutputStream out) {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.atEndOfMonth();
+        Document document = new Document(PageSize.A4, 36, 36, 36, 36);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            document.open();
+
+            // Cities are few, so they are aggregated in one pass and also give the portfolio totals
+            Map<String, Figures> cities = new HashMap<>();
+            for (Object[] row : propertyRepo.reportPropertiesByCity()) figures(cities, row[0]).properties = count(row[1]);
+            for (Object[] row : propertyRepo.reportOccupiedByCity(start, end)) figures(cities, row[0]).occupied = count(row[1]);
+            for (Object[] row : paymentRepo.reportRevenueByCity(start, end)) {
+                Figures f = figures(cities, row[0]);
+                f.revenue = amount(row[1]);
+                f.payments = count(row[2]);
+            }
+            Figures total = new Figures();
+            cities.values().forEach(total::add);
+
+            Paragraph title = new Paragraph("Portfolio Report - " + month.format(MONTH_TITLE), TITLE_FONT);
+            title.setAlignment(Element.ALIGN_CENTER);
+            title.setSpacingAfter(4f);
+            document.add(title);
+            Paragraph note = new Paragraph("Revenue: rent and PG payments paid " + start + " to " + end + ", late fees included. "
+                    + "Occupied: at least one approved rent or PG booking overlapping the month. Generated "
+                    + LocalDateTime.now().withNano(0) + ".", NOTE_FONT);
+            note.setAlignment(Element.ALIGN_CENTER);
+            note.setSpacingAfter(12f);
+            document.add(note);
+
+            PdfPTable kpis = new PdfPTable(2);
+            kpis.setWidthPercentage(60);
+            addRow(kpis, "Properties", String.valueOf(total.properties));
+            addRow(kpis, "Occupied properties", String.valueOf(total.occupied));
+            addRow(kpis, "Occupancy", percent(total.occupied, total.properties));
+            addRow(kpis, "Paid payments", String.valueOf(total.payments));
+            addRow(kpis, "Revenue", money(total.revenue));
+            document.add(kpis);
+
+            // Per city
+            section(document, "Revenue and occupancy by city");
+            List<Map.Entry<String, Figures>> byRevenue = cities.entrySet().stream()
+                    .sorted(Comparator.comparing((Map.Entry<String, Figures> e) -> e.getValue().revenue).reversed()
+                            .thenComparing(Map.Entry::getKey))
+                    .toList();
+            barChart(writer, document, "Top cities by revenue", byRevenue.stream().limit(CHART_BARS)
+                    .map(e -> Map.entry(e.getKey(), e.getValue().revenue)).toList());
+            StreamedTable cityTable = new StreamedTable(document, new float[]{4, 2, 2, 2, 2, 3}, 1,
+                    "City", "Properties", "Occupied", "Occupancy", "Payments", "Revenue");
+            for (Map.Entry<String, Figures> e : byRevenue) {
+                Figures f = e.getValue();
+                cityTable.row(e.getKey(), String.valueOf(f.properties), String.valueOf(f.occupied),
+                        percent(f.occupied, f.properties), String.valueOf(f.payments), money(f.revenue));
+            }
+            cityTable.finish();
+
+            // Per agent, paged by owner id
+            section(document, "Revenue and occupancy by agent");
+            List<Object[]> top = paymentRepo.reportTopOwnersByRevenue(start, end, PageRequest.of(0, CHART_BARS));
+            Map<Long, String> topNames = userRepo.findAllById(top.stream().map(r -> (Long) r[0]).toList()).stream()
+                    .collect(Collectors.toMap(User::getId, u -> name(u.getFirstName(), u.getLastName())));
+            barChart(writer, document, "Top agents by revenue", top.stream()
+                    .map(r -> Map.entry(topNames.getOrDefault((Long) r[0], "#" + r[0]), amount(r[1]))).toList());
+            StreamedTable agentTable = new StreamedTable(document, new float[]{4, 2, 2, 2, 2, 3}, 1,
+                    "Agent", "Properties", "Occupied", "Occupancy", "Payments", "Revenue");
+            PageRequest page = PageRequest.of(0, Math.max(1, pageSize));
+            long afterId = 0;
+            List<Object[]> owners;
+            do {
+                owners = propertyRepo.reportOwnerPage(afterId, page);
+                if (owners.isEmpty()) break;
+                List<Long> ids = owners.stream().map(r -> (Long) r[0]).toList();
+                Map<Long, Long> occupied = counts(propertyRepo.reportOccupiedByOwner(start, end, ids));
+                Map<Long, Object[]> revenue = revenue(paymentRepo.reportRentRevenueByOwner(start, end, ids), paymentRepo.reportPgRevenueByOwner(start, end, ids));
+                for (Object[] owner : owners) {
+                    Long id = (Long) owner[0];
+                    long properties = count(owner[3]);
+                    long occ = occupied.getOrDefault(id, 0L);
+                    Object[] rev = revenue.get(id);
+                    agentTable.row(name(owner[1], owner[2]), String.valueOf(properties), String.valueOf(occ), percent(occ, properties),
+                            rev != null ? String.valueOf(count(rev[2])) : "0", money(rev != null ? amount(rev[1]) : BigDecimal.ZERO));
+                }
+                afterId = ids.get(ids.size() - 1);
+            } while (owners.size() == page.getPageSize());
+            agentTable.finish();
+
+            // Per property, paged by property id
+            section(document, "Revenue and occupancy by property");
+            StreamedTable propertyTable = new StreamedTable(document, new float[]{1.2f, 5, 2.5f, 3, 1.5f, 1.5f, 2.5f}, 4,
+                    "ID", "Property", "City", "Agent", "Occupied", "Payments", "Revenue");
+            afterId = 0;
+            List<Object[]> properties;
+            do {
+                properties = propertyRepo.reportPropertyPage(afterId, page);
+                if (properties.isEmpty()) break;
+                List<Long> ids = properties.stream().map(r -> (Long) r[0]).toList();
+                Set<Long> occupied = new HashSet<>(propertyRepo.reportOccupiedProperties(start, end, ids));
+                Map<Long, Object[]> revenue = revenue(paymentRepo.reportRentRevenueByProperty(start, end, ids), paymentRepo.reportPgRevenueByProperty(start, end, ids));
+                for (Object[] property : properties) {
+                    Long id = (Long) property[0];
+                    Object[] rev = revenue.get(id);
+                    propertyTable.row(String.valueOf(id), text(property[1]), text(property[2]), name(property[3], property[4]),
+                            occupied.contains(id) ? "Yes" : "No", rev != null ? String.valueOf(count(rev[2])) : "0",
+                            money(rev != null ? amount(rev[1]) : BigDecimal.ZERO));
+                }
+                afterId = ids.get(ids.size() - 1);
+            } while (properties.size() == page.getPageSize());
+            propertyTable.finish();
+
+            document.close();
+        } catch (DocumentException | IOException e) {
+            throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
+        }
+    }
+
+    // Per-group totals of the monthly report
+    private static final class Figures {
+        long properties;
+        long occupied;
+        long payments;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(Figures other) {
+            properties += other.properties;
+            occupied += other.occupied;
+            payments += other.payments;
+            revenue = revenue.add(other.revenue);
+        }
+    }
+
+    /**
+     * A table added to the document every FLUSH_ROWS rows while incomplete: OpenPDF lays out the rows it
+     * has, writes pages that are full, and drops the rows, repeating the header on each new page.
+     */
+    private static final class StreamedTable {
+        private final Document document;
+        private final PdfPTable table;
+        private final int textColumns;
+        private int pending;
+
+        // The first textColumns columns are left aligned, the figures after them right aligned
+        StreamedTable(Document document, float[] widths, int textColumns, String... headers) {
+            this.document = document;
+            this.textColumns = textColumns;
+            this.table = new PdfPTable(widths);
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            for (String header : headers) {
+                PdfPCell cell = new PdfPCell(new Phrase(header, HEADER_FONT));
+                cell.setBackgroundColor(HEADER_BACKGROUND);
+                table.addCell(cell);
+            }
+        }
+
+        void row(String... values) throws DocumentException {
+            for (int i = 0; i < values.length; i++) {
+                PdfPCell cell = new PdfPCell(new Phrase(values[i], CELL_FONT));
+                if (i >= textColumns) cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                table.addCell(cell);
+            }
+            if (++pending >= FLUSH_ROWS) {
+                document.add(table);
+                pending = 0;
+            }
+        }
+
+        void finish() throws DocumentException {
+            table.setComplete(true);
+            document.add(table);
+        }
+    }
+
+    private static void section(Document document, String title) throws DocumentException {
+        document.newPage();
+        Paragraph heading = new Paragraph(title, SECTION_FONT);
+        heading.setSpacingAfter(8f);
+        document.add(heading);
+    }
+
+    // Horizontal bars drawn on a template, largest value full width
+    private static void barChart(PdfWriter writer, Document document, String title, List<Map.Entry<String, BigDecimal>> bars)
+            throws DocumentException, IOException {
+        if (bars.isEmpty()) return;
+        float rowHeight = 16f;
+        float width = document.right() - document.left();
+        float height = (bars.size() + 1) * rowHeight;
+        float labelWidth = 140f;
+        float valueWidth = 80f;
+        BigDecimal max = bars.stream().map(Map.Entry::getValue).max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
+        BaseFont font = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, false);
+
+        PdfTemplate chart = writer.getDirectContent().createTemplate(width, height);
+        chart.beginText();
+        chart.setFontAndSize(font, 9);
+        chart.setTextMatrix(0, height - rowHeight + 4);
+        chart.showText(title);
+        chart.endText();
+        for (int i = 0; i < bars.size(); i++) {
+            float y = height - (i + 2) * rowHeight;
+            BigDecimal value = bars.get(i).getValue();
+            float barWidth = max.signum() > 0 ? (width - labelWidth - valueWidth) * value.floatValue() / max.floatValue() : 0f;
+            chart.setColorFill(BAR_COLOR);
+            chart.rectangle(labelWidth, y + 3, Math.max(barWidth, 0.5f), rowHeight - 6);
+            chart.fill();
+            chart.setColorFill(Color.BLACK);
+            chart.beginText();
+            chart.setFontAndSize(font, 8);
+            chart.setTextMatrix(0, y + 5);
+            chart.showText(truncate(bars.get(i).getKey(), 32));
+            chart.setTextMatrix(labelWidth + barWidth + 4, y + 5);
+            chart.showText(money(value));
+            chart.endText();
+        }
+        Image image = Image.getInstance(chart);
+        image.setSpacingAfter(10f);
+        document.add(image);
+    }
+
+    private static Figures figures(Map<String, Figures> byKey, Object key) {
+        return byKey.computeIfAbsent(key != null ? key.toString() : "(no city)", k -> new Figures());
+    }
+
+    private static Map<Long, Long> counts(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) counts.put((Long) row[0], count(row[1]));
+        return counts;
+    }
+
+    // Adds up (id, revenue, payments) rows of the rent and PG queries per id
+    private static Map<Long, Object[]> revenue(List<Object[]> rent, List<Object[]> pg) {
+        Map<Long, Object[]> map = new HashMap<>();
+        for (Object[] row : rent) map.put((Long) row[0], row);
+        for (Object[] row : pg) {
+            map.merge((Long) row[0], row, (a, b) -> new Object[]{a[0], amount(a[1]).add(amount(b[1])), count(a[2]) + count(b[2])});
+        }
+        return map;
+    }
+
+    private static String versionOf(List<Object[]> rows) {
+        return rows.isEmpty() ? "-" : rows.get(0)[0] + "@" + rows.get(0)[1];
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        return value instanceof BigDecimal b ? b : new BigDecimal(value.toString());
+    }
+
+    private static String money(BigDecimal value) {
+        return String.format("%,.2f", value);
+    }
+
+    private static String percent(long part, long whole) {
+        return whole > 0 ? String.format("%.1f%%", part * 100.0 / whole) : "-";
+    }
+
+    private static String name(Object first, Object last) {
+        String name = (text(first) + " " + text(last)).trim();
+        return name.isEmpty() ? "-" : name;
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private static String truncate(String value, int max) {
+        return value.length() <= max ? value : value.substring(0, max - 1) + "...";
+    }
+
     private void addRow(PdfPTable table, String key, String value) {
         PdfPCell c1 = new PdfPCell(new Phrase(key));
         PdfPCell c2 = new PdfPCell(new Phrase(value));
@@ -0,0 +1,155 @@
+package com.realestate.service;
+
+import com.realestate.entity.MonthlyPayment;
+import com.realestate.repository.MonthlyPaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rent revenue (paid monthly payments, late fees included) in monthly or weekly buckets, for everyone or
+ * one owner. The whole range is one grouped query by paid day; days are folded into buckets in memory and
+ * empty buckets are filled with zero. Results are cached per (owner, period, number of periods) until a
+ * committed change to a paid payment (seen through Hibernate's post-commit events) or the day changes.
+ */
+@Service
+public class RevenueAnalyticsService {
+
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final DateTimeFormatter WEEK_LABEL = DateTimeFormatter.ofPattern("MMM dd");
+
+    public enum Period { MONTHLY, WEEKLY }
+
+    private record Key(Long ownerId, Period period, int periods) {}
+
+    private record Cached(long version, LocalDate day, List<Map<String, Object>> buckets) {}
+
+    @Autowired private MonthlyPaymentRepository paymentRepo;
+    @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Key, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    void registerListener() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    public static Period parsePeriod(String period) {
+        return "monthly".equalsIgnoreCase(period) ? Period.MONTHLY : Period.WEEKLY;
+    }
+
+    /** The last N periods up to the current one, oldest first; ownerId null covers all owners. */
+    public List<Map<String, Object>> revenue(Long ownerId, Period period, int periods) {
+        Key key = new Key(ownerId, period, periods);
+        long seen = version.get();
+        LocalDate today = LocalDate.now();
+        Cached cached = cache.get(key);
+        if (cached != null && cached.version() == seen && cached.day().equals(today)) return cached.buckets();
+
+        List<Map<String, Object>> buckets = compute(ownerId, period, periods, today);
+        if (cache.size() >= 256) cache.clear();
+        cache.put(key, new Cached(seen, today, buckets));
+        return buckets;
+    }
+
+    private List<Map<String, Object>> compute(Long ownerId, Period period, int periods, LocalDate today) {
+        LocalDate first = period == Period.MONTHLY
+                ? today.minusMonths(periods - 1L).withDayOfMonth(1)
+                : today.minusWeeks(periods - 1L).with(DayOfWeek.MONDAY);
+        LocalDate last = next(period, period == Period.MONTHLY ? today.withDayOfMonth(1) : today.with(DayOfWeek.MONDAY)).minusDays(1);
+
+        TreeMap<LocalDate, BigDecimal> byDay = new TreeMap<>();
+        for (Object[] row : paymentRepo.sumRevenueByPaidDate(ownerId, first, last)) {
+            byDay.put((LocalDate) row[0], row[1] instanceof BigDecimal b ? b : new BigDecimal(row[1].toString()));
+        }
+
+        List<Map<String, Object>> buckets = new ArrayList<>(periods);
+        for (LocalDate start = first; !start.isAfter(last); start = next(period, start)) {
+            LocalDate end = next(period, start).minusDays(1);
+            BigDecimal revenue = byDay.subMap(start, true, end, true).values().stream()
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            Map<String, Object> periodData = new HashMap<>();
+            periodData.put("period", period == Period.MONTHLY ? start.format(MONTH_LABEL) : "Week " + start.format(WEEK_LABEL));
+            periodData.put("revenue", revenue);
+            periodData.put("startDate", start);
+            periodData.put("endDate", end);
+            buckets.add(periodData);
+        }
+        return List.copyOf(buckets);
+    }
+
+    private static LocalDate next(Period period, LocalDate start) {
+        return period == Period.MONTHLY ? start.plusMonths(1) : start.plusWeeks(1);
+    }
+
+    private static boolean isPayment(EntityPersister persister) {
+        return persister.getMappedClass() == MonthlyPayment.class;
+    }
+
+    // Only paid payments count as revenue; an unknown old state is treated as paid
+    private static boolean paid(EntityPersister persister, Object[] state) {
+        if (state == null) return true;
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals("status")) return state[i] == MonthlyPayment.PaymentStatus.PAID;
+        }
+        return true;
+    }
+
+    private final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (isPayment(event.getPersister()) && paid(event.getPersister(), event.getState())) version.incrementAndGet();
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!isPayment(event.getPersister())) return;
+            if (paid(event.getPersister(), event.getOldState()) || paid(event.getPersister(), event.getState())) {
+                version.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (isPayment(event.getPersister()) && paid(event.getPersister(), event.getDeletedState())) version.incrementAndGet();
+        }
+
+        // Other listeners' entities are delivered here too once any listener asked for them
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return isPayment(persister);
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+    }
+}
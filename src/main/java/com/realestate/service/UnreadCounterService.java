@@ -0,0 +1,140 @@
+package com.realestate.service;
+
+import com.realestate.dto.ChatFrames;
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.PropertyInquiry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory unread chat counters per user and per (user, inquiry), so the header badge does not
+ * re-run the unread COUNT join on every refresh.
+ * A user's counters are loaded from the database on first access and then kept current by message
+ * committed messages (increment) and read marks (reset); every change is pushed to /user/queue/unread.
+ * Entries of users who are offline and have not been touched for a while are dropped and rebuilt on
+ * the next access, which also corrects any drift.
+ */
+@Service
+public class UnreadCounterService {
+
+    @Autowired private ChatFrameSender frameSender;
+    @Autowired private PresenceService presenceService;
+
+    @Value("${chat.unread.idle-minutes:30}")
+    private long idleMinutes;
+
+    /** Result of a rebuild: unread count per inquiry, counting messages with id up to upToId. */
+    public record Snapshot(Map<Long, Long> perInquiry, long upToId) {}
+
+    private static final class Counters {
+        volatile String email;
+        final long loadedUpToId; // messages at or below this id were counted by the load
+        final Map<Long, AtomicLong> perInquiry = new ConcurrentHashMap<>();
+        volatile long lastAccess = System.currentTimeMillis();
+
+        Counters(String email, Snapshot snapshot) {
+            this.email = email;
+            this.loadedUpToId = snapshot.upToId();
+            snapshot.perInquiry().forEach((inquiryId, count) -> perInquiry.put(inquiryId, new AtomicLong(count)));
+        }
+
+        long total() {
+            long total = 0;
+            for (AtomicLong c : perInquiry.values()) total += c.get();
+            return total;
+        }
+    }
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    public long total(Long userId, String email, Function<Long, Snapshot> loader) {
+        return load(userId, email, loader).total();
+    }
+
+    public long forInquiry(Long userId, String email, Long inquiryId, Function<Long, Snapshot> loader) {
+        AtomicLong count = load(userId, email, loader).perInquiry.get(inquiryId);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<Long, Long> perInquiry(Long userId, String email, Function<Long, Snapshot> loader) {
+        Map<Long, Long> result = new HashMap<>();
+        load(userId, email, loader).perInquiry.forEach((inquiryId, count) -> {
+            if (count.get() > 0) result.put(inquiryId, count.get());
+        });
+        return result;
+    }
+
+    // Counts a committed message for the party that did not send it
+    @EventListener
+    public void onMessageSaved(ChatMessageEvents.MessageSaved event) {
+        ChatMessage message = event.message();
+        PropertyInquiry inquiry = message.getInquiry();
+        if (inquiry == null || message.getSender() == null || inquiry.getClient() == null || inquiry.getOwner() == null) return;
+        Long recipientId = message.getSender().getId().equals(inquiry.getClient().getId())
+                ? inquiry.getOwner().getId() : inquiry.getClient().getId();
+        increment(recipientId, inquiry.getId(), message.getId());
+    }
+
+    // A message for the user was persisted; only counted when the user's counters are loaded
+    public void increment(Long userId, Long inquiryId, Long messageId) {
+        Counters c = counters.get(userId);
+        if (c == null || messageId == null || messageId <= c.loadedUpToId) return;
+        long inquiryCount = c.perInquiry.computeIfAbsent(inquiryId, id -> new AtomicLong()).incrementAndGet();
+        c.lastAccess = System.currentTimeMillis();
+        push(c, inquiryId, inquiryCount);
+    }
+
+    // The user has read the inquiry up to its latest message
+    public void reset(Long userId, Long inquiryId) {
+        Counters c = counters.get(userId);
+        if (c == null) return;
+        AtomicLong count = c.perInquiry.remove(inquiryId);
+        c.lastAccess = System.currentTimeMillis();
+        if (count != null && count.get() > 0) push(c, inquiryId, 0);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        counters.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff && !presenceService.isOnline(e.getKey()));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("users", counters.size());
+        return stats;
+    }
+
+    private Counters load(Long userId, String email, Function<Long, Snapshot> loader) {
+        Counters c = counters.get(userId);
+        if (c == null) {
+            // Queried outside the map so other users' lookups in the same bin never wait on it;
+            // callers racing on the first load may both query, and the first one in wins
+            Counters loaded = new Counters(email, loader.apply(userId));
+            Counters existing = counters.putIfAbsent(userId, loaded);
+            c = existing != null ? existing : loaded;
+        }
+        if (email != null) c.email = email;
+        c.lastAccess = System.currentTimeMillis();
+        return c;
+    }
+
+    private void push(Counters c, Long inquiryId, long inquiryCount) {
+        String email = c.email;
+        if (email == null) return;
+        try {
+            frameSender.sendToUser(email, "/queue/unread", new ChatFrames.UnreadCount(c.total(), inquiryId, inquiryCount));
+        } catch (Exception e) {
+            System.err.println("[UnreadCounters] Failed to push unread count: " + e.getMessage());
+        }
+    }
+}
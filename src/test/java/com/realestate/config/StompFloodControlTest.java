@@ -0,0 +1,187 @@
+package com.realestate.config;
+
+import com.realestate.dto.ChatFrames;
+import com.realestate.service.ChatFrameSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StompFloodControlTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int BURST = 5;
+    private static final long TOLERANCE = INTERVAL * (BURST - 1);
+    private static final long T0 = 1_000_000_000_000L;
+
+    @Nested
+    class BucketTest {
+
+        private final StompFloodControl.Bucket bucket = new StompFloodControl.Bucket();
+
+        @Test
+        void admitsTheBurstAtOnceThenRejects() {
+            for (int i = 0; i < BURST; i++) {
+                assertThat(bucket.tryAcquire(T0, INTERVAL, TOLERANCE)).as("frame %d", i).isTrue();
+            }
+            assertThat(bucket.tryAcquire(T0, INTERVAL, TOLERANCE)).isFalse();
+        }
+
+        @Test
+        void admitsOneMoreFramePerInterval() {
+            for (int i = 0; i < BURST; i++) bucket.tryAcquire(T0, INTERVAL, TOLERANCE);
+
+            assertThat(bucket.tryAcquire(T0 + INTERVAL - 1, INTERVAL, TOLERANCE)).isFalse();
+            assertThat(bucket.tryAcquire(T0 + INTERVAL, INTERVAL, TOLERANCE)).isTrue();
+            assertThat(bucket.tryAcquire(T0 + INTERVAL, INTERVAL, TOLERANCE)).isFalse();
+        }
+
+        @Test
+        void framesAtTheRateAreNeverRejected() {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(bucket.tryAcquire(T0 + i * INTERVAL, INTERVAL, TOLERANCE)).isTrue();
+            }
+        }
+
+        @Test
+        void rejectedFramesDoNotConsumeTokens() {
+            for (int i = 0; i < BURST; i++) bucket.tryAcquire(T0, INTERVAL, TOLERANCE);
+            for (int i = 0; i < 100; i++) bucket.tryAcquire(T0, INTERVAL, TOLERANCE);
+
+            assertThat(bucket.tryAcquire(T0 + INTERVAL, INTERVAL, TOLERANCE)).isTrue();
+        }
+
+        @Test
+        void waitIsTheTimeUntilTheNextAdmission() {
+            assertThat(bucket.waitNanos(T0, TOLERANCE)).isZero();
+            for (int i = 0; i < BURST; i++) bucket.tryAcquire(T0, INTERVAL, TOLERANCE);
+            long now = T0 + INTERVAL / 4;
+
+            long wait = bucket.waitNanos(now, TOLERANCE);
+
+            assertThat(wait).isEqualTo(INTERVAL - INTERVAL / 4);
+            assertThat(bucket.tryAcquire(now + wait - 1, INTERVAL, TOLERANCE)).isFalse();
+            assertThat(bucket.tryAcquire(now + wait, INTERVAL, TOLERANCE)).isTrue();
+        }
+
+        @Test
+        void idleOnceTheBucketHasRefilled() {
+            bucket.tryAcquire(T0, INTERVAL, TOLERANCE);
+
+            assertThat(bucket.idleSince(T0)).isFalse();
+            assertThat(bucket.idleSince(T0 + INTERVAL + 1)).isTrue();
+        }
+
+        @Test
+        void concurrentFramesGetExactlyTheBurst() throws Exception {
+            int threads = 8;
+            AtomicInteger admitted = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (int t = 0; t < threads; t++) {
+                    pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 100; i++) {
+                            if (bucket.tryAcquire(T0, INTERVAL, TOLERANCE)) admitted.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+                start.countDown();
+                pool.shutdown();
+                assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            } finally {
+                pool.shutdownNow();
+            }
+            assertThat(admitted.get()).isEqualTo(BURST);
+        }
+    }
+
+    @Nested
+    class InterceptorTest {
+
+        private final StompFloodControl floodControl = new StompFloodControl();
+        private final ChatFrameSender frameSender = mock(ChatFrameSender.class);
+        private final Principal user = () -> "client@test.local";
+
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(floodControl, "enabled", true);
+            ReflectionTestUtils.setField(floodControl, "sessionRate", 1.0);
+            ReflectionTestUtils.setField(floodControl, "sessionBurst", 2);
+            ReflectionTestUtils.setField(floodControl, "inquiryRate", 100.0);
+            ReflectionTestUtils.setField(floodControl, "inquiryBurst", 100);
+            ReflectionTestUtils.setField(floodControl, "typingRepeatMs", 60_000L);
+            ReflectionTestUtils.setField(floodControl, "frameSender", frameSender);
+        }
+
+        @Test
+        void chatFrameOverTheLimitIsAnsweredWithRateLimited() {
+            assertThat(floodControl.preSend(send("/app/chat.send/7", "{}"), null)).isNotNull();
+            assertThat(floodControl.preSend(send("/app/chat.send/7", "{}"), null)).isNotNull();
+
+            assertThat(floodControl.preSend(send("/app/chat.send/7", "{}"), null)).isNull();
+
+            ArgumentCaptor<Object> frame = ArgumentCaptor.forClass(Object.class);
+            verify(frameSender).sendToUser(eq("client@test.local"), eq("/queue/errors"), frame.capture());
+            ChatFrames.RateLimited notice = (ChatFrames.RateLimited) frame.getValue();
+            assertThat(notice.inquiryId()).isEqualTo(7L);
+            assertThat(notice.destination()).isEqualTo("/app/chat.send/7");
+            assertThat(notice.retryAfterMs()).isPositive();
+        }
+
+        @Test
+        void typingFrameOverTheLimitIsDroppedSilently() {
+            floodControl.preSend(send("/app/chat.send/7", "{}"), null);
+            floodControl.preSend(send("/app/chat.send/7", "{}"), null);
+
+            assertThat(floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":true}"), null)).isNull();
+            verifyNoInteractions(frameSender);
+        }
+
+        @Test
+        void repeatedTypingStateIsDroppedWithoutUsingTheBucket() {
+            assertThat(floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":true}"), null)).isNotNull();
+
+            assertThat(floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":true}"), null)).isNull();
+            assertThat(floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":false}"), null)).isNotNull();
+            assertThat(floodControl.snapshot()).containsEntry("droppedDuplicateTyping", 1L);
+        }
+
+        @Test
+        void typingStateIsOnlyRememberedOnceForwarded() {
+            floodControl.preSend(send("/app/chat.send/7", "{}"), null);
+            floodControl.preSend(send("/app/chat.send/7", "{}"), null);
+            // Rate limited, so the recipient never saw it: a later identical frame is not a duplicate
+            floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":true}"), null);
+            ((Map<?, ?>) ReflectionTestUtils.getField(floodControl, "sessionBuckets")).clear(); // refilled
+
+            assertThat(floodControl.preSend(send("/app/chat.typing/7", "{\"isTyping\":true}"), null)).isNotNull();
+        }
+
+        private Message<byte[]> send(String destination, String body) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+            accessor.setDestination(destination);
+            accessor.setSessionId("session-1");
+            accessor.setUser(user);
+            accessor.setLeaveMutable(true);
+            return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+        }
+    }
+}
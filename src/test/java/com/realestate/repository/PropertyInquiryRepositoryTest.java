@@ -0,0 +1,147 @@
+package com.realestate.repository;
+
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The keyset query behind InquiryStaleSweeper, on H2
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                          "spring.jpa.show-sql=false"})
+class PropertyInquiryRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 12, 0);
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired private TestEntityManager em;
+    @Autowired private PropertyInquiryRepository inquiryRepo;
+
+    private User owner;
+    private User client;
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        owner = em.persist(user("owner@test.local", User.Role.AGENT));
+        client = em.persist(user("client@test.local", User.Role.USER));
+        property = new Property("Sea view apartment", "Two bedrooms", new BigDecimal("4500000"), "1 Test Street",
+                "Pune", "MH", "411001", 2, 2, 1100, Property.PropertyType.APARTMENT, Property.PropertyStatus.FOR_SALE);
+        property.setListingType(Property.ListingType.SALE);
+        property.setOwner(owner);
+        em.persist(property);
+    }
+
+    @Test
+    void keysetChunksVisitEveryStaleInquiryOnceInOrder() {
+        List<Long> expected = new ArrayList<>();
+        // Three share each timestamp, so chunk boundaries fall inside ties
+        for (int day = 40; day > 10; day--) {
+            for (int i = 0; i < 3; i++) expected.add(inquiry(InquiryStatus.ACTIVE, NOW.minusDays(day)).getId());
+        }
+        inquiry(InquiryStatus.ACTIVE, NOW.minusDays(2)); // not stale yet
+        em.clear();
+
+        List<Long> seen = new ArrayList<>();
+        LocalDateTime afterUpdatedAt = START;
+        long afterId = 0;
+        while (true) {
+            List<PropertyInquiry> chunk = inquiryRepo.findStaleInquiries(NOW.minusDays(7), afterUpdatedAt, afterId, false,
+                    PageRequest.of(0, 7));
+            if (chunk.isEmpty()) break;
+            chunk.forEach(inquiry -> seen.add(inquiry.getId()));
+            PropertyInquiry last = chunk.get(chunk.size() - 1);
+            afterUpdatedAt = last.getUpdatedAt();
+            afterId = last.getId();
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void resumesAfterTheWatermark() {
+        PropertyInquiry handled = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(20));
+        PropertyInquiry sameTimeLaterId = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(20));
+        PropertyInquiry later = inquiry(InquiryStatus.NEGOTIATING, NOW.minusDays(10));
+        em.clear();
+
+        List<PropertyInquiry> rest = inquiryRepo.findStaleInquiries(NOW.minusDays(7), handled.getUpdatedAt(), handled.getId(),
+                false, PageRequest.of(0, 10));
+
+        assertThat(rest).extracting(PropertyInquiry::getId).containsExactly(sameTimeLaterId.getId(), later.getId());
+    }
+
+    @Test
+    void onlyOpenInquiriesAreStale() {
+        PropertyInquiry active = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(20));
+        PropertyInquiry negotiating = inquiry(InquiryStatus.NEGOTIATING, NOW.minusDays(20));
+        inquiry(InquiryStatus.AGREED, NOW.minusDays(20));
+        inquiry(InquiryStatus.CLOSED, NOW.minusDays(20));
+        em.clear();
+
+        assertThat(inquiryRepo.findStaleInquiries(NOW.minusDays(7), START, 0L, false, PageRequest.of(0, 10)))
+                .extracting(PropertyInquiry::getId).containsExactly(active.getId(), negotiating.getId());
+    }
+
+    @Test
+    void remindedInquiriesAreSkippedUntilTheyHaveNewActivity() {
+        PropertyInquiry reminded = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(20));
+        PropertyInquiry active = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(20));
+        inquiryRepo.markNudged(List.of(reminded.getId(), active.getId()), NOW.minusDays(19));
+        backdate(active, NOW.minusDays(15)); // a reply after the reminder
+        em.clear();
+
+        assertThat(inquiryRepo.findStaleInquiries(NOW.minusDays(7), START, 0L, true, PageRequest.of(0, 10)))
+                .extracting(PropertyInquiry::getId).containsExactly(active.getId());
+        assertThat(inquiryRepo.findStaleInquiries(NOW.minusDays(7), START, 0L, false, PageRequest.of(0, 10)))
+                .hasSize(2);
+    }
+
+    @Test
+    void closeStaleSkipsInquiriesWithRecentActivity() {
+        PropertyInquiry idle = inquiry(InquiryStatus.ACTIVE, NOW.minusDays(40));
+        PropertyInquiry revived = inquiry(InquiryStatus.NEGOTIATING, NOW.minusDays(40));
+        backdate(revived, NOW.minusDays(1)); // an offer arrived after the sweeper read the chunk
+        em.clear();
+
+        int closed = inquiryRepo.closeStale(List.of(idle.getId(), revived.getId()), NOW.minusDays(30), NOW);
+
+        assertThat(closed).isEqualTo(1);
+        assertThat(inquiryRepo.findIdsClosedAt(List.of(idle.getId(), revived.getId()), NOW)).containsExactly(idle.getId());
+        em.clear();
+        assertThat(em.find(PropertyInquiry.class, revived.getId()).getStatus()).isEqualTo(InquiryStatus.NEGOTIATING);
+    }
+
+    private PropertyInquiry inquiry(InquiryStatus status, LocalDateTime updatedAt) {
+        PropertyInquiry inquiry = new PropertyInquiry(property, client, owner, "Is this available?", null);
+        inquiry.setStatus(status);
+        em.persistAndFlush(inquiry);
+        backdate(inquiry, updatedAt);
+        return inquiry;
+    }
+
+    // updatedAt is set on every write, so move it back with an UPDATE
+    private void backdate(PropertyInquiry inquiry, LocalDateTime updatedAt) {
+        em.getEntityManager().createQuery("UPDATE PropertyInquiry pi SET pi.updatedAt = :at WHERE pi.id = :id")
+                .setParameter("at", updatedAt).setParameter("id", inquiry.getId()).executeUpdate();
+        em.refresh(inquiry);
+    }
+
+    private static User user(String email, User.Role role) {
+        User u = new User("Test", "User", email, "password");
+        u.setRole(role);
+        return u;
+    }
+}
@@ -0,0 +1,137 @@
+package com.realestate.service;
+
+import com.realestate.entity.*;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.repository.AnalyticsDailyRollupRepository;
+import com.realestate.service.DailyRollupService.Metric;
+import com.realestate.service.DailyRollupService.Point;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DailyRollupServiceTest {
+
+    private static final String[] PROPERTIES = {"amount", "status"};
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Mock private AnalyticsDailyRollupRepository rollupRepo;
+    @Mock private EventSource session;
+    @InjectMocks private DailyRollupService rollups;
+
+    private DailyRollupService.Listener listener;
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        listener = rollups.new Listener();
+        when(rollupRepo.findRange(any(), any(), any(), any())).thenReturn(List.of());
+        property = new Property();
+        property.setCity("Pune");
+    }
+
+    @Test
+    void committedInsertsAreCounted() {
+        PropertyInquiry inquiry = new PropertyInquiry(property, null, null, "hi", null);
+        inquiry.setCreatedAt(LocalDateTime.now());
+
+        listener.onPostInsert(insert(inquiry, PropertyInquiry.class));
+        listener.onPostInsert(insert(new RentBooking(), RentBooking.class));
+        listener.onPostInsert(insert(new PgBooking(), PgBooking.class));
+
+        assertThat(today(Metric.INQUIRIES, "city:Pune").count()).isEqualTo(1);
+        assertThat(today(Metric.BOOKINGS, DailyRollupService.ALL).count()).isEqualTo(2);
+        assertThat(today(Metric.BOOKINGS, "kind:PG").count()).isEqualTo(1);
+    }
+
+    @Test
+    void purchaseIsCountedOnTheTransitionOnly() {
+        PropertyInquiry inquiry = new PropertyInquiry(property, null, null, "hi", null);
+        inquiry.setStatus(InquiryStatus.PURCHASED);
+        inquiry.setAgreedPrice(new BigDecimal("4500000"));
+        inquiry.setClosedAt(LocalDateTime.now());
+
+        listener.onPostUpdate(update(inquiry, PropertyInquiry.class, InquiryStatus.AGREED));
+        listener.onPostUpdate(update(inquiry, PropertyInquiry.class, InquiryStatus.PURCHASED));
+
+        Point purchases = today(Metric.PURCHASES, "city:Pune");
+        assertThat(purchases.count()).isEqualTo(1);
+        assertThat(purchases.amount()).isEqualByComparingTo("4500000");
+    }
+
+    @Test
+    void paymentIsCountedOnceWhenItBecomesPaid() {
+        MonthlyPayment payment = new MonthlyPayment();
+        payment.setRentBooking(new RentBooking());
+        payment.setAmount(new BigDecimal("20000"));
+        payment.setLateFee(new BigDecimal("500"));
+        listener.onPostInsert(insert(payment, MonthlyPayment.class));
+
+        payment.setStatus(MonthlyPayment.PaymentStatus.PAID);
+        payment.setPaidDate(TODAY);
+        listener.onPostUpdate(update(payment, MonthlyPayment.class, MonthlyPayment.PaymentStatus.PENDING));
+        listener.onPostUpdate(update(payment, MonthlyPayment.class, MonthlyPayment.PaymentStatus.PAID));
+
+        Point payments = today(Metric.PAYMENTS, "kind:RENT");
+        assertThat(payments.count()).isEqualTo(1);
+        assertThat(payments.amount()).isEqualByComparingTo("20500");
+    }
+
+    @Test
+    void updatesWithoutTheOldStateAreLeftToTheBackfill() {
+        MonthlyPayment payment = new MonthlyPayment();
+        payment.setAmount(new BigDecimal("20000"));
+        payment.setStatus(MonthlyPayment.PaymentStatus.PAID);
+
+        listener.onPostUpdate(new PostUpdateEvent(payment, 1L, new Object[2], null, null,
+                persister(MonthlyPayment.class), session));
+
+        assertThat(today(Metric.PAYMENTS, DailyRollupService.ALL).count()).isZero();
+    }
+
+    @Test
+    void otherEntitiesAreIgnored() {
+        assertThat(listener.requiresPostCommitHandling(persister(User.class))).isFalse();
+        assertThat(listener.requiresPostCommitHandling(persister(MonthlyPayment.class))).isTrue();
+    }
+
+    private Point today(Metric metric, String dimension) {
+        Map<Metric, List<Point>> series = rollups.series(List.of(metric), dimension, TODAY, TODAY);
+        return series.get(metric).get(0);
+    }
+
+    private PostInsertEvent insert(Object entity, Class<?> type) {
+        return new PostInsertEvent(entity, 1L, new Object[2], persister(type), session);
+    }
+
+    private PostUpdateEvent update(Object entity, Class<?> type, Object oldStatus) {
+        return new PostUpdateEvent(entity, 1L, new Object[2], new Object[] {null, oldStatus}, null, persister(type), session);
+    }
+
+    private static EntityPersister persister(Class<?> type) {
+        EntityPersister persister = mock(EntityPersister.class);
+        doReturn(type).when(persister).getMappedClass();
+        when(persister.getPropertyNames()).thenReturn(PROPERTIES);
+        return persister;
+    }
+}
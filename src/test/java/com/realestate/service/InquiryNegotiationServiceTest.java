@@ -0,0 +1,226 @@
+package com.realestate.service;
+
+import com.realestate.entity.ChatMessage;
+import com.realestate.entity.ChatMessage.MessageType;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.entity.User;
+import com.realestate.repository.ChatMessageRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import com.realestate.repository.PropertyRepository;
+import com.realestate.service.InquiryNegotiationService.TransitionRejectedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InquiryNegotiationServiceTest {
+
+    private static final Long INQUIRY_ID = 100L;
+    private static final BigDecimal PRICE = new BigDecimal("4500000");
+
+    private static final Map<InquiryStatus, Set<InquiryStatus>> ALLOWED = Map.of(
+            InquiryStatus.ACTIVE, EnumSet.of(InquiryStatus.NEGOTIATING, InquiryStatus.AGREED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED),
+            InquiryStatus.NEGOTIATING, EnumSet.of(InquiryStatus.AGREED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED),
+            InquiryStatus.AGREED, EnumSet.of(InquiryStatus.NEGOTIATING, InquiryStatus.PURCHASED, InquiryStatus.CANCELLED, InquiryStatus.CLOSED),
+            InquiryStatus.PURCHASED, EnumSet.noneOf(InquiryStatus.class),
+            InquiryStatus.CANCELLED, EnumSet.noneOf(InquiryStatus.class),
+            InquiryStatus.CLOSED, EnumSet.noneOf(InquiryStatus.class));
+
+    @Mock private PropertyInquiryRepository inquiryRepo;
+    @Mock private ChatMessageRepository messageRepo;
+    @Mock private PropertyRepository propertyRepo;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private InquiryStatsService inquiryStats;
+    @InjectMocks private InquiryNegotiationService service;
+
+    private User owner;
+    private User client;
+    private User admin;
+    private PropertyInquiry inquiry;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        owner = user(1L, User.Role.AGENT);
+        client = user(2L, User.Role.USER);
+        admin = user(3L, User.Role.ADMIN);
+        Property property = new Property();
+        property.setId(10L);
+        inquiry = new PropertyInquiry(property, client, owner, "Is this available?", null);
+        inquiry.setId(INQUIRY_ID);
+        when(inquiryRepo.findByIdWithParties(INQUIRY_ID)).thenAnswer(i -> Optional.of(inquiry));
+        when(messageRepo.save(any(ChatMessage.class))).thenAnswer(i -> i.getArgument(0));
+        when(propertyRepo.markSoldIfUnsold(eq(10L), any(), any())).thenReturn(1);
+    }
+
+    static Stream<Arguments> statusPairs() {
+        return Arrays.stream(InquiryStatus.values()).flatMap(from -> Arrays.stream(InquiryStatus.values())
+                .filter(to -> to != from)
+                .map(to -> Arguments.of(from, to)));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @MethodSource("statusPairs")
+    void changeStatusFollowsTheTransitionTable(InquiryStatus from, InquiryStatus to) {
+        inquiry.setStatus(from);
+        inquiry.setOfferedPrice(PRICE);
+        if (from == InquiryStatus.AGREED) inquiry.setAgreedPrice(PRICE);
+
+        if (ALLOWED.get(from).contains(to)) {
+            assertThat(service.changeStatus(INQUIRY_ID, admin, to).getStatus()).isEqualTo(to);
+        } else {
+            assertThatThrownBy(() -> service.changeStatus(INQUIRY_ID, admin, to))
+                    .isInstanceOfSatisfying(TransitionRejectedException.class,
+                            e -> assertThat(e.getKind()).isEqualTo(TransitionRejectedException.Kind.NOT_ALLOWED));
+            assertThat(inquiry.getStatus()).isEqualTo(from);
+        }
+    }
+
+    @Test
+    void offererCannotAcceptTheirOwnOffer() {
+        service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, null);
+
+        assertRejected(() -> service.negotiate(INQUIRY_ID, client, MessageType.PRICE_ACCEPT, "ok", PRICE, null),
+                TransitionRejectedException.Kind.NOT_ALLOWED);
+        assertRejected(() -> service.changeStatus(INQUIRY_ID, client, InquiryStatus.AGREED),
+                TransitionRejectedException.Kind.NOT_ALLOWED);
+        assertThat(inquiry.getStatus()).isEqualTo(InquiryStatus.NEGOTIATING);
+        assertThat(inquiry.getAgreedPrice()).isNull();
+    }
+
+    @Test
+    void otherPartyAcceptsTheOffer() {
+        service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, null);
+
+        InquiryNegotiationService.Outcome outcome = service.negotiate(INQUIRY_ID, owner, MessageType.PRICE_ACCEPT, "ok", PRICE, null);
+
+        assertThat(outcome.inquiry().getStatus()).isEqualTo(InquiryStatus.AGREED);
+        assertThat(outcome.inquiry().getAgreedPrice()).isEqualByComparingTo(PRICE);
+        assertThat(outcome.message().getPriceAmount()).isEqualByComparingTo(PRICE);
+    }
+
+    @Test
+    void reopeningAnAgreedInquiryClearsTheAgreedPrice() {
+        service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, null);
+        service.changeStatus(INQUIRY_ID, owner, InquiryStatus.AGREED);
+        assertThat(inquiry.getAgreedPrice()).isEqualByComparingTo(PRICE);
+
+        service.changeStatus(INQUIRY_ID, client, InquiryStatus.NEGOTIATING);
+
+        assertThat(inquiry.getStatus()).isEqualTo(InquiryStatus.NEGOTIATING);
+        assertThat(inquiry.getAgreedPrice()).isNull();
+    }
+
+    @Test
+    void nonPartyGetsNotFound() {
+        User stranger = user(9L, User.Role.USER);
+
+        assertRejected(() -> service.negotiate(INQUIRY_ID, stranger, MessageType.PRICE_OFFER, "offer", PRICE, null),
+                TransitionRejectedException.Kind.NOT_FOUND);
+        assertRejected(() -> service.changeStatus(INQUIRY_ID, stranger, InquiryStatus.CANCELLED),
+                TransitionRejectedException.Kind.NOT_FOUND);
+    }
+
+    @Test
+    void staleExpectedVersionIsAConflict() {
+        ReflectionTestUtils.setField(inquiry, "version", 4L);
+
+        assertRejected(() -> service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, 3L),
+                TransitionRejectedException.Kind.CONFLICT);
+        verify(messageRepo, never()).save(any());
+
+        service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, 4L);
+        assertThat(inquiry.getOfferedPrice()).isEqualByComparingTo(PRICE);
+    }
+
+    @Test
+    void optimisticLockFailureIsRetriedAgainstFreshState() {
+        when(messageRepo.save(any(ChatMessage.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(PropertyInquiry.class, INQUIRY_ID))
+                .thenAnswer(i -> i.getArgument(0));
+
+        service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, null);
+
+        verify(inquiryRepo, times(2)).findByIdWithParties(INQUIRY_ID);
+        assertThat(inquiry.getStatus()).isEqualTo(InquiryStatus.NEGOTIATING);
+    }
+
+    @Test
+    void optimisticLockFailuresBeyondTheAttemptLimitAreAConflict() {
+        when(messageRepo.save(any(ChatMessage.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(PropertyInquiry.class, INQUIRY_ID));
+
+        assertRejected(() -> service.negotiate(INQUIRY_ID, client, MessageType.PRICE_OFFER, "offer", PRICE, null),
+                TransitionRejectedException.Kind.CONFLICT);
+        verify(inquiryRepo, times(3)).findByIdWithParties(INQUIRY_ID);
+    }
+
+    @Test
+    void repeatedPaymentVerifyCompletesThePurchaseOnce() {
+        InquiryNegotiationService.PaymentOutcome first = service.completePurchaseFromPayment(INQUIRY_ID);
+        InquiryNegotiationService.PaymentOutcome second = service.completePurchaseFromPayment(INQUIRY_ID);
+
+        assertThat(first.purchased()).isTrue();
+        assertThat(second.purchased()).isFalse();
+        assertThat(second.inquiry().getStatus()).isEqualTo(InquiryStatus.PURCHASED);
+        verify(propertyRepo, times(1)).markSoldIfUnsold(eq(10L), any(), any());
+    }
+
+    @Test
+    void concurrentVerifyThatLostThePropertyRowReportsTheSaleAsDone() {
+        // The other verify sold the property first; re-reading shows this inquiry already purchased
+        when(propertyRepo.markSoldIfUnsold(eq(10L), any(), any())).thenReturn(0);
+        PropertyInquiry purchased = new PropertyInquiry(inquiry.getProperty(), client, owner, null, null);
+        purchased.setId(INQUIRY_ID);
+        purchased.setStatus(InquiryStatus.PURCHASED);
+        when(inquiryRepo.findByIdWithParties(INQUIRY_ID))
+                .thenAnswer(i -> Optional.of(inquiry))
+                .thenAnswer(i -> Optional.of(purchased));
+
+        assertThat(service.completePurchaseFromPayment(INQUIRY_ID).purchased()).isFalse();
+    }
+
+    @Test
+    void verifyForAPropertySoldThroughAnotherInquiryIsRejected() {
+        when(propertyRepo.markSoldIfUnsold(eq(10L), any(), any())).thenReturn(0);
+
+        assertRejected(() -> service.completePurchaseFromPayment(INQUIRY_ID), TransitionRejectedException.Kind.NOT_ALLOWED);
+        assertThat(inquiry.getStatus()).isEqualTo(InquiryStatus.ACTIVE);
+    }
+
+    private static void assertRejected(Runnable call, TransitionRejectedException.Kind kind) {
+        assertThatThrownBy(call::run).isInstanceOfSatisfying(TransitionRejectedException.class,
+                e -> assertThat(e.getKind()).isEqualTo(kind));
+    }
+
+    private static User user(Long id, User.Role role) {
+        User u = new User("User" + id, "Test", "user" + id + "@test.local", "x");
+        u.setId(id);
+        u.setRole(role);
+        return u;
+    }
+}
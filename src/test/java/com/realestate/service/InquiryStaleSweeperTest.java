@@ -0,0 +1,211 @@
+package com.realestate.service;
+
+import com.realestate.entity.Notification;
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.entity.User;
+import com.realestate.repository.NotificationRepository;
+import com.realestate.repository.PropertyInquiryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InquiryStaleSweeperTest {
+
+    @Mock private PropertyInquiryRepository inquiryRepo;
+    @Mock private NotificationRepository notificationRepo;
+    @Mock private InquiryNegotiationService negotiationService;
+    @Mock private SimpMessagingTemplate messagingTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+    @InjectMocks private InquiryStaleSweeper sweeper;
+
+    // Stand-in for the table: the keyset query and the conditional updates run against this list
+    private final List<PropertyInquiry> table = new ArrayList<>();
+    private final List<Long> closed = new ArrayList<>();
+    private final List<Long> nudged = new ArrayList<>();
+    private final List<Notification> notifications = new ArrayList<>();
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User client;
+    private Property property;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        configure(sweeper);
+        owner = user(1L, "owner@test.local");
+        client = user(2L, "client@test.local");
+        property = new Property();
+        property.setId(10L);
+        property.setTitle("Sea view apartment");
+        when(inquiryRepo.findStaleInquiries(any(), any(), anyLong(), anyBoolean(), any())).thenAnswer(i -> stale(
+                i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(4)));
+        when(inquiryRepo.markNudged(anyList(), any())).thenAnswer(i -> {
+            List<Long> ids = i.getArgument(0);
+            nudged.addAll(ids);
+            table.stream().filter(q -> ids.contains(q.getId())).forEach(q -> q.setNudgedAt(i.getArgument(1)));
+            return ids.size();
+        });
+        when(negotiationService.closeStale(anyList(), any())).thenAnswer(i -> {
+            List<PropertyInquiry> chunk = i.getArgument(0);
+            chunk.forEach(q -> q.setStatus(InquiryStatus.CLOSED));
+            List<Long> ids = chunk.stream().map(PropertyInquiry::getId).toList();
+            closed.addAll(ids);
+            return ids;
+        });
+        when(notificationRepo.saveAll(anyList())).thenAnswer(i -> {
+            notifications.addAll(i.getArgument(0));
+            return i.getArgument(0);
+        });
+    }
+
+    @Test
+    void closesExpiredAndRemindsIdleInquiriesAcrossChunks() {
+        List<Long> expired = new ArrayList<>();
+        List<Long> idle = new ArrayList<>();
+        for (int i = 0; i < 5; i++) expired.add(inquiry(now.minusDays(40)).getId());
+        for (int i = 0; i < 5; i++) idle.add(inquiry(now.minusDays(10)).getId());
+        inquiry(now.minusDays(1));
+
+        sweeper.sweep();
+
+        assertThat(closed).containsExactlyElementsOf(expired);
+        assertThat(nudged).containsExactlyElementsOf(idle);
+        assertThat(sweeper.snapshot()).containsEntry("scanned", 10).containsEntry("expired", 5).containsEntry("nudged", 5);
+    }
+
+    @Test
+    void nextRunStartsAtTheWatermark() {
+        inquiry(now.minusDays(40));
+        PropertyInquiry lastIdle = inquiry(now.minusDays(10));
+        sweeper.sweep();
+        nudged.clear();
+        PropertyInquiry wentIdle = inquiry(now.minusDays(8));
+        clearInvocations(inquiryRepo);
+
+        sweeper.sweep();
+
+        assertThat(nudged).containsExactly(wentIdle.getId());
+        verify(inquiryRepo).findStaleInquiries(any(), eq(lastIdle.getUpdatedAt()), eq(lastIdle.getId()), eq(true), any());
+    }
+
+    @Test
+    void restartDoesNotRepeatReminders() {
+        inquiry(now.minusDays(10));
+        sweeper.sweep();
+        nudged.clear();
+
+        InquiryStaleSweeper restarted = new InquiryStaleSweeper();
+        ReflectionTestUtils.setField(restarted, "inquiryRepo", inquiryRepo);
+        ReflectionTestUtils.setField(restarted, "notificationRepo", notificationRepo);
+        ReflectionTestUtils.setField(restarted, "negotiationService", negotiationService);
+        ReflectionTestUtils.setField(restarted, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+        configure(restarted);
+        restarted.sweep();
+
+        assertThat(nudged).isEmpty();
+    }
+
+    @Test
+    void reminderGoesToWhoeverHasToAnswer() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 10);
+        PropertyInquiry bare = inquiry(now.minusDays(10));
+        PropertyInquiry ownerOffered = inquiry(now.minusDays(10));
+        ownerOffered.setLastOfferBy(owner.getId());
+        PropertyInquiry clientOffered = inquiry(now.minusDays(10));
+        clientOffered.setLastOfferBy(client.getId());
+
+        sweeper.sweep();
+
+        assertThat(notifications).hasSize(2);
+        Notification toOwner = notificationFor(owner);
+        assertThat(toOwner.getEventCount()).isEqualTo(2);
+        assertThat(toOwner.getLink()).isEqualTo("/inquiries");
+        Notification toClient = notificationFor(client);
+        assertThat(toClient.getEventCount()).isEqualTo(1);
+        assertThat(toClient.getLink()).isEqualTo("/inquiries/" + ownerOffered.getId());
+        verify(messagingTemplate, times(2)).convertAndSendToUser(anyString(), eq("/queue/notifications"), any());
+        assertThat(bare.getNudgedAt()).isNotNull();
+    }
+
+    @Test
+    void closedInquiriesNotifyBothPartiesOncePerChunk() {
+        ReflectionTestUtils.setField(sweeper, "batchSize", 10);
+        for (int i = 0; i < 3; i++) inquiry(now.minusDays(40));
+
+        sweeper.sweep();
+
+        assertThat(notifications).hasSize(2);
+        assertThat(notificationFor(owner).getEventCount()).isEqualTo(3);
+        assertThat(notificationFor(client).getEventCount()).isEqualTo(3);
+    }
+
+    @Test
+    void zeroExpiryDaysOnlyReminds() {
+        ReflectionTestUtils.setField(sweeper, "expireDays", 0);
+        PropertyInquiry old = inquiry(now.minusDays(400));
+
+        sweeper.sweep();
+
+        verifyNoInteractions(negotiationService);
+        assertThat(nudged).containsExactly(old.getId());
+    }
+
+    private void configure(InquiryStaleSweeper target) {
+        ReflectionTestUtils.setField(target, "nudgeDays", 7);
+        ReflectionTestUtils.setField(target, "expireDays", 30);
+        ReflectionTestUtils.setField(target, "batchSize", 2);
+    }
+
+    private List<PropertyInquiry> stale(LocalDateTime cutoff, LocalDateTime afterUpdatedAt, long afterId,
+                                        boolean skipNudged, Pageable page) {
+        return table.stream()
+                .filter(q -> q.getStatus() == InquiryStatus.ACTIVE || q.getStatus() == InquiryStatus.NEGOTIATING)
+                .filter(q -> q.getUpdatedAt().isBefore(cutoff))
+                .filter(q -> q.getUpdatedAt().isAfter(afterUpdatedAt)
+                        || (q.getUpdatedAt().equals(afterUpdatedAt) && q.getId() > afterId))
+                .filter(q -> !skipNudged || q.getNudgedAt() == null || q.getNudgedAt().isBefore(q.getUpdatedAt()))
+                .sorted(Comparator.comparing(PropertyInquiry::getUpdatedAt).thenComparing(PropertyInquiry::getId))
+                .limit(page.getPageSize())
+                .toList();
+    }
+
+    private PropertyInquiry inquiry(LocalDateTime updatedAt) {
+        PropertyInquiry inquiry = new PropertyInquiry(property, client, owner, "Is this available?", null);
+        inquiry.setId(nextId++);
+        inquiry.setUpdatedAt(updatedAt);
+        table.add(inquiry);
+        return inquiry;
+    }
+
+    private Notification notificationFor(User recipient) {
+        return notifications.stream().filter(n -> n.getRecipient() == recipient).findFirst().orElseThrow();
+    }
+
+    private static User user(Long id, String email) {
+        User u = new User("Test", "User", email, "password");
+        u.setId(id);
+        return u;
+    }
+}
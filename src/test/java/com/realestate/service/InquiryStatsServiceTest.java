@@ -0,0 +1,192 @@
+package com.realestate.service;
+
+import com.realestate.entity.Property;
+import com.realestate.entity.PropertyInquiry;
+import com.realestate.entity.PropertyInquiry.InquiryStatus;
+import com.realestate.repository.PropertyInquiryRepository;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InquiryStatsServiceTest {
+
+    private static final String[] PROPERTIES = {"agreedPrice", "status"};
+    private static final BigDecimal PRICE = new BigDecimal("4500000");
+
+    @Mock private PropertyInquiryRepository inquiryRepo;
+    @Mock private EntityPersister inquiryPersister;
+    @Mock private EntityPersister otherPersister;
+    @Mock private EventSource session;
+    @InjectMocks private InquiryStatsService stats;
+
+    private InquiryStatsService.Listener listener;
+    private final List<Object[]> committed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        listener = stats.new Listener();
+        doReturn(PropertyInquiry.class).when(inquiryPersister).getMappedClass();
+        when(inquiryPersister.getPropertyNames()).thenReturn(PROPERTIES);
+        doReturn(Property.class).when(otherPersister).getMappedClass();
+        when(otherPersister.getPropertyNames()).thenReturn(PROPERTIES);
+        when(inquiryRepo.aggregateByStatus()).thenAnswer(i -> new ArrayList<>(committed));
+        committed.add(new Object[] {InquiryStatus.ACTIVE, 3L, null});
+        committed.add(new Object[] {InquiryStatus.AGREED, 1L, PRICE});
+    }
+
+    @Test
+    void snapshotLoadsOnceThenServesFromMemory() {
+        stats.snapshot();
+        stats.snapshot();
+
+        verify(inquiryRepo, times(1)).aggregateByStatus();
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(3);
+        assertThat(stats.snapshot().get(InquiryStatus.PURCHASED).agreedTotal()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void committedEventsMoveCountsAndTotals() {
+        stats.snapshot();
+
+        listener.onPostInsert(insert(InquiryStatus.ACTIVE, null));
+        listener.onPostUpdate(update(InquiryStatus.ACTIVE, null, InquiryStatus.AGREED, PRICE));
+        listener.onPostDelete(delete(InquiryStatus.ACTIVE, null));
+
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(2);
+        assertThat(count(InquiryStatus.AGREED)).isEqualTo(2);
+        assertThat(stats.snapshot().get(InquiryStatus.AGREED).agreedTotal()).isEqualByComparingTo(PRICE.add(PRICE));
+        verify(inquiryRepo, times(1)).aggregateByStatus();
+    }
+
+    @Test
+    void reopeningMovesTheAgreedPriceOutOfTheTotal() {
+        stats.snapshot();
+
+        listener.onPostUpdate(update(InquiryStatus.AGREED, PRICE, InquiryStatus.NEGOTIATING, null));
+
+        assertThat(count(InquiryStatus.AGREED)).isZero();
+        assertThat(stats.snapshot().get(InquiryStatus.AGREED).agreedTotal()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(count(InquiryStatus.NEGOTIATING)).isEqualTo(1);
+    }
+
+    @Test
+    void otherEntitiesAreIgnored() {
+        stats.snapshot();
+        long changes = stats.changeCount();
+
+        assertThat(listener.requiresPostCommitHandling(otherPersister)).isFalse();
+        listener.onPostInsert(new PostInsertEvent(new Object(), 1L, new Object[] {null, "x"}, otherPersister, session));
+        listener.onPostUpdate(new PostUpdateEvent(new Object(), 1L, new Object[] {null, "x"}, new Object[] {null, "y"},
+                null, otherPersister, session));
+
+        assertThat(stats.changeCount()).isEqualTo(changes);
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(3);
+    }
+
+    @Test
+    void changesBeforeTheFirstReadAreLeftToTheLoad() {
+        listener.onPostInsert(insert(InquiryStatus.ACTIVE, null));
+        committed.set(0, new Object[] {InquiryStatus.ACTIVE, 4L, null});
+
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(4);
+        assertThat(stats.changeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void updatesThatChangeNeitherStatusNorPriceAreNotCounted() {
+        stats.snapshot();
+
+        listener.onPostUpdate(update(InquiryStatus.ACTIVE, null, InquiryStatus.ACTIVE, null));
+        listener.onPostUpdate(new PostUpdateEvent(new PropertyInquiry(), 1L, new Object[] {null, InquiryStatus.AGREED},
+                null, null, inquiryPersister, session));
+
+        assertThat(stats.changeCount()).isZero();
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(3);
+    }
+
+    @Test
+    void bulkChangeMovesEachInquiry() {
+        stats.snapshot();
+        PropertyInquiry active = inquiry(InquiryStatus.ACTIVE, null);
+        PropertyInquiry agreed = inquiry(InquiryStatus.AGREED, PRICE);
+
+        stats.onBulkChange(List.of(active, agreed), InquiryStatus.CLOSED);
+
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(2);
+        assertThat(count(InquiryStatus.AGREED)).isZero();
+        assertThat(count(InquiryStatus.CLOSED)).isEqualTo(2);
+        assertThat(stats.snapshot().get(InquiryStatus.CLOSED).agreedTotal()).isEqualByComparingTo(PRICE);
+    }
+
+    @Test
+    void rebuildReplacesDriftedTotals() {
+        stats.snapshot();
+        listener.onPostInsert(insert(InquiryStatus.ACTIVE, null)); // also missed by the table below
+        committed.set(0, new Object[] {InquiryStatus.ACTIVE, 7L, null});
+
+        stats.scheduledRebuild();
+
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(7);
+    }
+
+    @Test
+    void failedRebuildKeepsTheRunningTotals() {
+        stats.snapshot();
+        listener.onPostInsert(insert(InquiryStatus.ACTIVE, null));
+        when(inquiryRepo.aggregateByStatus()).thenThrow(new IllegalStateException("database down"));
+
+        stats.scheduledRebuild();
+
+        assertThat(count(InquiryStatus.ACTIVE)).isEqualTo(4);
+    }
+
+    @Test
+    void rebuildBeforeTheFirstReadDoesNotQuery() {
+        stats.scheduledRebuild();
+
+        verify(inquiryRepo, never()).aggregateByStatus();
+    }
+
+    private long count(InquiryStatus status) {
+        return stats.snapshot().get(status).count();
+    }
+
+    private PostInsertEvent insert(InquiryStatus status, BigDecimal agreedPrice) {
+        return new PostInsertEvent(inquiry(status, agreedPrice), 1L, new Object[] {agreedPrice, status}, inquiryPersister, session);
+    }
+
+    private PostUpdateEvent update(InquiryStatus from, BigDecimal fromPrice, InquiryStatus to, BigDecimal toPrice) {
+        return new PostUpdateEvent(inquiry(to, toPrice), 1L, new Object[] {toPrice, to}, new Object[] {fromPrice, from},
+                null, inquiryPersister, session);
+    }
+
+    private PostDeleteEvent delete(InquiryStatus status, BigDecimal agreedPrice) {
+        return new PostDeleteEvent(inquiry(status, agreedPrice), 1L, new Object[] {agreedPrice, status}, inquiryPersister, session);
+    }
+
+    private static PropertyInquiry inquiry(InquiryStatus status, BigDecimal agreedPrice) {
+        PropertyInquiry inquiry = new PropertyInquiry();
+        inquiry.setStatus(status);
+        inquiry.setAgreedPrice(agreedPrice);
+        return inquiry;
+    }
+}